@@ -0,0 +1,52 @@
+package pentago.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the nodes per second of a fixed-time alpha-beta search. Every operation searches
+ * the next opening of the seeded corpus for 50 ms, so the time per operation is fixed and
+ * the {@code nodes} counter, reported per second, is the figure of merit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchThroughputBenchmark {
+    @Param("42")
+    public long seed;
+
+    private LongSupplier search;
+
+    /** The nodes searched, summed over the iteration and reported by JMH as a rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        search = Workloads.create(Workloads.FIXED_TIME_SEARCH, seed);
+    }
+
+    @Benchmark
+    public void alphaBeta50ms(Nodes counters) {
+        counters.nodes += search.getAsLong();
+    }
+}
@@ -0,0 +1,49 @@
+package pentago.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time per operation of every workload of {@code BenchmarkWorkloads}, from the
+ * board primitives up to fixed-depth searches. The corpora are generated from {@link #seed},
+ * so runs with the same seed measure the same positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkloadBenchmark {
+    @Param({"placeMarble", "rotateQuadrant", "checkWinner", "generateMoves", "evaluate", "nnueEvaluate",
+            "nnueEvaluateFromScratch", "canonicalKey", "makeUnmakeMove", "randomPlayout", "greedyMove",
+            "alphaBetaDepth3", "alphaBetaDepth3Unordered"})
+    public String workload;
+
+    @Param("42")
+    public long seed;
+
+    private LongSupplier operation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        operation = Workloads.create(workload, seed);
+    }
+
+    @Benchmark
+    public long run() {
+        return operation.getAsLong();
+    }
+}
@@ -0,0 +1,27 @@
+package pentago.jmh;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Looks up the workloads of {@code BenchmarkWorkloads}, which lives in the unnamed package
+ * with the rest of the game and so cannot be referred to from here by name.
+ */
+final class Workloads {
+    static final String FIXED_TIME_SEARCH = "alphaBeta50ms";
+
+    private Workloads() {
+    }
+
+    /**
+     * @param name the name of the workload
+     * @param seed the seed of the position corpora
+     * @return the workload
+     * @throws ReflectiveOperationException if the workloads class cannot be found or the
+     *         workload cannot be created
+     */
+    static LongSupplier create(String name, long seed) throws ReflectiveOperationException {
+        return (LongSupplier) Class.forName("BenchmarkWorkloads")
+                .getMethod("create", String.class, long.class)
+                .invoke(null, name, seed);
+    }
+}
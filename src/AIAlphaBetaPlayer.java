@@ -0,0 +1,311 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An AI player that picks its move with an iterative-deepening alpha-beta search
+ * under a per-move time budget, using one search thread per core by default.
+ * Positions found in the {@link OpeningBook#getDefault() opening book} are played without searching.
+ * Before the search, a tenth of the budget goes to a {@link ForcedWinSearch}; a proven win is
+ * played at once. The player's memory is its transposition table plus the
+ * {@value #FORCED_WIN_CACHE_SIZE_MB} MB disproof cache of the forced-win search.
+ * <p>
+ * While the opponent thinks, the player can {@link #ponder} on a thread of its own. It
+ * first searches the opponent's position for one move budget to predict the reply, then
+ * searches its own answer to that reply until stopped. Both searches fill the shared
+ * transposition table. If the opponent plays the predicted move, the search for the
+ * answer finds the pondered results in the table and goes deeper in the same budget. If
+ * not, the table still holds the results of the first search.
+ */
+public class AIAlphaBetaPlayer implements ThinkingPlayer {
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+    public static final int DEFAULT_TABLE_SIZE_MB = 64;
+    /** The size of the disproof cache of the forced-win search, on top of the table. */
+    public static final int FORCED_WIN_CACHE_SIZE_MB = ForcedWinSearch.DEFAULT_CACHE_SIZE_MB;
+    /** The share of the time budget, as a divisor, given to proving a forced win before searching. */
+    static final int FORCED_WIN_BUDGET_DIVISOR = 10;
+    /** The longest a background search runs if nobody stops it. */
+    static final long MAX_PONDER_MILLIS = 600_000;
+
+    private static final String ENGINE_NAME = "alphabeta";
+    private static final Metrics.Histogram MOVE_TIMES = Metrics.getDefault().histogram("alphabeta.move_time");
+    private static final LongAdder NODES = Metrics.getDefault().counter("alphabeta.nodes");
+    private static final LongAdder BOOK_MOVES = Metrics.getDefault().counter("alphabeta.book_moves");
+    private static final LongAdder FORCED_WINS = Metrics.getDefault().counter("alphabeta.forced_wins");
+    private static final LongAdder PONDER_NODES = Metrics.getDefault().counter("alphabeta.ponder_nodes");
+    private static final LongAdder PONDER_HITS = Metrics.getDefault().counter("alphabeta.ponder_hits");
+    private static final LongAdder PONDER_MISSES = Metrics.getDefault().counter("alphabeta.ponder_misses");
+
+    private final char marble;
+    private final long timeBudgetMillis;
+    private final TranspositionTable table;
+    private final LazySmpSearch search;
+    private final ForcedWinSearch forcedWins = new ForcedWinSearch(FORCED_WIN_CACHE_SIZE_MB);
+    private volatile boolean stopRequested;
+    private ExecutorService ponderThread;
+    private Future<?> pondering;
+    private volatile boolean ponderStopRequested;
+    /** The hash of the position the player pondered its answer to, or 0 if it did not get that far. */
+    private volatile long predictedPosition;
+    /** The predicted position of the last pondering that got that far, to count hits on the next move. */
+    private volatile long answerPosition;
+    private boolean closed;
+
+    public AIAlphaBetaPlayer(char marble) {
+        this(marble, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    public AIAlphaBetaPlayer(char marble, long timeBudgetMillis) {
+        this(marble, timeBudgetMillis, DEFAULT_TABLE_SIZE_MB);
+    }
+
+    /**
+     * @param marble the marble of this player
+     * @param timeBudgetMillis the search time per move in milliseconds
+     * @param tableSizeMegabytes the memory budget of the transposition table in megabytes
+     */
+    public AIAlphaBetaPlayer(char marble, long timeBudgetMillis, int tableSizeMegabytes) {
+        this(marble, timeBudgetMillis, tableSizeMegabytes, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param marble the marble of this player
+     * @param timeBudgetMillis the search time per move in milliseconds
+     * @param tableSizeMegabytes the memory budget of the shared transposition table in megabytes
+     * @param threads the number of search threads
+     */
+    public AIAlphaBetaPlayer(char marble, long timeBudgetMillis, int tableSizeMegabytes, int threads) {
+        this.marble = marble;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.table = new TranspositionTable(tableSizeMegabytes);
+        this.search = new LazySmpSearch(table, threads);
+    }
+
+    @Override
+    public char getMarble() {
+        return marble;
+    }
+
+    @Override
+    public void makeMove(GameBoard board) {
+        clearStopRequests();
+        play(board);
+    }
+
+    /**
+     * Asks for a move as {@link ThinkingPlayer#requestMove} does, completing the future with
+     * the move the search chose. Earlier stop requests are cleared here, when the move is
+     * requested, so a {@link #stopThinking()} that arrives before the engine thread starts
+     * on the move is not lost.
+     */
+    @Override
+    public CompletableFuture<Integer> requestMove(BoardSnapshot position, long timeLimitMillis, Executor executor) {
+        clearStopRequests();
+        return stopAtTimeLimit(CompletableFuture.supplyAsync(() -> {
+            int move = play(position.toBoard());
+            if (move == Move.NONE) {
+                throw new IllegalStateException("No move to play for " + marble);
+            }
+            return move;
+        }, executor), timeLimitMillis);
+    }
+
+    private void clearStopRequests() {
+        forcedWins.resetStop();
+        search.resetStop();
+        stopRequested = false;
+    }
+
+    /**
+     * Finds a move and plays it, stopping early if {@link #stopThinking()} was called
+     * since the move was requested.
+     * @return the move played, or Move.NONE if the board is full
+     */
+    private int play(GameBoard board) {
+        stopPondering();
+        if (answerPosition != 0) {
+            (answerPosition == board.getHash() ? PONDER_HITS : PONDER_MISSES).increment();
+            answerPosition = 0;
+        }
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        OpeningBook book = OpeningBook.getDefault();
+        int bookMove = book == null ? Move.NONE : book.lookup(board);
+        if (bookMove != Move.NONE) {
+            board.playMove(bookMove, marble);
+            BOOK_MOVES.increment();
+            MOVE_TIMES.record(System.nanoTime() - start);
+            event.complete(ENGINE_NAME, marble, MoveEvent.BOOK, bookMove);
+            return bookMove;
+        }
+        int forcedWin = forcedWins.findForcedWin(board, marble, timeBudgetMillis / FORCED_WIN_BUDGET_DIVISOR,
+                ForcedWinSearch.DEFAULT_MAX_ATTACKS);
+        if (forcedWin != Move.NONE) {
+            board.playMove(forcedWin, marble);
+            FORCED_WINS.increment();
+            MOVE_TIMES.record(System.nanoTime() - start);
+            event.nodes = forcedWins.getNodeCount();
+            event.complete(ENGINE_NAME, marble, MoveEvent.FORCED_WIN, forcedWin);
+            return forcedWin;
+        }
+        // Depth 1 is always completed, so a stop during the proof still leaves a move
+        long remainingMillis = stopRequested ? 0
+                : Math.max(0, timeBudgetMillis - (System.nanoTime() - start) / 1_000_000L);
+        int move = search.findBestMove(board, marble, remainingMillis, AlphaBetaSearch.MAX_DEPTH);
+        if (move == Move.NONE) {
+            MOVE_TIMES.record(System.nanoTime() - start);
+            event.complete(ENGINE_NAME, marble, MoveEvent.HEURISTIC, Move.NONE);
+            return Move.NONE;
+        }
+        board.playMove(move, marble);
+        MOVE_TIMES.record(System.nanoTime() - start);
+        NODES.add(getLastNodeCount());
+        event.depth = getLastDepth();
+        event.nodes = getLastNodeCount();
+        event.tableProbes = search.getTableProbeCount();
+        event.tableHits = search.getTableHitCount();
+        event.complete(ENGINE_NAME, marble, MoveEvent.SEARCH, move);
+        return move;
+    }
+
+    @Override
+    public SearchProgress getProgress() {
+        return search.getProgress();
+    }
+
+    @Override
+    public void stopThinking() {
+        stopRequested = true;
+        forcedWins.stop();
+        search.stop();
+    }
+
+    @Override
+    public synchronized void ponder(BoardSnapshot position) {
+        if (closed || position.isGameOver() || position.getSideToMove() == marble) {
+            return;
+        }
+        stopPondering();
+        if (ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pentago-ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        GameBoard board = position.toBoard();
+        char opponent = position.getSideToMove();
+        search.resetStop();
+        ponderStopRequested = false;
+        predictedPosition = 0;
+        pondering = ponderThread.submit(() -> {
+            int predicted = search.findBestMove(board, opponent, timeBudgetMillis, AlphaBetaSearch.MAX_DEPTH);
+            PONDER_NODES.add(search.getNodeCount());
+            if (ponderStopRequested || predicted == Move.NONE) {
+                return;
+            }
+            board.playMove(predicted, opponent);
+            if (board.isGameOver()) {
+                return;
+            }
+            predictedPosition = board.getHash();
+            search.findBestMove(board, marble, MAX_PONDER_MILLIS, AlphaBetaSearch.MAX_DEPTH);
+            PONDER_NODES.add(search.getNodeCount());
+        });
+    }
+
+    /**
+     * @return whether a background search is running
+     */
+    public synchronized boolean isPondering() {
+        return pondering != null && !pondering.isDone();
+    }
+
+    /**
+     * Stops pondering and the search threads.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        stopPondering();
+        if (ponderThread != null) {
+            ponderThread.shutdown();
+        }
+        search.shutdown();
+    }
+
+    @Override
+    public synchronized void stopPondering() {
+        if (pondering == null) {
+            return;
+        }
+        ponderStopRequested = true;
+        boolean interrupted = false;
+        while (!pondering.isDone()) {
+            // Asked again until it ends, in case the search had not started the first time
+            search.stop();
+            try {
+                pondering.get(10, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // Keep waiting; a failed background search leaves nothing to clean up
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        pondering = null;
+        answerPosition = predictedPosition;
+        predictedPosition = 0;
+        // Pondering was stopped through the search; a stop of the move must outlast it
+        search.resetStop();
+        if (stopRequested) {
+            search.stop();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replaces the static evaluation of the search, for example with tuned weights.
+     * Clear the transposition table if moves were already searched with another evaluator.
+     * @param evaluator the evaluator
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        search.setEvaluator(evaluator);
+    }
+
+    /**
+     * @return the transposition table, for its hit-rate and occupancy counters
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * @return the deepest iteration completed by the last search
+     */
+    public int getLastDepth() {
+        return search.getCompletedDepth();
+    }
+
+    /**
+     * @return the number of nodes visited by the last search
+     */
+    public long getLastNodeCount() {
+        return search.getNodeCount();
+    }
+
+    /**
+     * @return the search speed of the last search in nodes per second
+     */
+    public long getLastNodesPerSecond() {
+        return search.getNodesPerSecond();
+    }
+}
@@ -1,14 +1,43 @@
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class AIGreedyPlayer implements Player {
+    /** With this few empty cells left the game is solved exactly instead of played greedily. */
+    static final int SOLVE_EMPTIES = 5;
+    private static final int SOLVER_TABLE_SIZE_MB = 4;
+
+    private static final String ENGINE_NAME = "greedy";
+    private static final Metrics.Histogram MOVE_TIMES = Metrics.getDefault().histogram("greedy.move_time");
+
     private final char marble;
     private final Random random;
+    private Evaluator evaluator = Evaluator.getDefault();
+    private EndgameSolver solver;
 
     public AIGreedyPlayer(char marble) {
         this.marble = marble;
         this.random = new Random();
     }
 
+    /**
+     * Creates a player whose random choices are reproducible.
+     * @param marble the marble of this player
+     * @param seed the seed of the random number generator
+     */
+    public AIGreedyPlayer(char marble, long seed) {
+        this.marble = marble;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets the evaluation used to choose the rotation after the placement.
+     * @param evaluator the evaluator; Evaluator.getDefault() unless set
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
     @Override
     public char getMarble() {
         return marble;
@@ -16,77 +45,144 @@ public class AIGreedyPlayer implements Player {
 
     @Override
     public void makeMove(GameBoard board) {
-        System.out.println("AIGreedyPlayer.makeMove called");
-        if (!tryToWin(board) && !tryToBlockOpponent(board)) {
-            makeRandomMove(board);
-        }
-        chooseBestRotation(board);
+        play(board, Long.MAX_VALUE);
     }
 
-    // The following methods would be part of the greedy strategy implementation
-    // They are placeholders and need to be implemented with actual logic.
+    /**
+     * Asks for a move without blocking, completing the future with the move chosen. The
+     * endgame solver gets half of the time limit; if it cannot solve the position in that
+     * time the greedy move is played instead, which takes microseconds.
+     */
+    @Override
+    public CompletableFuture<Integer> requestMove(BoardSnapshot position, long timeLimitMillis, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long deadline = timeLimitMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : System.nanoTime() + timeLimitMillis / 2 * 1_000_000L;
+            return play(position.toBoard(), deadline);
+        }, executor);
+    }
 
-    private boolean tryToWin(GameBoard board) {
-        // Logic to find a winning move
-        // If a winning move is found and executed, return true
-        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
-            for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
-                if (board.getMarble(row, col) == '.' && checkWinningMove(board, row, col, marble)) {
-                    board.placeMarble(row, col, marble);
-                    return true;
-                }
-            }
+    /**
+     * Plays a move and records it.
+     * @param solveDeadline the System.nanoTime() by which the endgame must be solved, or
+     *        Long.MAX_VALUE for no limit
+     * @return the move played
+     */
+    private int play(GameBoard board, long solveDeadline) {
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String source;
+        int move = ForcedWinSearch.findImmediateWin(board, marble);
+        if (move != Move.NONE) {
+            board.playMove(move, marble);
+            source = MoveEvent.FORCED_WIN;
+        } else if (board.getEmptyCount() <= SOLVE_EMPTIES
+                && (move = playSolvedMove(board, solveDeadline)) != Move.NONE) {
+            source = MoveEvent.SOLVER;
+        } else {
+            move = playGreedyMove(board);
+            source = MoveEvent.HEURISTIC;
         }
-        // Placeholder for trying to win in the next move
-        return false;
+        MOVE_TIMES.record(System.nanoTime() - start);
+        event.complete(ENGINE_NAME, marble, source, move);
+        return move;
     }
 
-    private boolean tryToBlockOpponent(GameBoard board) {
-        // Logic to block the opponent from winning
-        // If a blocking move is found and executed, return true
+    /**
+     * Blocks a five of the opponent if one can be completed, or else places a marble on a
+     * random empty cell, and then plays the best rotation.
+     * @return the move played
+     */
+    private int playGreedyMove(GameBoard board) {
+        int cell = findBlockingCell(board);
+        if (cell < 0) {
+            cell = chooseRandomCell(board);
+        }
+        board.placeMarble(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, marble);
+        return Move.of(cell, chooseBestRotation(board));
+    }
+
+    /**
+     * @return the first cell on which the opponent would complete five, or -1 if there is none
+     */
+    private int findBlockingCell(GameBoard board) {
         char opponentMarble = (marble == 'X') ? 'O' : 'X';
         for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
             for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
                 if (board.getMarble(row, col) == '.' && checkWinningMove(board, row, col, opponentMarble)) {
-                    board.placeMarble(row, col, marble);
-                    return true;
+                    return row * GameBoard.GRID_SIZE + col;
                 }
             }
         }
-        // Placeholder for blocking the opponent from winning
-        return false;
+        return -1;
     }
 
-    private void chooseBestRotation(GameBoard board) {
-        // Logic to choose the best quadrant to rotate
-        // This is a simplified example and should be expanded with actual logic
-        int bestQuadrant = findBestQuadrantToRotate(board);
-        boolean clockwise = random.nextBoolean();
-        board.rotateQuadrant(bestQuadrant, clockwise);
+    /**
+     * Plays the rotation with the best evaluation, preferring a five of our own and avoiding
+     * one of the opponent's. Equally good rotations are chosen at random.
+     * @return the rotation played, as in {@link Move#of}
+     */
+    private int chooseBestRotation(GameBoard board) {
+        int bestRotation = 0;
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+        for (int rotation = 0; rotation < Move.ROTATIONS; rotation++) {
+            int quadrant = rotation / 2 + 1;
+            boolean clockwise = rotation % 2 == 0;
+            board.rotateQuadrant(quadrant, clockwise);
+            int score = scoreRotation(board);
+            board.rotateQuadrant(quadrant, !clockwise);
+            if (score > bestScore) {
+                bestScore = score;
+                bestRotation = rotation;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                bestRotation = rotation;
+            }
+        }
+        board.rotateQuadrant(bestRotation / 2 + 1, bestRotation % 2 == 0);
+        return bestRotation;
     }
 
-    private void makeRandomMove(GameBoard board) {
-        int row, col;
-        do {
-            row = random.nextInt(GameBoard.GRID_SIZE);
-            col = random.nextInt(GameBoard.GRID_SIZE);
-        } while (!board.placeMarble(row, col, marble));
+    private int scoreRotation(GameBoard board) {
+        char winner = board.checkWinner();
+        if (winner == marble) {
+            return Integer.MAX_VALUE;
+        }
+        if (winner == GameBoard.DRAW) {
+            return 0;
+        }
+        if (winner != '.') {
+            return -Integer.MAX_VALUE;
+        }
+        return evaluator.evaluate(board, marble);
     }
 
-    // Additional helper methods for the greedy strategy
-    private int findBestQuadrantToRotate(GameBoard board) {
-        // Placeholder for logic to find the best quadrant to rotate
-        return random.nextInt(4) + 1;
+    private int playSolvedMove(GameBoard board, long deadline) {
+        if (solver == null) {
+            solver = new EndgameSolver(new EndgameTable(SOLVER_TABLE_SIZE_MB, SOLVE_EMPTIES));
+        }
+        int move = solver.findBestMove(board, deadline);
+        if (move != Move.NONE) {
+            board.playMove(move, marble);
+        }
+        return move;
     }
 
-        // Placeholder for choosing the best quadrant to rotate
+    private int chooseRandomCell(GameBoard board) {
+        // Pick the n-th empty cell directly; guessing cells slows down as the board fills
+        int remaining = random.nextInt(board.getEmptyCount());
+        for (int cell = 0; cell < GameBoard.CELL_COUNT; cell++) {
+            if (board.getMarble(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE) == '.' && remaining-- == 0) {
+                return cell;
+            }
+        }
+        throw new IllegalStateException("The board is full");
+    }
 
     private boolean checkWinningMove(GameBoard board, int row, int col, char playerMarble) {
-        // Simple logic to check for a winning move by creating a line of 5 marbles
-        // This is a simplified version and may not cover all win conditions
-        board.placeMarble(row, col, playerMarble); // Temporarily place the marble
-        boolean won = board.checkWinningMove(row, col, playerMarble); // Check for a win
-        board.removeMarble(row, col); // Remove the temporarily placed marble
-        return won;
+        // GameBoard checks the lines through the cell without placing the marble
+        return board.checkWinningMove(row, col, playerMarble);
     }
 }
@@ -0,0 +1,308 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An AI player that picks its move with Monte Carlo tree search under a per-move time
+ * budget. With several threads it uses root parallelism: every thread grows its own tree
+ * from a different seed and the visit counts of the root moves are summed before the
+ * most visited move is played. The helper threads come from a pool shared by all players,
+ * so players that are never closed do not leave threads behind, and idle helpers exit
+ * after a minute. Each tree is kept between turns, within its share of the player's
+ * memory budget. Positions found in the {@link OpeningBook#getDefault() opening book}
+ * are played without searching.
+ * <p>
+ * While the opponent thinks, the player can {@link #ponder}: every tree searches the
+ * opponent's position on a helper thread until stopped. The next move continues from the
+ * node of the reply that was played, so the playouts spent below that reply are kept.
+ */
+public class AIMonteCarloPlayer implements ThinkingPlayer {
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+    /** The memory budget of all trees of a player together. */
+    public static final int DEFAULT_TREE_SIZE_MB = 256;
+    /** The longest a background search runs if nobody stops it. */
+    static final long MAX_PONDER_MILLIS = 600_000;
+
+    private static final String ENGINE_NAME = "mcts";
+    private static final Metrics.Histogram MOVE_TIMES = Metrics.getDefault().histogram("mcts.move_time");
+    private static final LongAdder PLAYOUTS = Metrics.getDefault().counter("mcts.playouts");
+    private static final LongAdder BOOK_MOVES = Metrics.getDefault().counter("mcts.book_moves");
+    private static final LongAdder PONDER_PLAYOUTS = Metrics.getDefault().counter("mcts.ponder_playouts");
+    private static final ExecutorService HELPERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pentago-mcts-helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final char marble;
+    private final long timeBudgetMillis;
+    private final MonteCarloTreeSearch[] trees;
+    private volatile boolean stopRequested;
+    private final List<Future<?>> pondering = new ArrayList<>();
+    private boolean closed;
+
+    private volatile long searchStartNanos;
+    private long lastPlayouts;
+    private long lastElapsedNanos;
+
+    public AIMonteCarloPlayer(char marble) {
+        this(marble, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    public AIMonteCarloPlayer(char marble, long timeBudgetMillis) {
+        this(marble, timeBudgetMillis, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * @param marble the marble of this player
+     * @param timeBudgetMillis the search time per move in milliseconds
+     * @param threads the number of search trees, each searched on its own thread
+     * @param seed the seed of the random playouts
+     */
+    public AIMonteCarloPlayer(char marble, long timeBudgetMillis, int threads, long seed) {
+        this(marble, timeBudgetMillis, threads, DEFAULT_TREE_SIZE_MB, seed);
+    }
+
+    /**
+     * @param marble the marble of this player
+     * @param timeBudgetMillis the search time per move in milliseconds
+     * @param threads the number of search trees, each searched on its own thread
+     * @param treeSizeMegabytes the memory budget of all trees together, split evenly and
+     *        at least one megabyte per tree
+     * @param seed the seed of the random playouts
+     */
+    public AIMonteCarloPlayer(char marble, long timeBudgetMillis, int threads, int treeSizeMegabytes, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        if (treeSizeMegabytes < 1) {
+            throw new IllegalArgumentException("Tree size must be positive: " + treeSizeMegabytes);
+        }
+        this.marble = marble;
+        this.timeBudgetMillis = timeBudgetMillis;
+        trees = new MonteCarloTreeSearch[threads];
+        int treeShare = Math.max(1, treeSizeMegabytes / threads);
+        for (int i = 0; i < threads; i++) {
+            trees[i] = new MonteCarloTreeSearch(seed + i, treeShare);
+        }
+    }
+
+    @Override
+    public char getMarble() {
+        return marble;
+    }
+
+    @Override
+    public void makeMove(GameBoard board) {
+        stopRequested = false;
+        play(board);
+    }
+
+    /**
+     * Asks for a move as {@link ThinkingPlayer#requestMove} does, completing the future with
+     * the move the search chose. An earlier stop request is cleared here, when the move is
+     * requested, so a {@link #stopThinking()} that arrives before the engine thread starts
+     * on the move is not lost.
+     */
+    @Override
+    public CompletableFuture<Integer> requestMove(BoardSnapshot position, long timeLimitMillis, Executor executor) {
+        stopRequested = false;
+        return stopAtTimeLimit(CompletableFuture.supplyAsync(() -> {
+            int move = play(position.toBoard());
+            if (move == Move.NONE) {
+                throw new IllegalStateException("No move to play for " + marble);
+            }
+            return move;
+        }, executor), timeLimitMillis);
+    }
+
+    /**
+     * @return the move played, or Move.NONE if the game is over
+     */
+    private int play(GameBoard board) {
+        stopPondering();
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
+                if (board.getMarble(row, col) == '.' && board.checkWinningMove(row, col, marble)) {
+                    board.placeMarble(row, col, marble);
+                    // A winning placement ends the game before the rotation
+                    int move = Move.of(row * GameBoard.GRID_SIZE + col, 0);
+                    MOVE_TIMES.record(System.nanoTime() - start);
+                    event.complete(ENGINE_NAME, marble, MoveEvent.HEURISTIC, move);
+                    return move;
+                }
+            }
+        }
+        if (board.isGameOver()) {
+            MOVE_TIMES.record(System.nanoTime() - start);
+            event.complete(ENGINE_NAME, marble, MoveEvent.HEURISTIC, Move.NONE);
+            return Move.NONE;
+        }
+        OpeningBook book = OpeningBook.getDefault();
+        int bookMove = book == null ? Move.NONE : book.lookup(board);
+        if (bookMove != Move.NONE) {
+            board.playMove(bookMove, marble);
+            BOOK_MOVES.increment();
+            MOVE_TIMES.record(System.nanoTime() - start);
+            event.complete(ENGINE_NAME, marble, MoveEvent.BOOK, bookMove);
+            return bookMove;
+        }
+
+        int move = search(board);
+        board.playMove(move, marble);
+        MOVE_TIMES.record(System.nanoTime() - start);
+        PLAYOUTS.add(lastPlayouts);
+        event.nodes = lastPlayouts;
+        event.complete(ENGINE_NAME, marble, MoveEvent.SEARCH, move);
+        return move;
+    }
+
+    private int search(GameBoard board) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+        GameBoard position = new GameBoard(board);
+        for (MonteCarloTreeSearch tree : trees) {
+            tree.resetStop();
+        }
+        if (stopRequested) {
+            stopThinking();
+        }
+        searchStartNanos = start;
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < trees.length; i++) {
+            MonteCarloTreeSearch tree = trees[i];
+            helpers.add(HELPERS.submit(() -> tree.search(position, marble, deadline)));
+        }
+        trees[0].search(position, marble, deadline);
+        for (Future<?> helper : helpers) {
+            waitFor(helper);
+        }
+        lastElapsedNanos = System.nanoTime() - start;
+
+        int[] visits = new int[Move.MAX_MOVES];
+        lastPlayouts = 0;
+        for (MonteCarloTreeSearch tree : trees) {
+            tree.addRootVisits(visits);
+            lastPlayouts += tree.getPlayoutCount();
+        }
+        return MonteCarloTreeSearch.mostVisited(visits);
+    }
+
+    @Override
+    public SearchProgress getProgress() {
+        long playouts = 0;
+        for (MonteCarloTreeSearch tree : trees) {
+            playouts += tree.getPublishedPlayoutCount();
+        }
+        return new SearchProgress(0, playouts, System.nanoTime() - searchStartNanos);
+    }
+
+    @Override
+    public void stopThinking() {
+        stopRequested = true;
+        for (MonteCarloTreeSearch tree : trees) {
+            tree.stop();
+        }
+    }
+
+    @Override
+    public synchronized void ponder(BoardSnapshot position) {
+        if (closed || position.isGameOver() || position.getSideToMove() == marble) {
+            return;
+        }
+        stopPondering();
+        GameBoard board = position.toBoard();
+        char opponent = position.getSideToMove();
+        long deadline = System.nanoTime() + MAX_PONDER_MILLIS * 1_000_000L;
+        for (MonteCarloTreeSearch tree : trees) {
+            tree.resetStop();
+            pondering.add(HELPERS.submit(() -> {
+                tree.search(board, opponent, deadline);
+                PONDER_PLAYOUTS.add(tree.getPlayoutCount());
+            }));
+        }
+    }
+
+    /**
+     * @return whether a background search is running
+     */
+    public synchronized boolean isPondering() {
+        for (Future<?> search : pondering) {
+            if (!search.isDone()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void stopPondering() {
+        if (pondering.isEmpty()) {
+            return;
+        }
+        // The stop stands until the next search resets it, so a tree that has not started yet stops at once
+        for (MonteCarloTreeSearch tree : trees) {
+            tree.stop();
+        }
+        boolean interrupted = false;
+        for (Future<?> search : pondering) {
+            while (!search.isDone()) {
+                try {
+                    search.get();
+                } catch (ExecutionException e) {
+                    // A failed background search leaves nothing to clean up
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        pondering.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops a running search and pondering. The helper threads belong to the shared pool;
+     * the trees are kept until the player is dropped.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        stopThinking();
+        stopPondering();
+    }
+
+    /**
+     * @return the number of playouts of the last move, over all trees
+     */
+    public long getLastPlayoutCount() {
+        return lastPlayouts;
+    }
+
+    /**
+     * @return the playout rate of the last move in playouts per second
+     */
+    public long getLastPlayoutsPerSecond() {
+        return lastElapsedNanos == 0 ? 0 : lastPlayouts * 1_000_000_000L / lastElapsedNanos;
+    }
+
+    private static void waitFor(Future<?> helper) {
+        try {
+            helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search helper failed", e.getCause());
+        }
+    }
+}
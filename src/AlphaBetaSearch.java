@@ -0,0 +1,414 @@
+/**
+ * Negamax alpha-beta search over full Pentago moves (placement plus one of the
+ * eight quadrant rotations) with iterative deepening under a time budget.
+ * <p>
+ * Moves are encoded as described in {@link Move}. A placement that already
+ * completes five in a row wins on the spot, without the rotation being played.
+ * <p>
+ * Results are cached in a {@link TranspositionTable} keyed by the board's Zobrist hash
+ * and the side to move; the best move stored for a position is searched first.
+ * Positions with few empty cells are looked up in the {@link EndgameTable}, if one is
+ * set, and scored exactly when found.
+ * <p>
+ * An instance is not thread-safe; it searches its own copy of the position. Several
+ * instances can share one table to search the same position in parallel (Lazy SMP):
+ * helpers with a non-zero worker id start at alternating depths and try the root
+ * moves in a different order, so they fill the table with results the others reuse.
+ * See {@link LazySmpSearch}.
+ */
+public class AlphaBetaSearch {
+    public static final int MAX_DEPTH = GameBoard.CELL_COUNT;
+    public static final int WIN_SCORE = 1_000_000;
+
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final int WIN_THRESHOLD = WIN_SCORE - MAX_DEPTH - 1;
+    private static final long O_TO_MOVE_KEY = 0x9E3779B97F4A7C15L;
+    private static final int ROOT_ORDER_STRIDE = 37;
+
+    private final int[][] moveBuffers = new int[MAX_DEPTH + 1][Move.MAX_MOVES];
+    private final TranspositionTable table;
+    private final MoveOrderer orderer = new MoveOrderer(MAX_DEPTH);
+    private boolean moveOrdering = true;
+    private EndgameTable endgameTable = EndgameTable.getDefault();
+    private Evaluator evaluator = Evaluator.getDefault();
+    private int workerId;
+    private volatile boolean stopRequested;
+    private GameBoard board;
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private long tableStores;
+    private int timeCheckCountdown;
+    private int bestMove;
+    private int bestScore;
+    private volatile int completedDepth;
+    private volatile long publishedNodes;
+    private long elapsedNanos;
+
+    public AlphaBetaSearch(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Searches the position for the best move of the given player.
+     * Depth 1 is always searched to completion so a move is returned even if the
+     * budget is exhausted; deeper iterations that run out of time are discarded.
+     * @param position the position to search; it is copied and left unchanged
+     * @param marble the marble of the player to move
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @param maxDepth the maximum depth in plies
+     * @return the best move found, or Move.NONE if the board is full
+     */
+    public int findBestMove(GameBoard position, char marble, long timeBudgetMillis, int maxDepth) {
+        table.newSearch();
+        resetStop();
+        return search(position, marble, System.nanoTime() + timeBudgetMillis * 1_000_000L, maxDepth);
+    }
+
+    /**
+     * Runs the iterative deepening loop without starting a new table generation, so
+     * several workers can search the same position under one generation.
+     * @param deadlineNanos the System.nanoTime() value at which to stop
+     */
+    int search(GameBoard position, char marble, long deadlineNanos, int maxDepth) {
+        long start = System.nanoTime();
+        board = new GameBoard(position);
+        deadline = deadlineNanos;
+        aborted = false;
+        nodes = 0;
+        publishedNodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        tableStores = 0;
+        timeCheckCountdown = TIME_CHECK_INTERVAL;
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        orderer.newSearch();
+
+        int depthLimit = Math.min(maxDepth, board.getEmptyCount());
+        int firstDepth = Math.min(depthLimit, 1 + (workerId & 1));
+        for (int depth = firstDepth; depth <= depthLimit; depth++) {
+            int move = searchRoot(depth, marble);
+            if (aborted) {
+                break;
+            }
+            completedDepth = depth;
+            bestMove = move;
+            if (Math.abs(bestScore) > WIN_THRESHOLD) {
+                break;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        publishedNodes = nodes;
+        table.recordStatistics(tableProbes, tableHits, tableStores);
+        return bestMove;
+    }
+
+    /**
+     * Sets the table of solved endgame positions to probe, replacing the one named by the
+     * {@code pentago.endgame} system property.
+     * @param endgameTable the table, or null to probe none
+     */
+    public void setEndgameTable(EndgameTable endgameTable) {
+        this.endgameTable = endgameTable;
+    }
+
+    /**
+     * Turns the killer, history and blocking heuristics on or off, to measure what they save.
+     * Without them only the hash move is searched first. On by default.
+     */
+    public void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
+
+    /**
+     * Sets the static evaluation of the positions at the search horizon.
+     * @param evaluator the evaluator; Evaluator.getDefault() unless set
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Sets the worker id used for Lazy SMP; 0 is the main worker, which always completes depth 1.
+     */
+    public void setWorkerId(int workerId) {
+        this.workerId = workerId;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. May be called from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clears an earlier stop request. Called before the search starts, so a stop that
+     * arrives before the worker thread begins searching is not lost.
+     */
+    void resetStop() {
+        stopRequested = false;
+    }
+
+    public long getTableProbeCount() {
+        return tableProbes;
+    }
+
+    public long getTableHitCount() {
+        return tableHits;
+    }
+
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Returns the node count of a running search as of its last time check, so another
+     * thread can watch the search progress.
+     * @return the number of nodes visited so far
+     */
+    public long getPublishedNodeCount() {
+        return publishedNodes;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the share of beta cutoffs in the last search caused by the first move tried
+     */
+    public double getFirstMoveCutoffRate() {
+        return orderer.getFirstMoveCutoffRate();
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    private int searchRoot(int depth, char marble) {
+        int[] moves = moveBuffers[0];
+        int count = board.generateMoves(moves);
+        int winningMove = findWinningPlacement(moves, count, marble);
+        if (winningMove != Move.NONE) {
+            bestScore = WIN_SCORE;
+            return winningMove;
+        }
+        // Search the best move of the previous iteration first
+        moveToFront(moves, count, bestMove);
+        if (workerId > 0 && count > 2) {
+            rotate(moves, 1, count, workerId * ROOT_ORDER_STRIDE % (count - 1));
+        }
+
+        int alpha = -INFINITY;
+        int best = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int score = scoreMove(moves[i], depth, alpha, INFINITY, marble, 0);
+            if (aborted) {
+                return best;
+            }
+            if (score > alpha) {
+                alpha = score;
+                best = moves[i];
+            }
+        }
+        bestScore = alpha;
+        return best;
+    }
+
+    private int negamax(int depth, int alpha, int beta, char marble, int ply) {
+        if (--timeCheckCountdown <= 0) {
+            timeCheckCountdown = TIME_CHECK_INTERVAL;
+            publishedNodes = nodes;
+            if ((completedDepth > 0 || workerId > 0)
+                    && (stopRequested || System.nanoTime() - deadline > 0)) {
+                aborted = true;
+            }
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = board.generateMoves(moves);
+        if (findWinningPlacement(moves, count, marble) != Move.NONE) {
+            return WIN_SCORE - ply;
+        }
+        if (endgameTable != null && board.getEmptyCount() <= endgameTable.getMaxEmpties()) {
+            int value = endgameTable.probe(board);
+            if (value != EndgameTable.UNKNOWN) {
+                // The game ends within the remaining empty cells, so a win or loss is at most that far away
+                return value == EndgameSolver.DRAW ? 0 : value * (WIN_SCORE - ply - board.getEmptyCount());
+            }
+        }
+        if (depth == 0) {
+            return evaluate(marble);
+        }
+
+        long key = board.getHash() ^ (marble == 'O' ? O_TO_MOVE_KEY : 0L);
+        long entry = table.probe(key);
+        tableProbes++;
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            tableHits++;
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+            hashMove = TranspositionTable.move(entry);
+        }
+        if (moveOrdering) {
+            orderer.order(board, moves, count, hashMove, marble, ply);
+        } else {
+            moveToFront(moves, count, hashMove);
+        }
+
+        int originalAlpha = alpha;
+        int best = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int score = scoreMove(moves[i], depth, alpha, beta, marble, ply);
+            if (aborted) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                best = moves[i];
+                if (alpha >= beta) {
+                    orderer.recordCutoff(best, i, depth, ply);
+                    break;
+                }
+            }
+        }
+
+        int bound = alpha >= beta ? TranspositionTable.LOWER_BOUND
+                : alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, best, depth, bound, scoreToTable(alpha, ply));
+        tableStores++;
+        return alpha;
+    }
+
+    /**
+     * Moves the given move, if present, to the front of the list.
+     */
+    private static void moveToFront(int[] moves, int count, int move) {
+        if (move == Move.NONE) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rotates moves[from..to) left by the given distance, in place.
+     */
+    private static void rotate(int[] moves, int from, int to, int distance) {
+        reverse(moves, from, from + distance);
+        reverse(moves, from + distance, to);
+        reverse(moves, from, to);
+    }
+
+    private static void reverse(int[] moves, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int move = moves[i];
+            moves[i] = moves[j];
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Converts a win or loss score, which counts plies from the root, to one counting from this node.
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Looks for a placement that completes five in a row, which wins before any rotation.
+     * @return the first move with a winning placement, or Move.NONE if there is none
+     */
+    private int findWinningPlacement(int[] moves, int count, char marble) {
+        for (int i = 0; i < count; i += Move.ROTATIONS) {
+            if (board.checkWinningMove(Move.row(moves[i]), Move.col(moves[i]), marble)) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Plays a move whose placement does not win outright, scores the resulting
+     * position from the mover's point of view and undoes the move.
+     */
+    private int scoreMove(int move, int depth, int alpha, int beta, char marble, int ply) {
+        char opponent = opponentOf(marble);
+
+        nodes++;
+        board.makeMove(move, marble);
+        boolean won = board.hasFiveInARow(marble);
+        boolean lost = board.hasFiveInARow(opponent);
+        int score;
+        if (won && lost) {
+            score = 0;
+        } else if (won) {
+            score = WIN_SCORE - ply - 1;
+        } else if (lost) {
+            score = -(WIN_SCORE - ply - 1);
+        } else if (board.isFull()) {
+            score = 0;
+        } else {
+            score = -negamax(depth - 1, -beta, -alpha, opponent, ply + 1);
+        }
+        board.unmakeMove(move);
+        return score;
+    }
+
+    /**
+     * Scores the position at the search horizon for the given player.
+     */
+    private int evaluate(char marble) {
+        return evaluator.evaluate(board, marble);
+    }
+
+    private static char opponentOf(char marble) {
+        return (marble == 'X') ? 'O' : 'X';
+    }
+}
@@ -0,0 +1,203 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks the search on random positions with a win forced in two moves, which a search
+ * with a wrong root window misses once a weaker root move has raised alpha.
+ */
+public class AlphaBetaSearchTest {
+    private static final int POSITIONS = 200;
+    private static final long UNLIMITED_MILLIS = 600_000;
+
+    @Test
+    public void testFindsForcedWinAfterWeakerFirstMove() {
+        int checked = 0;
+        for (GameBoard board : forcedWins(24L, 4)) {
+            char marble = sideToMove(board);
+            AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(4));
+            // Ordering would search the winning move first and hide a wrong root window
+            search.setMoveOrdering(false);
+            int move = search.findBestMove(board, marble, UNLIMITED_MILLIS, 3);
+            assertTrue(describe(board) + " scored " + search.getBestScore(),
+                    search.getBestScore() > AlphaBetaSearch.WIN_SCORE - AlphaBetaSearch.MAX_DEPTH);
+            assertTrue(describe(board) + " " + Move.toString(move), forcesWin(board, move, marble));
+            checked++;
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    public void testParallelSearchFindsForcedWin() {
+        LazySmpSearch search = new LazySmpSearch(new TranspositionTable(4), 2);
+        try {
+            for (GameBoard board : forcedWins(25L, 2)) {
+                char marble = sideToMove(board);
+                int move = search.findBestMove(board, marble, UNLIMITED_MILLIS, 3);
+                assertTrue(describe(board) + " " + Move.toString(move), forcesWin(board, move, marble));
+                assertTrue(search.getBestScore() > AlphaBetaSearch.WIN_SCORE - AlphaBetaSearch.MAX_DEPTH);
+            }
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearchConfirmsProvenForcedWins() {
+        ForcedWinSearch prover = new ForcedWinSearch();
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(4));
+        int proven = 0;
+        for (GameBoard board : randomPositions(27L, POSITIONS, 12, 24)) {
+            char marble = sideToMove(board);
+            if (isGameOver(board) || ForcedWinSearch.findImmediateWin(board, marble) != Move.NONE
+                    || prover.findForcedWin(board, marble, 10_000, 2) == Move.NONE) {
+                continue;
+            }
+            search.findBestMove(board, marble, UNLIMITED_MILLIS, 3);
+            assertTrue(describe(board) + " scored " + search.getBestScore(),
+                    search.getBestScore() > AlphaBetaSearch.WIN_SCORE - AlphaBetaSearch.MAX_DEPTH);
+            if (++proven == 4) {
+                break;
+            }
+        }
+        assertTrue(proven > 0);
+    }
+
+    @Test
+    public void testSearchLeavesPositionUnchanged() {
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1));
+        for (GameBoard board : randomPositions(26L, 20, 0, 30)) {
+            if (isGameOver(board)) {
+                continue;
+            }
+            String before = describe(board);
+            char marble = sideToMove(board);
+            int move = search.findBestMove(board, marble, UNLIMITED_MILLIS, 2);
+            assertEquals(before, describe(board));
+            assertEquals(before, '.', board.getMarble(Move.row(move), Move.col(move)));
+            if (Math.abs(search.getBestScore()) < AlphaBetaSearch.WIN_SCORE - AlphaBetaSearch.MAX_DEPTH) {
+                assertEquals(before, 2, search.getCompletedDepth());
+            }
+        }
+    }
+
+    /**
+     * Collects positions in which the side to move cannot win at once but has a move
+     * after which every reply loses, so the search needs depth 3 to see the win.
+     */
+    private static List<GameBoard> forcedWins(long seed, int limit) {
+        List<GameBoard> positions = new ArrayList<>();
+        for (GameBoard board : randomPositions(seed, POSITIONS, 12, 24)) {
+            char marble = sideToMove(board);
+            if (isGameOver(board) || hasImmediateWin(board, marble)) {
+                continue;
+            }
+            for (int move = 0; move < Move.MAX_MOVES; move++) {
+                if (forcesWin(board, move, marble)) {
+                    positions.add(board);
+                    break;
+                }
+            }
+            if (positions.size() == limit) {
+                break;
+            }
+        }
+        return positions;
+    }
+
+    private static boolean forcesWin(GameBoard board, int move, char marble) {
+        GameBoard after = new GameBoard(board);
+        if (!play(after, move, marble)) {
+            return false;
+        }
+        if (after.checkWinner() == marble && !after.hasFiveInARow(opponent(marble))) {
+            return true;
+        }
+        if (isGameOver(after)) {
+            return false;
+        }
+        for (int reply = 0; reply < Move.MAX_MOVES; reply++) {
+            GameBoard replied = new GameBoard(after);
+            if (!play(replied, reply, opponent(marble))) {
+                continue;
+            }
+            boolean won = replied.hasFiveInARow(marble) && !replied.hasFiveInARow(opponent(marble));
+            if (!won && (isGameOver(replied) || !hasImmediateWin(replied, marble))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasImmediateWin(GameBoard board, char marble) {
+        for (int move = 0; move < Move.MAX_MOVES; move++) {
+            GameBoard after = new GameBoard(board);
+            if (play(after, move, marble) && after.hasFiveInARow(marble) && !after.hasFiveInARow(opponent(marble))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plays a move by the rules: a placement that completes five ends the game before the rotation.
+     * @return false if the cell is occupied
+     */
+    private static boolean play(GameBoard board, int move, char marble) {
+        int row = Move.row(move);
+        int col = Move.col(move);
+        if (!board.placeMarble(row, col, marble)) {
+            return false;
+        }
+        if (!board.hasFiveInARow(marble)) {
+            board.rotateQuadrant(Move.quadrant(move), Move.isClockwise(move));
+        }
+        return true;
+    }
+
+    /**
+     * Plays random moves from the empty board, keeping the positions reached after a
+     * random number of plies between the bounds.
+     */
+    private static List<GameBoard> randomPositions(long seed, int count, int minPlies, int maxPlies) {
+        Random random = new Random(seed);
+        List<GameBoard> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            GameBoard board = new GameBoard();
+            int plies = minPlies + random.nextInt(maxPlies - minPlies + 1);
+            char marble = 'X';
+            for (int ply = 0; ply < plies && !isGameOver(board); ply++) {
+                while (!play(board, random.nextInt(Move.MAX_MOVES), marble)) {
+                    // Try another cell
+                }
+                marble = opponent(marble);
+            }
+            positions.add(board);
+        }
+        return positions;
+    }
+
+    private static boolean isGameOver(GameBoard board) {
+        return board.checkWinner() != '.' || board.isFull();
+    }
+
+    private static char sideToMove(GameBoard board) {
+        return Long.bitCount(board.getMarbleBits('X')) <= Long.bitCount(board.getMarbleBits('O')) ? 'X' : 'O';
+    }
+
+    private static char opponent(char marble) {
+        return marble == 'X' ? 'O' : 'X';
+    }
+
+    private static String describe(GameBoard board) {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
+                text.append(board.getMarble(row, col));
+            }
+        }
+        return text.toString();
+    }
+}
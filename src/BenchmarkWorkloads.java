@@ -0,0 +1,249 @@
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * The workloads of the JMH benchmark suite, built on seeded position corpora so every run
+ * measures the same positions.
+ * <p>
+ * Each workload performs one operation per call, usually on the next position or move of
+ * its corpus, and returns a value the benchmark hands to JMH so the work cannot be removed.
+ * The {@value #FIXED_TIME_SEARCH} workload instead returns the number of nodes searched,
+ * which the benchmark reports as its own throughput.
+ * <p>
+ * JMH does not accept benchmarks in the unnamed package, and a named package cannot
+ * refer to the classes of this one, so the benchmarks in {@code jmh/} look these workloads
+ * up by name through {@link #create}, with only JDK types crossing over.
+ */
+public class BenchmarkWorkloads {
+    public static final String FIXED_TIME_SEARCH = "alphaBeta50ms";
+
+    private static final int POSITIONS = 64;
+    private static final int SEARCH_TABLE_SIZE_MB = 1;
+    private static final int FIXED_DEPTH = 3;
+    private static final long FIXED_TIME_MILLIS = 50;
+    private static final long UNLIMITED_MILLIS = 3_600_000L;
+    private static final int NNUE_HIDDEN_SIZE = 64;
+
+    private BenchmarkWorkloads() {
+    }
+
+    /**
+     * @param name the name of the workload
+     * @param seed the seed of the position corpora
+     * @return the workload
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static LongSupplier create(String name, long seed) {
+        GameBoard[] positions = PositionCorpus.generate(seed, POSITIONS, 0, 19);
+        GameBoard[] openings = PositionCorpus.generate(seed + 1, POSITIONS, 4, 10);
+        switch (name) {
+            case "placeMarble":
+                return placement(positions);
+            case "rotateQuadrant":
+                return rotation(positions);
+            case "checkWinner":
+                return cycle(positions, GameBoard::checkWinner);
+            case "generateMoves":
+                return moveGeneration(positions);
+            case "evaluate":
+                Evaluator evaluator = PatternEvaluator.getDefault();
+                return cycle(positions, board -> evaluator.evaluate(board, board.getSideToMove()));
+            case "nnueEvaluate":
+            case "nnueEvaluateFromScratch":
+                return networkEvaluation(positions, NnueEvaluator.random(NNUE_HIDDEN_SIZE, seed),
+                        name.equals("nnueEvaluate"));
+            case "canonicalKey":
+                return cycle(positions, GameBoard::getCanonicalKey);
+            case "makeUnmakeMove":
+                return makeUnmake(positions);
+            case "randomPlayout":
+                return randomPlayouts(positions, seed);
+            case "greedyMove":
+                return greedyMoves(positions, seed);
+            case "alphaBetaDepth3":
+            case "alphaBetaDepth3Unordered":
+                return fixedDepthSearch(openings, FIXED_DEPTH, name.equals("alphaBetaDepth3"));
+            case FIXED_TIME_SEARCH:
+                return fixedTimeSearch(openings, FIXED_TIME_MILLIS);
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + name);
+        }
+    }
+
+    private interface PositionOperation {
+        long apply(GameBoard board);
+    }
+
+    private static LongSupplier cycle(GameBoard[] positions, PositionOperation operation) {
+        int[] next = new int[1];
+        return () -> operation.apply(positions[next[0]++ % positions.length]);
+    }
+
+    /**
+     * Places a marble on every empty cell of every position in turn, taking it back each time.
+     */
+    private static LongSupplier placement(GameBoard[] positions) {
+        GameBoard[] boards = copy(positions);
+        int[] next = new int[2];
+        return () -> {
+            GameBoard board = boards[next[0]];
+            int cell = next[1];
+            while (board.getMarble(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE) != '.') {
+                cell = advance(next, boards.length);
+                board = boards[next[0]];
+            }
+            int row = cell / GameBoard.GRID_SIZE;
+            int col = cell % GameBoard.GRID_SIZE;
+            board.placeMarble(row, col, board.getSideToMove());
+            long hash = board.getHash();
+            board.removeMarble(row, col);
+            advance(next, boards.length);
+            return hash;
+        };
+    }
+
+    /**
+     * Moves to the next cell, and to the next position after the last cell.
+     * @return the new cell
+     */
+    private static int advance(int[] next, int positions) {
+        if (++next[1] == GameBoard.CELL_COUNT) {
+            next[1] = 0;
+            next[0] = (next[0] + 1) % positions;
+        }
+        return next[1];
+    }
+
+    /**
+     * Rotates the quadrants of the positions in turn, each both ways, so the positions
+     * return to their start after every eight rotations.
+     */
+    private static LongSupplier rotation(GameBoard[] positions) {
+        GameBoard[] boards = copy(positions);
+        int[] next = new int[1];
+        return () -> {
+            int step = next[0]++;
+            GameBoard board = boards[(step >>> 3) % boards.length];
+            board.rotateQuadrant((step >>> 1 & 3) + 1, (step & 1) == 0);
+            return board.getHash();
+        };
+    }
+
+    private static LongSupplier moveGeneration(GameBoard[] positions) {
+        int[] moves = new int[Move.MAX_MOVES];
+        int[] next = new int[1];
+        return () -> {
+            int count = positions[next[0]++ % positions.length].generateMoves(moves);
+            return moves[count - 1];
+        };
+    }
+
+    /**
+     * Plays every move of every position in turn and takes it back.
+     */
+    private static LongSupplier makeUnmake(GameBoard[] positions) {
+        return forEachChild(positions, (board, side) -> board.getHash());
+    }
+
+    /**
+     * Evaluates every child of every position in turn with the network, as a search
+     * evaluates sibling leaves, either updating the accumulator or recomputing it.
+     */
+    private static LongSupplier networkEvaluation(GameBoard[] positions, NnueEvaluator network, boolean incremental) {
+        return forEachChild(positions, incremental ? network::evaluate : network::evaluateFromScratch);
+    }
+
+    private interface ChildOperation {
+        long apply(GameBoard child, char mover);
+    }
+
+    private static LongSupplier forEachChild(GameBoard[] positions, ChildOperation operation) {
+        GameBoard[] boards = copy(positions);
+        int[] moves = new int[Move.MAX_MOVES];
+        int[] next = {-1, 0, 0};
+        return () -> {
+            if (next[1] == next[2]) {
+                next[0] = (next[0] + 1) % boards.length;
+                next[1] = 0;
+                next[2] = boards[next[0]].generateMoves(moves);
+            }
+            GameBoard board = boards[next[0]];
+            char side = board.getSideToMove();
+            int move = moves[next[1]++];
+            board.makeMove(move, side);
+            long result = operation.apply(board, side);
+            board.unmakeMove(move);
+            return result;
+        };
+    }
+
+    /**
+     * Plays uniformly random moves by the rules of the game from a corpus position until
+     * the game ends, as the Monte Carlo playouts do, so one operation is one whole playout.
+     */
+    private static LongSupplier randomPlayouts(GameBoard[] positions, long seed) {
+        GameBoard board = new GameBoard();
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] moves = new int[Move.MAX_MOVES];
+        int[] next = new int[1];
+        return () -> {
+            board.copyFrom(positions[next[0]++ % positions.length]);
+            char side = board.getSideToMove();
+            while (!board.isGameOver()) {
+                int count = board.generateMoves(moves);
+                board.playMove(moves[random.nextInt(count)], side);
+                side = (side == 'X') ? 'O' : 'X';
+            }
+            return board.checkWinner();
+        };
+    }
+
+    private static LongSupplier greedyMoves(GameBoard[] positions, long seed) {
+        Player[] players = {new AIGreedyPlayer('X', seed), new AIGreedyPlayer('O', seed)};
+        int[] next = new int[1];
+        return () -> {
+            GameBoard board = new GameBoard(positions[next[0]++ % positions.length]);
+            players[board.getSideToMove() == 'X' ? 0 : 1].makeMove(board);
+            return board.getHash();
+        };
+    }
+
+    /**
+     * Searches each position to a fixed depth from an empty table, so every operation
+     * does the same work regardless of what was searched before.
+     */
+    private static LongSupplier fixedDepthSearch(GameBoard[] positions, int depth, boolean moveOrdering) {
+        TranspositionTable table = new TranspositionTable(SEARCH_TABLE_SIZE_MB);
+        AlphaBetaSearch search = new AlphaBetaSearch(table);
+        search.setMoveOrdering(moveOrdering);
+        int[] next = new int[1];
+        return () -> {
+            GameBoard position = positions[next[0]++ % positions.length];
+            table.clear();
+            return search.findBestMove(position, position.getSideToMove(), UNLIMITED_MILLIS, depth);
+        };
+    }
+
+    /**
+     * Searches each position for a fixed time.
+     * @return a workload returning the number of nodes searched
+     */
+    private static LongSupplier fixedTimeSearch(GameBoard[] positions, long millis) {
+        TranspositionTable table = new TranspositionTable(SEARCH_TABLE_SIZE_MB);
+        AlphaBetaSearch search = new AlphaBetaSearch(table);
+        int[] next = new int[1];
+        return () -> {
+            GameBoard position = positions[next[0]++ % positions.length];
+            search.findBestMove(position, position.getSideToMove(), millis, AlphaBetaSearch.MAX_DEPTH);
+            return search.getNodeCount();
+        };
+    }
+
+    private static GameBoard[] copy(GameBoard[] positions) {
+        GameBoard[] copies = new GameBoard[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            copies[i] = new GameBoard(positions[i]);
+        }
+        return copies;
+    }
+}
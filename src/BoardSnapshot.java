@@ -0,0 +1,77 @@
+/**
+ * An immutable copy of a position, safe to hand from the engine thread to the user
+ * interface. It records the marbles, the side to move and the result if the game is over.
+ */
+public final class BoardSnapshot {
+    private final String cells;
+    private final char sideToMove;
+    private final char result;
+
+    private BoardSnapshot(String cells, char sideToMove, char result) {
+        this.cells = cells;
+        this.sideToMove = sideToMove;
+        this.result = result;
+    }
+
+    /**
+     * Takes a snapshot of a position.
+     * @param board the position, left unchanged
+     * @param sideToMove the marble of the player to move
+     * @return the snapshot
+     */
+    public static BoardSnapshot of(GameBoard board, char sideToMove) {
+        char result = '.';
+        if (board.isGameOver()) {
+            char winner = board.checkWinner();
+            result = winner == '.' ? GameBoard.DRAW : winner;
+        }
+        return new BoardSnapshot(board.toString(), sideToMove, result);
+    }
+
+    /**
+     * @return the marble at the given cell, or '.' if it is empty
+     */
+    public char getMarble(int row, int col) {
+        return cells.charAt(row * GameBoard.GRID_SIZE + col);
+    }
+
+    /**
+     * @return a new board holding the position, which the caller may change freely
+     */
+    public GameBoard toBoard() {
+        return GameBoard.fromString(cells);
+    }
+
+    public int getEmptyCount() {
+        int count = 0;
+        for (int i = 0; i < cells.length(); i++) {
+            if (cells.charAt(i) == '.') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public char getSideToMove() {
+        return sideToMove;
+    }
+
+    public boolean isGameOver() {
+        return result != '.';
+    }
+
+    /**
+     * @return 'X' or 'O' if that player won, GameBoard.DRAW for a draw, or '.' if the game is not over
+     */
+    public char getResult() {
+        return result;
+    }
+
+    /**
+     * @return the position in the 36-character form read by {@link GameBoard#fromString}
+     */
+    @Override
+    public String toString() {
+        return cells;
+    }
+}
@@ -0,0 +1,41 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Loads the data files that players pick up at startup from system properties: the
+ * opening book, the endgame table, the evaluation weights and the network. A property that
+ * is not set means the file is not used; a property that is set names a file that must load.
+ */
+final class ConfiguredFile {
+    /** Reads one kind of data file. */
+    @FunctionalInterface
+    interface Loader<T> {
+        T load(Path path) throws IOException;
+    }
+
+    private ConfiguredFile() {
+    }
+
+    /**
+     * Loads the file named by a system property.
+     * @param property the name of the system property
+     * @param description what the file holds, for the error message
+     * @param loader reads the file
+     * @return the loaded file, or null if the property is not set
+     * @throws UncheckedIOException if the property is set but the file cannot be read
+     */
+    static <T> T load(String property, String description, Loader<T> loader) {
+        String path = System.getProperty(property);
+        if (path == null) {
+            return null;
+        }
+        try {
+            return loader.load(Paths.get(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the " + description + " named by -D" + property
+                    + "=" + path, e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Solves late positions exactly: every line of play is followed to the end of the game.
+ * <p>
+ * A placement that completes five wins before the rotation. After a rotation, five in a
+ * row for the mover only is a win, for the opponent only a loss, and for both a draw; a
+ * full board without five is a draw. Values are from the point of view of the side to
+ * move. Solved positions are stored in an {@link EndgameTable}, which also lets
+ * symmetric and transposed positions be solved once.
+ * <p>
+ * {@link #findBestMove(GameBoard, long)} may be given a deadline. A search that runs out
+ * of time gives up without storing anything it had not finished solving.
+ * <p>
+ * An instance is not thread-safe, but several instances may share one table.
+ */
+public class EndgameSolver {
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+
+    private final EndgameTable table;
+    private final GameBoard board = new GameBoard();
+    private static final int TIME_CHECK_INTERVAL = 256;
+
+    private final int[][] moveBuffers = new int[GameBoard.CELL_COUNT + 1][Move.MAX_MOVES];
+    private long nodes;
+    private long deadline = Long.MAX_VALUE;
+    private boolean aborted;
+    private int timeCheckCountdown;
+
+    /**
+     * @param table where solved positions are stored and looked up
+     */
+    public EndgameSolver(EndgameTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Solves a position.
+     * @param position a position where the game is not over, left unchanged
+     * @return WIN, DRAW or LOSS for the side to move
+     */
+    public int solve(GameBoard position) {
+        board.copyFrom(position);
+        deadline = Long.MAX_VALUE;
+        aborted = false;
+        int value = solve(board.getSideToMove(), 0);
+        // Inner positions won by a placement are not stored, but a solved root always is
+        table.store(Symmetry.key(board.getCanonicalKey()), value);
+        return value;
+    }
+
+    /**
+     * Finds a move with the best value, preferring a winning placement.
+     * @param position a position where the game is not over, left unchanged
+     * @return the best move, or Move.NONE if the board is full
+     */
+    public int findBestMove(GameBoard position) {
+        return findBestMove(position, Long.MAX_VALUE);
+    }
+
+    /**
+     * Finds a move with the best value, preferring a winning placement, unless time runs out.
+     * @param position a position where the game is not over, left unchanged
+     * @param deadlineNanos the System.nanoTime() at which to give up, or Long.MAX_VALUE for none
+     * @return the best move, or Move.NONE if the board is full or the position was not
+     *         solved in time
+     */
+    public int findBestMove(GameBoard position, long deadlineNanos) {
+        board.copyFrom(position);
+        deadline = deadlineNanos;
+        aborted = false;
+        timeCheckCountdown = TIME_CHECK_INTERVAL;
+        char side = board.getSideToMove();
+        int[] moves = moveBuffers[0];
+        int count = board.generateMoves(moves);
+        int winningMove = findWinningPlacement(moves, count, side);
+        if (winningMove != Move.NONE) {
+            return winningMove;
+        }
+        int best = Move.NONE;
+        int bestValue = LOSS - 1;
+        for (int i = 0; i < count && bestValue < WIN; i++) {
+            int value = valueOfMove(moves[i], side, 1);
+            if (aborted) {
+                return Move.NONE;
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of moves played since the solver was created
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    private int solve(char side, int ply) {
+        int[] moves = moveBuffers[ply];
+        int count = board.generateMoves(moves);
+        if (findWinningPlacement(moves, count, side) != Move.NONE) {
+            return WIN;
+        }
+        long key = Symmetry.key(board.getCanonicalKey());
+        int stored = table.probe(key);
+        if (stored != EndgameTable.UNKNOWN) {
+            return stored;
+        }
+
+        int best = LOSS;
+        for (int i = 0; i < count && best < WIN && !isTimeUp(); i++) {
+            best = Math.max(best, valueOfMove(moves[i], side, ply + 1));
+        }
+        if (!aborted) {
+            table.store(key, best);
+        }
+        return best;
+    }
+
+    /**
+     * Plays a move whose placement does not win outright, values the result for the
+     * mover and undoes the move.
+     */
+    private int valueOfMove(int move, char side, int ply) {
+        char opponent = (side == 'X') ? 'O' : 'X';
+        nodes++;
+        board.makeMove(move, side);
+        int value;
+        char winner = board.checkWinner();
+        if (winner == side) {
+            value = WIN;
+        } else if (winner == opponent) {
+            value = LOSS;
+        } else if (winner == GameBoard.DRAW || board.isFull()) {
+            value = DRAW;
+        } else {
+            value = -solve(opponent, ply);
+        }
+        board.unmakeMove(move);
+        return value;
+    }
+
+    private boolean isTimeUp() {
+        if (deadline != Long.MAX_VALUE && --timeCheckCountdown <= 0) {
+            timeCheckCountdown = TIME_CHECK_INTERVAL;
+            if (System.nanoTime() >= deadline) {
+                aborted = true;
+            }
+        }
+        return aborted;
+    }
+
+    private int findWinningPlacement(int[] moves, int count, char side) {
+        for (int i = 0; i < count; i += Move.ROTATIONS) {
+            if (board.checkWinningMove(Move.row(moves[i]), Move.col(moves[i]), side)) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+}
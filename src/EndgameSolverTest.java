@@ -0,0 +1,121 @@
+import static org.junit.Assert.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+/**
+ * Checks the solver, with its table and symmetry sharing, against a plain minimax
+ * that copies the board for every move.
+ */
+public class EndgameSolverTest {
+    private static final int EMPTIES = 4;
+
+    @Test
+    public void testValuesMatchPlainMinimax() {
+        EndgameSolver solver = new EndgameSolver(new EndgameTable(4, EMPTIES));
+        for (GameBoard board : PositionCorpus.generate(21L, 40, GameBoard.CELL_COUNT - EMPTIES,
+                GameBoard.CELL_COUNT - EMPTIES)) {
+            if (!board.isGameOver()) {
+                assertEquals(board.toString(), minimax(board), solver.solve(board));
+            }
+        }
+    }
+
+    @Test
+    public void testBestMoveKeepsTheValue() {
+        EndgameSolver solver = new EndgameSolver(new EndgameTable(4, EMPTIES));
+        for (GameBoard board : PositionCorpus.generate(22L, 20, GameBoard.CELL_COUNT - EMPTIES,
+                GameBoard.CELL_COUNT - EMPTIES)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            int value = minimax(board);
+            int move = solver.findBestMove(board);
+            char side = board.getSideToMove();
+            GameBoard played = new GameBoard(board);
+            played.makeMove(move, side);
+            if (board.checkWinningMove(Move.row(move), Move.col(move), side)) {
+                assertEquals(EndgameSolver.WIN, value);
+            } else {
+                assertEquals(value, valueAfterMove(played, side));
+            }
+        }
+    }
+
+    @Test
+    public void testSearchOutOfTimeStoresNothingWrong() {
+        int empties = EMPTIES + 1;
+        EndgameSolver solver = new EndgameSolver(new EndgameTable(4, empties));
+        int abandoned = 0;
+        for (GameBoard board : PositionCorpus.generate(24L, 100, GameBoard.CELL_COUNT - empties,
+                GameBoard.CELL_COUNT - empties)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            // Past its deadline, the search gives up at its first time check
+            if (solver.findBestMove(board, System.nanoTime()) == Move.NONE) {
+                abandoned++;
+            }
+            int expected = new EndgameSolver(new EndgameTable(4, empties)).solve(board);
+            assertEquals(board.toString(), expected, solver.solve(board));
+        }
+        assertTrue(abandoned > 0);
+    }
+
+    @Test
+    public void testTableSurvivesSaveAndLoad() throws Exception {
+        EndgameTable table = new EndgameTable(1, EMPTIES);
+        EndgameSolver solver = new EndgameSolver(table);
+        GameBoard[] roots = PositionCorpus.generate(23L, 10, GameBoard.CELL_COUNT - EMPTIES,
+                GameBoard.CELL_COUNT - EMPTIES);
+        for (GameBoard root : roots) {
+            if (!root.isGameOver()) {
+                solver.solve(root);
+            }
+        }
+        Path file = Files.createTempFile("endgame", ".bin");
+        try {
+            table.save(file);
+            EndgameTable loaded = EndgameTable.load(file, 0);
+            assertEquals(table.size(), loaded.size());
+            assertEquals(EMPTIES, loaded.getMaxEmpties());
+            for (GameBoard root : roots) {
+                assertEquals(table.probe(root), loaded.probe(root));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static int minimax(GameBoard board) {
+        char side = board.getSideToMove();
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count; i += Move.ROTATIONS) {
+            if (board.checkWinningMove(Move.row(moves[i]), Move.col(moves[i]), side)) {
+                return EndgameSolver.WIN;
+            }
+        }
+        int best = EndgameSolver.LOSS;
+        for (int i = 0; i < count; i++) {
+            GameBoard child = new GameBoard(board);
+            child.makeMove(moves[i], side);
+            best = Math.max(best, valueAfterMove(child, side));
+        }
+        return best;
+    }
+
+    private static int valueAfterMove(GameBoard child, char mover) {
+        char winner = child.checkWinner();
+        if (winner == mover) {
+            return EndgameSolver.WIN;
+        }
+        if (winner == GameBoard.DRAW || (winner == '.' && child.isFull())) {
+            return EndgameSolver.DRAW;
+        }
+        if (winner != '.') {
+            return EndgameSolver.LOSS;
+        }
+        return -minimax(child);
+    }
+}
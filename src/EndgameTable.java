@@ -0,0 +1,211 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exact game values of solved late positions, shared by solver threads and searches.
+ * <p>
+ * Every slot is one long: the canonical base-3 key of the position (see
+ * {@link GameBoard#getCanonicalKey()}) in the low 58 bits and its 2-bit value, from the
+ * point of view of the side to move, above it. Symmetric positions share one slot.
+ * Slots are claimed with compare-and-set, so several threads may fill the table at once.
+ * When the probe sequence of a position is full, its value is simply not stored.
+ * <p>
+ * On disk a table is a header (magic {@code "PET1"}, format version, the largest number
+ * of empty cells covered and the entry count) followed by the occupied slots. Files are
+ * replaced atomically so an interrupted save leaves the previous file intact.
+ */
+public class EndgameTable {
+    public static final String TABLE_PROPERTY = "pentago.endgame";
+
+    /** Returned by {@link #probe} for positions that are not in the table. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x50455431; // "PET1"
+    private static final int VERSION = 1;
+    private static final int VALUE_SHIFT = Symmetry.KEY_BITS;
+    private static final long KEY_MASK = (1L << VALUE_SHIFT) - 1;
+    private static final int MAX_PROBES = 16;
+
+    private static EndgameTable defaultTable;
+    private static boolean defaultTableLoaded;
+
+    private final AtomicLongArray slots;
+    private final int indexMask;
+    private final int maxEmpties;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param sizeMegabytes the memory budget in megabytes
+     * @param maxEmpties the largest number of empty cells of the positions stored
+     */
+    public EndgameTable(int sizeMegabytes, int maxEmpties) {
+        if (sizeMegabytes <= 0) {
+            throw new IllegalArgumentException("Table size must be positive: " + sizeMegabytes);
+        }
+        long capacity = Long.highestOneBit((long) sizeMegabytes * 1024 * 1024 / Long.BYTES);
+        capacity = Math.min(capacity, 1L << 30);
+        slots = new AtomicLongArray((int) capacity);
+        indexMask = (int) capacity - 1;
+        this.maxEmpties = maxEmpties;
+    }
+
+    /**
+     * Returns the table named by the {@code pentago.endgame} system property, loading it on
+     * first use.
+     * @return the table, or null if the property is not set
+     * @throws java.io.UncheckedIOException if the property is set but the file cannot be read
+     */
+    public static synchronized EndgameTable getDefault() {
+        if (!defaultTableLoaded) {
+            defaultTable = ConfiguredFile.load(TABLE_PROPERTY, "endgame table", path -> load(path, 0));
+            defaultTableLoaded = true;
+        }
+        return defaultTable;
+    }
+
+    /**
+     * Looks up the value of a position.
+     * @param board the position
+     * @return EndgameSolver.WIN, DRAW or LOSS for the side to move, or UNKNOWN
+     */
+    public int probe(GameBoard board) {
+        return probe(Symmetry.key(board.getCanonicalKey()));
+    }
+
+    /**
+     * Looks up the value of a position by its canonical key.
+     * @param key the canonical base-3 key
+     * @return EndgameSolver.WIN, DRAW or LOSS for the side to move, or UNKNOWN
+     */
+    public int probe(long key) {
+        int index = indexOf(key);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            long slot = slots.get(index);
+            if (slot == 0) {
+                return UNKNOWN;
+            }
+            if ((slot & KEY_MASK) == key) {
+                return (int) (slot >>> VALUE_SHIFT) - 2;
+            }
+            index = (index + 1) & indexMask;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Stores the value of a position.
+     * @param key the canonical base-3 key
+     * @param value EndgameSolver.WIN, DRAW or LOSS for the side to move
+     * @return true if the value is now in the table
+     */
+    public boolean store(long key, int value) {
+        long slotValue = key | ((long) (value + 2) << VALUE_SHIFT);
+        int index = indexOf(key);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            long slot = slots.get(index);
+            if (slot == 0) {
+                if (slots.compareAndSet(index, 0, slotValue)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                slot = slots.get(index);
+            }
+            if ((slot & KEY_MASK) == key) {
+                return true;
+            }
+            index = (index + 1) & indexMask;
+        }
+        return false;
+    }
+
+    /**
+     * @return the largest number of empty cells of the positions in the table
+     */
+    public int getMaxEmpties() {
+        return maxEmpties;
+    }
+
+    /**
+     * @return the number of positions stored
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Writes the table to a file, replacing any earlier version atomically.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        long[] occupied = new long[size.get()];
+        int count = 0;
+        for (int i = 0; i < slots.length() && count < occupied.length; i++) {
+            long slot = slots.get(i);
+            if (slot != 0) {
+                occupied[count++] = slot;
+            }
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(maxEmpties);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(occupied[i]);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a table file.
+     * @param path the file to read
+     * @param sizeMegabytes the memory budget of the table, or 0 to size it for the entries in the file
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a valid table
+     */
+    public static EndgameTable load(Path path, int sizeMegabytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an endgame table: " + path);
+            }
+            int maxEmpties = in.readInt();
+            int count = in.readInt();
+            if (sizeMegabytes <= 0) {
+                // Keep the table at most half full
+                sizeMegabytes = 1;
+                while ((long) sizeMegabytes << 20 < 2L * count * Long.BYTES) {
+                    sizeMegabytes <<= 1;
+                }
+            }
+            EndgameTable table = new EndgameTable(sizeMegabytes, maxEmpties);
+            for (int i = 0; i < count; i++) {
+                long slot = in.readLong();
+                table.store(slot & KEY_MASK, (int) (slot >>> VALUE_SHIFT) - 2);
+            }
+            return table;
+        }
+    }
+
+    private int indexOf(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & indexMask;
+    }
+}
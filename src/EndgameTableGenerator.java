@@ -0,0 +1,117 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills an {@link EndgameTable} by solving seeded late positions and everything below
+ * them, in parallel, saving the table periodically.
+ * <p>
+ * Generation is resumable: if the output file exists it is loaded first and the roots it
+ * already holds are skipped, so an interrupted run continues where its last save ended.
+ * <p>
+ * Usage:
+ * <pre>
+ * java EndgameTableGenerator [--empties K] [--positions N] [--seed S] [--threads T]
+ *                            [--table MB] [--save-seconds S] [--out endgame.bin]
+ * </pre>
+ */
+public class EndgameTableGenerator {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int empties = 5;
+        int positions = 1000;
+        long seed = 1L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int tableMegabytes = 256;
+        long saveSeconds = 60;
+        String out = "endgame.bin";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--empties":
+                    empties = Integer.parseInt(args[++i]);
+                    break;
+                case "--positions":
+                    positions = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--table":
+                    tableMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--save-seconds":
+                    saveSeconds = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Path path = Paths.get(out);
+        EndgameTable table;
+        if (Files.exists(path)) {
+            table = EndgameTable.load(path, tableMegabytes);
+            if (table.getMaxEmpties() != empties) {
+                throw new IllegalArgumentException("Table covers " + table.getMaxEmpties()
+                        + " empty cells, not " + empties);
+            }
+            System.out.println("Resuming with " + table.size() + " positions from " + out);
+        } else {
+            table = new EndgameTable(tableMegabytes, empties);
+        }
+
+        long start = System.nanoTime();
+        int solved = generate(table, empties, positions, seed, threads, path, saveSeconds);
+        table.save(path);
+        System.out.printf("Solved %d roots in %.1f s; %d positions -> %s%n",
+                solved, (System.nanoTime() - start) / 1e9, table.size(), out);
+    }
+
+    /**
+     * Solves the seeded roots that are not in the table yet.
+     * @param table the table to fill
+     * @param empties the number of empty cells of every root
+     * @param positions the number of roots
+     * @param seed the seed of the roots
+     * @param threads the number of solver threads
+     * @param path where to save the table periodically, or null to never save
+     * @param saveSeconds the time between saves
+     * @return the number of roots solved by this call
+     */
+    public static int generate(EndgameTable table, int empties, int positions, long seed, int threads,
+                               Path path, long saveSeconds) throws IOException, InterruptedException {
+        GameBoard[] roots = PositionCorpus.generate(seed, positions, GameBoard.CELL_COUNT - empties,
+                GameBoard.CELL_COUNT - empties);
+        ThreadLocal<EndgameSolver> solvers = ThreadLocal.withInitial(() -> new EndgameSolver(table));
+        AtomicInteger solved = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (GameBoard root : roots) {
+            if (root.isGameOver() || table.probe(root) != EndgameTable.UNKNOWN) {
+                continue;
+            }
+            pool.execute(() -> {
+                solvers.get().solve(root);
+                solved.incrementAndGet();
+            });
+        }
+        pool.shutdown();
+        long saveNanos = TimeUnit.SECONDS.toNanos(saveSeconds);
+        while (!pool.awaitTermination(saveNanos, TimeUnit.NANOSECONDS)) {
+            if (path != null) {
+                table.save(path);
+                System.out.println("Saved " + table.size() + " positions after " + solved.get() + " roots");
+            }
+        }
+        return solved.get();
+    }
+}
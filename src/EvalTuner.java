@@ -0,0 +1,323 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Tunes the weights of the {@link PatternEvaluator} to the results of recorded games.
+ * <p>
+ * Every position before a move is labelled with the result of its game: 1 if X won, 0 if
+ * O won and 0.5 for a draw; unfinished games are skipped. The features of a position, from
+ * X's point of view, are packed as signed 12-bit fields into one long, so a corpus is a
+ * long and a byte per position and tens of millions of positions fit in a few hundred
+ * megabytes.
+ * <p>
+ * The tuner minimizes the mean squared error between the labels and the predicted
+ * probability {@code 1 / (1 + exp(-score / SCORE_SCALE))} of an X win. Each epoch is one
+ * full-batch gradient step, computed in parallel over shards of the corpus in a fork-join
+ * pool and summed, and applied with Adam so that rare and common features learn at the
+ * same pace. The tuned weights are rounded and written as a weight file for
+ * {@link PatternEvaluator#load}.
+ * <p>
+ * Usage:
+ * <pre>
+ * java EvalTuner corpus... [--epochs N] [--rate R] [--threads N] [--out weights.txt]
+ * </pre>
+ * A corpus file is a game record archive ({@code .pgr}) or a positions file written by
+ * {@link GameReplay} with {@code --positions}. Tuning starts from the shared evaluator's
+ * weights. Run the players with {@code -Dpentago.weights=weights.txt} to use the result.
+ */
+public class EvalTuner {
+    /** The score, in evaluation points, that predicts an X win with probability 1/(1+e^-1). */
+    public static final double SCORE_SCALE = 100.0;
+    public static final int DEFAULT_EPOCHS = 200;
+    public static final double DEFAULT_LEARNING_RATE = 1.0;
+
+    private static final int FEATURE_BITS = 12;
+    private static final long FEATURE_MASK = (1L << FEATURE_BITS) - 1;
+    private static final int SHARD_SIZE = 1 << 16;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private long[] features = new long[1024];
+    /** The result of the game of every position: 0 for an O win, 1 for a draw, 2 for an X win. */
+    private byte[] results = new byte[1024];
+    private int size;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> corpora = new ArrayList<>();
+        int epochs = DEFAULT_EPOCHS;
+        double rate = DEFAULT_LEARNING_RATE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String out = "weights.txt";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--epochs":
+                    epochs = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    corpora.add(args[i]);
+                    break;
+            }
+        }
+        if (corpora.isEmpty()) {
+            throw new IllegalArgumentException("Usage: java EvalTuner corpus... [--epochs N] [--rate R] "
+                    + "[--threads N] [--out weights.txt]");
+        }
+
+        EvalTuner tuner = new EvalTuner();
+        long start = System.nanoTime();
+        for (String corpus : corpora) {
+            if (corpus.endsWith(".pgr")) {
+                tuner.addArchive(Paths.get(corpus));
+            } else {
+                tuner.addPositions(Paths.get(corpus));
+            }
+        }
+        System.out.printf("%d positions loaded in %.1f s%n", tuner.size(), (System.nanoTime() - start) / 1e9);
+
+        int[] initial = PatternEvaluator.getDefault().getWeights();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            start = System.nanoTime();
+            double[] weights = tuner.tune(toDoubles(initial), epochs, rate, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            int[] tuned = round(weights);
+            System.out.printf("%d epochs in %.1f s (%.0f positions/s)%n", epochs, seconds,
+                    (double) tuner.size() * epochs / seconds);
+            System.out.printf("error %.6f -> %.6f, weights %s -> %s%n", tuner.error(toDoubles(initial), pool),
+                    tuner.error(toDoubles(tuned), pool), Arrays.toString(initial), Arrays.toString(tuned));
+            new PatternEvaluator(tuned).save(Paths.get(out),
+                    String.format("Tuned on %d positions, error %.6f", tuner.size(), tuner.error(toDoubles(tuned), pool)));
+            System.out.println("Weights written to " + out);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds the positions of every finished game of a game record archive.
+     * @param path the archive
+     * @throws IOException if the archive cannot be read
+     */
+    public void addArchive(Path path) throws IOException {
+        try (GameRecordReader reader = GameRecordReader.open(path)) {
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                addGame(record);
+            }
+        }
+    }
+
+    /**
+     * Adds the positions of a file of {@code cells side-to-move result} lines, as written by
+     * {@link GameReplay}. Lines of unfinished games are skipped.
+     * @param path the positions file
+     * @throws IOException if the file cannot be read or a line is not a valid position
+     */
+    public void addPositions(Path path) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            int[] values = new int[PatternEvaluator.FEATURE_COUNT];
+            String line;
+            long lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String[] parts = line.strip().split(" ");
+                if (parts.length != 3 || parts[2].length() != 1) {
+                    throw new IOException("Invalid position at line " + lineNumber + " of " + path);
+                }
+                GameBoard board;
+                try {
+                    board = GameBoard.fromString(parts[0]);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid position at line " + lineNumber + " of " + path, e);
+                }
+                int result = resultIndex(parts[2].charAt(0));
+                if (result >= 0) {
+                    PatternEvaluator.extractFeatures(board, 'X', values);
+                    addPosition(values, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the positions before every move of a game, if it was finished.
+     * @param record the game
+     */
+    public void addGame(GameRecord record) {
+        int result = resultIndex(record.getResult());
+        if (result < 0) {
+            return;
+        }
+        int[] values = new int[PatternEvaluator.FEATURE_COUNT];
+        GameBoard[] positions = record.replay();
+        for (int ply = 0; ply < record.getMoveCount(); ply++) {
+            PatternEvaluator.extractFeatures(positions[ply], 'X', values);
+            addPosition(values, result);
+        }
+    }
+
+    /**
+     * @return the number of positions in the corpus
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Minimizes the prediction error.
+     * @param initial the starting weights, indexed by the feature constants of PatternEvaluator
+     * @param epochs the number of gradient steps
+     * @param rate the learning rate, in evaluation points per step
+     * @param pool the pool that computes the gradients
+     * @return the tuned weights
+     * @throws IllegalStateException if the corpus is empty
+     */
+    public double[] tune(double[] initial, int epochs, double rate, ForkJoinPool pool) throws InterruptedException {
+        if (size == 0) {
+            throw new IllegalStateException("The corpus is empty");
+        }
+        double[] weights = initial.clone();
+        double[] firstMoments = new double[weights.length];
+        double[] secondMoments = new double[weights.length];
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double[] gradient = sum(weights, pool);
+            double correction1 = 1 - Math.pow(BETA1, epoch);
+            double correction2 = 1 - Math.pow(BETA2, epoch);
+            for (int i = 0; i < weights.length; i++) {
+                double g = gradient[i] / size;
+                firstMoments[i] = BETA1 * firstMoments[i] + (1 - BETA1) * g;
+                secondMoments[i] = BETA2 * secondMoments[i] + (1 - BETA2) * g * g;
+                weights[i] -= rate * (firstMoments[i] / correction1)
+                        / (Math.sqrt(secondMoments[i] / correction2) + EPSILON);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * @param weights the weights to measure
+     * @param pool the pool that computes the error
+     * @return the mean squared error of the predictions over the corpus
+     */
+    public double error(double[] weights, ForkJoinPool pool) throws InterruptedException {
+        return size == 0 ? 0.0 : sum(weights, pool)[PatternEvaluator.FEATURE_COUNT] / size;
+    }
+
+    /**
+     * Sums the gradient of the squared error and the squared error itself over all shards.
+     * @return the gradient for every weight, followed by the error
+     */
+    private double[] sum(double[] weights, ForkJoinPool pool) throws InterruptedException {
+        int shards = (size + SHARD_SIZE - 1) / SHARD_SIZE;
+        try {
+            return pool.submit(() -> IntStream.range(0, shards).parallel()
+                    .mapToObj(shard -> shardSum(weights, shard * SHARD_SIZE, Math.min(size, (shard + 1) * SHARD_SIZE)))
+                    .reduce(new double[PatternEvaluator.FEATURE_COUNT + 1], EvalTuner::plus)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Gradient computation failed", e.getCause());
+        }
+    }
+
+    private double[] shardSum(double[] weights, int from, int to) {
+        double[] sums = new double[PatternEvaluator.FEATURE_COUNT + 1];
+        int[] values = new int[PatternEvaluator.FEATURE_COUNT];
+        for (int i = from; i < to; i++) {
+            unpack(features[i], values);
+            double score = 0;
+            for (int f = 0; f < values.length; f++) {
+                score += weights[f] * values[f];
+            }
+            double predicted = 1 / (1 + Math.exp(-score / SCORE_SCALE));
+            double difference = predicted - results[i] * 0.5;
+            // d(difference^2)/dw = 2 * difference * p * (1 - p) / SCORE_SCALE * feature
+            double slope = 2 * difference * predicted * (1 - predicted) / SCORE_SCALE;
+            for (int f = 0; f < values.length; f++) {
+                sums[f] += slope * values[f];
+            }
+            sums[PatternEvaluator.FEATURE_COUNT] += difference * difference;
+        }
+        return sums;
+    }
+
+    private void addPosition(int[] values, int result) {
+        if (size == features.length) {
+            features = Arrays.copyOf(features, size * 2);
+            results = Arrays.copyOf(results, size * 2);
+        }
+        features[size] = pack(values);
+        results[size] = (byte) result;
+        size++;
+    }
+
+    /**
+     * Packs features as signed 12-bit fields, the first feature in the lowest bits.
+     */
+    static long pack(int[] values) {
+        long packed = 0;
+        for (int f = values.length - 1; f >= 0; f--) {
+            packed = packed << FEATURE_BITS | (values[f] & FEATURE_MASK);
+        }
+        return packed;
+    }
+
+    static void unpack(long packed, int[] values) {
+        for (int f = 0; f < values.length; f++) {
+            values[f] = (int) (packed << (64 - FEATURE_BITS * (f + 1)) >> (64 - FEATURE_BITS));
+        }
+    }
+
+    private static double[] plus(double[] a, double[] b) {
+        double[] sum = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return 2 for an X win, 0 for an O win, 1 for a draw, or -1 for an unfinished game
+     */
+    private static int resultIndex(char result) {
+        switch (result) {
+            case 'X':
+                return 2;
+            case 'O':
+                return 0;
+            case GameBoard.DRAW:
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    private static double[] toDoubles(int[] weights) {
+        return Arrays.stream(weights).asDoubleStream().toArray();
+    }
+
+    private static int[] round(double[] weights) {
+        return Arrays.stream(weights).mapToInt(weight -> (int) Math.round(weight)).toArray();
+    }
+}
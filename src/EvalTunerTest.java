@@ -0,0 +1,42 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class EvalTunerTest {
+    @Test
+    public void testPackedFeaturesRoundTrip() {
+        int[] values = {-32, 31, 0, -1, 7};
+        int[] unpacked = new int[values.length];
+        EvalTuner.unpack(EvalTuner.pack(values), unpacked);
+        assertArrayEquals(values, unpacked);
+    }
+
+    @Test
+    public void testTuningReducesErrorAndWeightsLoad() throws IOException, InterruptedException {
+        EvalTuner tuner = new EvalTuner();
+        for (int game = 0; game < 60; game++) {
+            tuner.addGame(new HeadlessGame(new AIGreedyPlayer('X', game), new AIGreedyPlayer('O', ~game)).play().getRecord());
+        }
+        assertTrue(tuner.size() > 60);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Path file = Files.createTempFile("pentago", ".weights");
+        try {
+            double[] zeros = new double[PatternEvaluator.FEATURE_COUNT];
+            double[] tuned = tuner.tune(zeros, 100, EvalTuner.DEFAULT_LEARNING_RATE, pool);
+            assertTrue(tuner.error(tuned, pool) < tuner.error(zeros, pool));
+
+            int[] weights = new int[tuned.length];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = (int) Math.round(tuned[i]);
+            }
+            new PatternEvaluator(weights).save(file, "test");
+            assertArrayEquals(weights, PatternEvaluator.load(file).getWeights());
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * A static evaluation of a Pentago position, used by the search players to score the
+ * positions where they stop searching.
+ * <p>
+ * Implementations must be thread-safe: parallel search workers share one instance.
+ */
+public interface Evaluator {
+    /** The largest magnitude of a score, far below the win scores of the searches. */
+    int MAX_SCORE = 100_000;
+
+    /**
+     * Scores a position for one player.
+     * @param board the position; it is left unchanged
+     * @param marble the marble of the player to score for
+     * @return a score between -MAX_SCORE and MAX_SCORE, positive if the position favours the player
+     */
+    int evaluate(GameBoard board, char marble);
+
+    /**
+     * @return the network named by the {@code pentago.nnue} system property if it is set,
+     *         otherwise the default {@link PatternEvaluator}
+     */
+    static Evaluator getDefault() {
+        NnueEvaluator network = NnueEvaluator.getDefault();
+        return network != null ? network : PatternEvaluator.getDefault();
+    }
+}
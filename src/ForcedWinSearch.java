@@ -0,0 +1,285 @@
+import java.util.Arrays;
+
+/**
+ * Proves forced wins by threat-space search: the attacker only plays moves after which
+ * it threatens to win on its next move, and every reply of the defender is checked.
+ * <p>
+ * In Pentago most tactical wins are double threats made by a placement plus a rotation,
+ * which no single reply can stop. Restricting the attacker to threats keeps the tree
+ * narrow, so such wins are found in a small fraction of a full search's budget. A win
+ * also counts if the defender's only replies give the attacker five by their rotation.
+ * Replies that win or draw for the defender refute the attack.
+ * <p>
+ * The depth is the number of attacker moves, including the winning one, and is deepened
+ * one at a time so the shortest proven win is returned. Positions disproved at a depth
+ * are remembered between searches in a fixed-size cache: one long per slot holding the
+ * position key with the depth in its low bits, so the key check is part of the entry. A
+ * new disproof replaces whatever its slot held. An instance is not thread-safe.
+ */
+public class ForcedWinSearch {
+    /** The default number of attacker moves in a proven line. */
+    public static final int DEFAULT_MAX_ATTACKS = 3;
+    public static final int DEFAULT_CACHE_SIZE_MB = 1;
+
+    private static final int MAX_ATTACKS = 6;
+    private static final int TIME_CHECK_INTERVAL = 256;
+    private static final int DEPTH_BITS = 3;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+    private static final long O_ATTACKS_KEY = 0x9E3779B97F4A7C15L;
+    private static final long ALL_CELLS = (1L << GameBoard.CELL_COUNT) - 1;
+
+    private final int[][] moveBuffers = new int[2 * MAX_ATTACKS][Move.MAX_MOVES];
+    private final int[][] lines = new int[2 * MAX_ATTACKS + 1][2 * MAX_ATTACKS];
+    private final int[] lineLengths = new int[2 * MAX_ATTACKS + 1];
+    /** For positions with the attacker to move, the largest depth at which each has no forced win. */
+    private final long[] disproofs;
+    private final int indexMask;
+    private volatile boolean stopRequested;
+    private GameBoard board;
+    private long deadline;
+    private boolean aborted;
+    private int timeCheckCountdown;
+    private long nodes;
+    private int[] winningLine = new int[0];
+
+    public ForcedWinSearch() {
+        this(DEFAULT_CACHE_SIZE_MB);
+    }
+
+    /**
+     * @param cacheSizeMegabytes the memory budget of the disproof cache in megabytes
+     */
+    public ForcedWinSearch(int cacheSizeMegabytes) {
+        if (cacheSizeMegabytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSizeMegabytes);
+        }
+        long slots = Long.highestOneBit((long) cacheSizeMegabytes * 1024 * 1024 / Long.BYTES);
+        slots = Math.min(slots, 1L << 30);
+        disproofs = new long[(int) slots];
+        indexMask = (int) slots - 1;
+    }
+
+    /**
+     * Looks for a forced win of the given player within the time limit.
+     * @param position the position, with the player to move; it is copied and left unchanged
+     * @param marble the marble of the attacking player
+     * @param timeLimitMillis the time limit in milliseconds
+     * @param maxAttacks the largest number of attacker moves in the winning line, at most 6
+     * @return the first move of the shortest forced win found, or Move.NONE if none was proven
+     */
+    public int findForcedWin(GameBoard position, char marble, long timeLimitMillis, int maxAttacks) {
+        if (maxAttacks < 1 || maxAttacks > MAX_ATTACKS) {
+            throw new IllegalArgumentException("Attack depth must be between 1 and " + MAX_ATTACKS + ": " + maxAttacks);
+        }
+        board = new GameBoard(position);
+        deadline = System.nanoTime() + timeLimitMillis * 1_000_000L;
+        aborted = false;
+        timeCheckCountdown = TIME_CHECK_INTERVAL;
+        nodes = 0;
+        winningLine = new int[0];
+        if (board.isGameOver()) {
+            return Move.NONE;
+        }
+        for (int attacks = 1; attacks <= maxAttacks && !aborted; attacks++) {
+            if (proveAttack(marble, attacks, 0)) {
+                winningLine = Arrays.copyOf(lines[0], lineLengths[0]);
+                return winningLine[0];
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * @return the line of the last proven win, alternating attacker and defender moves and
+     *         following the defender's longest resistance; empty if no win was proven
+     */
+    public int[] getWinningLine() {
+        return winningLine.clone();
+    }
+
+    /**
+     * @return the number of positions visited by the last search
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. The request stands until
+     * {@link #resetStop()}, so a search started afterwards stops at once. May be called
+     * from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clears an earlier stop request.
+     */
+    public void resetStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Finds a move that wins on the spot for the given player, by its placement alone or
+     * by the rotation after it, without also completing five for the opponent.
+     * @return the winning move, or Move.NONE
+     */
+    static int findImmediateWin(GameBoard board, char marble) {
+        long empty = ~(board.getMarbleBits('X') | board.getMarbleBits('O')) & ALL_CELLS;
+        for (; empty != 0; empty &= empty - 1) {
+            int cell = Long.numberOfTrailingZeros(empty);
+            int row = cell / GameBoard.GRID_SIZE;
+            int col = cell % GameBoard.GRID_SIZE;
+            if (board.checkWinningMove(row, col, marble)) {
+                return Move.of(cell, 0);
+            }
+            board.placeMarble(row, col, marble);
+            int win = Move.NONE;
+            if (board.countRotationFives(marble) > 0) {
+                for (int rotation = 0; rotation < Move.ROTATIONS && win == Move.NONE; rotation++) {
+                    int move = Move.of(cell, rotation);
+                    board.rotateQuadrant(Move.quadrant(move), Move.isClockwise(move));
+                    if (board.checkWinner() == marble) {
+                        win = move;
+                    }
+                    board.rotateQuadrant(Move.quadrant(move), !Move.isClockwise(move));
+                }
+            }
+            board.removeMarble(row, col);
+            if (win != Move.NONE) {
+                return win;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Tries to prove a win for the attacker, who is to move, within the given number of moves.
+     * On success the line from here is left in lines[ply].
+     */
+    private boolean proveAttack(char attacker, int attacks, int ply) {
+        nodes++;
+        int win = findImmediateWin(board, attacker);
+        if (win != Move.NONE) {
+            lines[ply][0] = win;
+            lineLengths[ply] = 1;
+            return true;
+        }
+        if (attacks == 1 || isTimeUp()) {
+            return false;
+        }
+        long key = board.getHash() ^ (attacker == 'O' ? O_ATTACKS_KEY : 0L);
+        int index = (int) key & indexMask;
+        long cached = disproofs[index];
+        if ((cached & ~DEPTH_MASK) == (key & ~DEPTH_MASK) && (cached & DEPTH_MASK) >= attacks) {
+            return false;
+        }
+        char defender = opponentOf(attacker);
+        int[] moves = moveBuffers[ply];
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count && !aborted; i++) {
+            int move = moves[i];
+            board.makeMove(move, attacker);
+            // No placement wins here, so the rotation is part of the move
+            boolean threat = !board.hasFiveInARow(defender) && !board.isFull()
+                    && findImmediateWin(board, attacker) != Move.NONE;
+            boolean proven = threat && proveDefence(attacker, defender, attacks - 1, ply + 1);
+            board.unmakeMove(move);
+            if (proven) {
+                lines[ply][0] = move;
+                System.arraycopy(lines[ply + 1], 0, lines[ply], 1, lineLengths[ply + 1]);
+                lineLengths[ply] = lineLengths[ply + 1] + 1;
+                return true;
+            }
+        }
+        if (!aborted) {
+            // The depth is at least 2 here, so a stored entry is never 0
+            disproofs[index] = (key & ~DEPTH_MASK) | attacks;
+        }
+        return false;
+    }
+
+    /**
+     * Checks that every reply of the defender, who is to move, leaves the attacker a win
+     * within the given number of moves. On success lines[ply] holds the reply that lasts
+     * longest and the attacker's line after it.
+     */
+    private boolean proveDefence(char attacker, char defender, int attacks, int ply) {
+        nodes++;
+        int[] moves = moveBuffers[ply];
+        int count = board.generateMoves(moves);
+        orderBlocksFirst(moves, count, attacker);
+        lineLengths[ply] = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (board.checkWinningMove(Move.row(move), Move.col(move), defender)) {
+                return false;
+            }
+            board.makeMove(move, defender);
+            boolean refuted;
+            int length;
+            if (board.hasFiveInARow(defender) || (board.isFull() && !board.hasFiveInARow(attacker))) {
+                refuted = true;
+                length = 0;
+            } else if (board.hasFiveInARow(attacker)) {
+                refuted = false;
+                length = 0;
+            } else {
+                refuted = !proveAttack(attacker, attacks, ply + 1);
+                length = lineLengths[ply + 1];
+            }
+            board.unmakeMove(move);
+            if (refuted || aborted) {
+                return false;
+            }
+            if (length + 1 > lineLengths[ply]) {
+                lines[ply][0] = move;
+                System.arraycopy(lines[ply + 1], 0, lines[ply], 1, length);
+                lineLengths[ply] = length + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the replies that place a marble on a cell the attacker could win with to the
+     * front, since those are the likeliest refutations. Keeps the rotations of a cell together.
+     */
+    private void orderBlocksFirst(int[] moves, int count, char attacker) {
+        long threatCells = 0L;
+        long empty = ~(board.getMarbleBits('X') | board.getMarbleBits('O')) & ALL_CELLS;
+        for (; empty != 0; empty &= empty - 1) {
+            int cell = Long.numberOfTrailingZeros(empty);
+            int row = cell / GameBoard.GRID_SIZE;
+            int col = cell % GameBoard.GRID_SIZE;
+            board.placeMarble(row, col, attacker);
+            if (board.hasFiveInARow(attacker) || board.countRotationFives(attacker) > 0) {
+                threatCells |= 1L << cell;
+            }
+            board.removeMarble(row, col);
+        }
+        int front = 0;
+        for (int i = 0; i < count; i++) {
+            if ((threatCells & (1L << Move.cell(moves[i]))) != 0) {
+                int move = moves[i];
+                System.arraycopy(moves, front, moves, front + 1, i - front);
+                moves[front++] = move;
+            }
+        }
+    }
+
+    private boolean isTimeUp() {
+        if (--timeCheckCountdown <= 0) {
+            timeCheckCountdown = TIME_CHECK_INTERVAL;
+            if (stopRequested || System.nanoTime() >= deadline) {
+                aborted = true;
+            }
+        }
+        return aborted;
+    }
+
+    private static char opponentOf(char marble) {
+        return (marble == 'X') ? 'O' : 'X';
+    }
+}
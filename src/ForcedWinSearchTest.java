@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ForcedWinSearchTest {
+    private static final int POSITIONS = 200;
+
+    @Test
+    public void testImmediateWinMatchesAllMoves() {
+        int wins = 0;
+        for (GameBoard board : PositionCorpus.generate(21L, POSITIONS, 10, 30)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            char marble = board.getSideToMove();
+            int win = ForcedWinSearch.findImmediateWin(board, marble);
+            assertEquals(board.toString(), winsNow(board, marble), win != Move.NONE);
+            if (win != Move.NONE) {
+                GameBoard after = new GameBoard(board);
+                after.playMove(win, marble);
+                assertEquals(board.toString(), marble, after.checkWinner());
+                wins++;
+            }
+        }
+        assertTrue(wins > 0);
+    }
+
+    @Test
+    public void testProvenWinsHoldAgainstEveryReply() {
+        ForcedWinSearch search = new ForcedWinSearch();
+        int proven = 0;
+        for (GameBoard board : PositionCorpus.generate(22L, POSITIONS, 12, 24)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            char marble = board.getSideToMove();
+            String before = board.toString();
+            int move = search.findForcedWin(board, marble, 10_000, 2);
+            assertEquals(before, board.toString());
+            if (move == Move.NONE || winsNow(board, marble)) {
+                continue;
+            }
+            proven++;
+            int[] line = search.getWinningLine();
+            assertEquals(move, line[0]);
+            char opponent = marble == 'X' ? 'O' : 'X';
+            GameBoard after = new GameBoard(board);
+            after.playMove(move, marble);
+            assertEquals(before, '.', after.checkWinner());
+            int[] replies = new int[Move.MAX_MOVES];
+            int count = after.generateMoves(replies);
+            for (int i = 0; i < count; i++) {
+                GameBoard reply = new GameBoard(after);
+                reply.playMove(replies[i], opponent);
+                char winner = reply.checkWinner();
+                if (winner == marble) {
+                    continue;
+                }
+                assertEquals(before + " " + Move.toString(replies[i]), '.', winner);
+                assertTrue(before + " " + Move.toString(replies[i]), winsNow(reply, marble));
+            }
+        }
+        assertTrue(proven > 0);
+    }
+
+    @Test
+    public void testImmediateWinNeedsNoTime() {
+        ForcedWinSearch search = new ForcedWinSearch();
+        GameBoard board = null;
+        for (GameBoard position : PositionCorpus.generate(23L, POSITIONS, 10, 30)) {
+            if (!position.isGameOver() && winsNow(position, position.getSideToMove())) {
+                board = position;
+                break;
+            }
+        }
+        assertNotNull(board);
+        char marble = board.getSideToMove();
+        int move = search.findForcedWin(board, marble, 0, 3);
+        assertArrayEquals(new int[] {move}, search.getWinningLine());
+        board.playMove(move, marble);
+        assertEquals(marble, board.checkWinner());
+    }
+
+    @Test
+    public void testCachedDisproofsDoNotChangeResults() {
+        // The smallest cache is shared by all positions, so its slots are overwritten often
+        ForcedWinSearch cached = new ForcedWinSearch(1);
+        for (GameBoard board : PositionCorpus.generate(26L, POSITIONS / 4, 12, 24)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            char marble = board.getSideToMove();
+            int fresh = new ForcedWinSearch(1).findForcedWin(board, marble, 60_000, 3);
+            // Searched twice, so the second search meets the disproofs of the first
+            cached.findForcedWin(board, marble, 60_000, 3);
+            assertEquals(board.toString(), fresh, cached.findForcedWin(board, marble, 60_000, 3));
+        }
+    }
+
+    private static boolean winsNow(GameBoard board, char marble) {
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            GameBoard after = new GameBoard(board);
+            after.playMove(moves[i], marble);
+            if (after.checkWinner() == marble) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
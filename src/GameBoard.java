@@ -1,68 +1,433 @@
+import java.util.SplittableRandom;
+
 /**
  * This class represents the game board for the game of Pentago.
  * It provides methods for placing marbles, rotating quadrants, and checking for a win.
+ * <p>
+ * The position is stored as two 36-bit bitboards, one per player, where cell
+ * {@code (row, col)} maps to bit {@code row * GRID_SIZE + col}. Quadrant rotation
+ * is table-driven and five-in-a-row detection is a mask test against the 32
+ * possible winning lines, so neither allocates.
+ * <p>
+ * The board also keeps, for each player, how many of its marbles lie on each of the
+ * 32 winning lines. The counts are packed as 4-bit fields into two longs per player and
+ * updated incrementally by placements, removals and rotations (a rotation adds the
+ * difference of two precomputed quadrant entries), so asking for the winner is O(1).
  */
 public class GameBoard {
-    // Other methods remain unchanged...
+    public static final int QUADRANT_SIZE = 3;
+    public static final int GRID_SIZE = 6;
+    public static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+
+    /** The number of distinct lines of five on the board. */
+    public static final int WIN_LINE_COUNT = 32;
+
+    /** Returned by {@link #checkWinner()} when both players have five in a row at once. */
+    public static final char DRAW = '=';
+
+    private static final char EMPTY = '.';
+    private static final char PLAYER_X = 'X';
+    private static final char PLAYER_O = 'O';
+
+    /** Bit masks of the 32 winning lines. */
+    static final long[] WIN_MASKS = new long[WIN_LINE_COUNT];
+
+    /** For each cell, the indices into WIN_MASKS of the winning lines passing through it. */
+    static final int[][] LINES_THROUGH_CELL = new int[CELL_COUNT][];
+
+    /** Bit offset of the top-left cell of each quadrant, indexed by quadrant - 1. */
+    private static final int[] QUADRANT_SHIFT = {0, QUADRANT_SIZE, QUADRANT_SIZE * GRID_SIZE,
+            QUADRANT_SIZE * GRID_SIZE + QUADRANT_SIZE};
+
+    /** Mask of all 36 cells. */
+    private static final long FULL_MASK = (1L << CELL_COUNT) - 1;
+
+    /** Line-count fields holding 4 and 5 in every position, for the nibble tests. */
+    private static final long FOURS = 0x4444_4444_4444_4444L;
+    private static final long FIVES = 0x5555_5555_5555_5555L;
+
+    /** The number of 4-bit line counts packed into one long. */
+    private static final int LINES_PER_WORD = 16;
 
     /**
-     * Checks if there is a line of 5 marbles in a row starting from the given position in the given direction.
-     * @param startRow the starting row
-     * @param startCol the starting column
-     * @param deltaRow the row direction (-1, 0, or 1)
-     * @param deltaCol the column direction (-1, 0, or 1)
-     * @param playerMarble the marble to check for
-     * @return true if there is a line of 5 marbles, false otherwise
+     * For each cell, the line-count increments of a marble on it: entry {@code 2 * cell}
+     * covers lines 0-15 and entry {@code 2 * cell + 1} covers lines 16-31.
      */
-    private boolean checkLineForWin(int startRow, int startCol, int deltaRow, int deltaCol, char playerMarble) {
-        int count = 0;
-        for (int i = 0; i < 5; i++) {
-            int row = startRow + i * deltaRow;
-            int col = startCol + i * deltaCol;
-            if (row < 0 || row >= GRID_SIZE || col < 0 || col >= GRID_SIZE || board[row][col] != playerMarble) {
-                return false;
+    private static final long[] CELL_LINE_COUNTS = new long[2 * CELL_COUNT];
+
+    /**
+     * For each quadrant - 1 and 9-bit pattern, the line-count increments of marbles on
+     * those cells, laid out as {@code ((quadrant - 1) * 512 + pattern) * 2 + word}.
+     */
+    private static final long[] QUADRANT_LINE_COUNTS = new long[4 * (1 << 9) * 2];
+
+    /** Mask of the nine cells of a quadrant at shift 0. */
+    private static final long QUADRANT_BASE_MASK = 0b111_000111_000111L;
+
+    /**
+     * For each direction (0 = clockwise, 1 = counterclockwise), the rotated image of
+     * every 9-bit quadrant pattern.
+     */
+    private static final int[][] ROTATED_PATTERN = new int[2][1 << 9];
+
+    /** Every 9-bit quadrant pattern spread back onto board rows at shift 0. */
+    private static final long[] SPREAD = new long[1 << 9];
+
+    /** Zobrist keys indexed by player (0 = 'X', 1 = 'O') and cell. */
+    private static final long[][] ZOBRIST_KEYS = new long[2][CELL_COUNT];
+
+    /**
+     * Combined Zobrist key of every 9-bit pattern, indexed by player, quadrant - 1 and pattern,
+     * so a rotation updates the hash with four table loads.
+     */
+    private static final long[][][] QUADRANT_ZOBRIST_KEYS = new long[2][4][1 << 9];
+
+    static {
+        int line = 0;
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] direction : directions) {
+            for (int row = 0; row < GRID_SIZE; row++) {
+                for (int col = 0; col < GRID_SIZE; col++) {
+                    long mask = 0L;
+                    int length = 0;
+                    while (length < 5) {
+                        int r = row + length * direction[0];
+                        int c = col + length * direction[1];
+                        if (r < 0 || r >= GRID_SIZE || c < 0 || c >= GRID_SIZE) {
+                            break;
+                        }
+                        mask |= 1L << (r * GRID_SIZE + c);
+                        length++;
+                    }
+                    if (length == 5) {
+                        WIN_MASKS[line++] = mask;
+                    }
+                }
+            }
+        }
+
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int count = 0;
+            for (long mask : WIN_MASKS) {
+                if ((mask & (1L << cell)) != 0) {
+                    count++;
+                }
+            }
+            LINES_THROUGH_CELL[cell] = new int[count];
+            count = 0;
+            for (int i = 0; i < WIN_LINE_COUNT; i++) {
+                if ((WIN_MASKS[i] & (1L << cell)) != 0) {
+                    LINES_THROUGH_CELL[cell][count++] = i;
+                }
+            }
+        }
+
+        for (int pattern = 0; pattern < (1 << 9); pattern++) {
+            int clockwise = 0;
+            int counterClockwise = 0;
+            for (int row = 0; row < QUADRANT_SIZE; row++) {
+                for (int col = 0; col < QUADRANT_SIZE; col++) {
+                    if ((pattern & (1 << (row * QUADRANT_SIZE + col))) != 0) {
+                        clockwise |= 1 << (col * QUADRANT_SIZE + QUADRANT_SIZE - row - 1);
+                        counterClockwise |= 1 << ((QUADRANT_SIZE - col - 1) * QUADRANT_SIZE + row);
+                    }
+                }
+            }
+            ROTATED_PATTERN[0][pattern] = clockwise;
+            ROTATED_PATTERN[1][pattern] = counterClockwise;
+            SPREAD[pattern] = spread(pattern);
+        }
+
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            for (int index : LINES_THROUGH_CELL[cell]) {
+                CELL_LINE_COUNTS[2 * cell + index / LINES_PER_WORD] += 1L << (4 * (index % LINES_PER_WORD));
+            }
+        }
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            for (int pattern = 0; pattern < (1 << 9); pattern++) {
+                long bits = SPREAD[pattern] << QUADRANT_SHIFT[quadrant];
+                int index = ((quadrant << 9) + pattern) * 2;
+                for (int cell = 0; cell < CELL_COUNT; cell++) {
+                    if ((bits & (1L << cell)) != 0) {
+                        QUADRANT_LINE_COUNTS[index] += CELL_LINE_COUNTS[2 * cell];
+                        QUADRANT_LINE_COUNTS[index + 1] += CELL_LINE_COUNTS[2 * cell + 1];
+                    }
+                }
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(0x5EED_BA11L);
+        for (int player = 0; player < 2; player++) {
+            for (int cell = 0; cell < CELL_COUNT; cell++) {
+                ZOBRIST_KEYS[player][cell] = random.nextLong();
+            }
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                for (int pattern = 0; pattern < (1 << 9); pattern++) {
+                    long bits = SPREAD[pattern] << QUADRANT_SHIFT[quadrant];
+                    long key = 0L;
+                    for (int cell = 0; cell < CELL_COUNT; cell++) {
+                        if ((bits & (1L << cell)) != 0) {
+                            key ^= ZOBRIST_KEYS[player][cell];
+                        }
+                    }
+                    QUADRANT_ZOBRIST_KEYS[player][quadrant][pattern] = key;
+                }
             }
-            count++;
         }
-        return count == 5;
     }
-    private char[][] board;
-    public static final int QUADRANT_SIZE = 3;
-    public static final int GRID_SIZE = 6;
+
+    private long xBits;
+    private long oBits;
+    private long hash;
+    private long xLinesLow;
+    private long xLinesHigh;
+    private long oLinesLow;
+    private long oLinesHigh;
 
     public GameBoard() {
-        board = new char[GRID_SIZE][GRID_SIZE];
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                board[i][j] = '.';
+        xBits = 0L;
+        oBits = 0L;
+        hash = 0L;
+    }
+
+    /**
+     * Creates a copy of another board, e.g. so a search can work on its own position.
+     * @param other the board to copy
+     */
+    public GameBoard(GameBoard other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Makes this board a copy of another board without allocating, e.g. to reset a
+     * scratch board before each playout.
+     * @param other the board to copy
+     */
+    public void copyFrom(GameBoard other) {
+        xBits = other.xBits;
+        oBits = other.oBits;
+        hash = other.hash;
+        xLinesLow = other.xLinesLow;
+        xLinesHigh = other.xLinesHigh;
+        oLinesLow = other.oLinesLow;
+        oLinesHigh = other.oLinesHigh;
+    }
+
+    /**
+     * Parses a board from the form produced by {@link #toString()}: 36 characters,
+     * row by row, each '.', 'X' or 'O'.
+     * @param text the board text
+     * @return the board
+     * @throws IllegalArgumentException if the text is not a valid board
+     */
+    public static GameBoard fromString(String text) {
+        if (text.length() != CELL_COUNT) {
+            throw new IllegalArgumentException("Board must have " + CELL_COUNT + " cells: " + text);
+        }
+        GameBoard board = new GameBoard();
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            char marble = text.charAt(cell);
+            if (marble != EMPTY) {
+                board.placeMarble(cell / GRID_SIZE, cell % GRID_SIZE, marble);
             }
         }
+        return board;
+    }
+
+    /**
+     * @return the 36 cells row by row, each '.', 'X' or 'O'
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(CELL_COUNT);
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            text.append(getMarble(cell / GRID_SIZE, cell % GRID_SIZE));
+        }
+        return text.toString();
     }
 
     public char getMarble(int row, int col) {
-        return board[row][col];
+        long bit = 1L << cellIndex(row, col);
+        if ((xBits & bit) != 0) {
+            return PLAYER_X;
+        }
+        if ((oBits & bit) != 0) {
+            return PLAYER_O;
+        }
+        return EMPTY;
     }
 
     public boolean placeMarble(int row, int col, char marble) {
-        if (board[row][col] == '.') {
-            board[row][col] = marble;
-            return true;
+        int cell = cellIndex(row, col);
+        long bit = 1L << cell;
+        if (((xBits | oBits) & bit) != 0) {
+            return false;
+        }
+        if (marble == PLAYER_X) {
+            xBits |= bit;
+            hash ^= ZOBRIST_KEYS[0][cell];
+            xLinesLow += CELL_LINE_COUNTS[2 * cell];
+            xLinesHigh += CELL_LINE_COUNTS[2 * cell + 1];
+        } else if (marble == PLAYER_O) {
+            oBits |= bit;
+            hash ^= ZOBRIST_KEYS[1][cell];
+            oLinesLow += CELL_LINE_COUNTS[2 * cell];
+            oLinesHigh += CELL_LINE_COUNTS[2 * cell + 1];
+        } else {
+            throw new IllegalArgumentException("Invalid marble: " + marble);
         }
-        return false;
+        return true;
     }
+
+    /**
+     * Checks whether either player has five marbles in a row.
+     * A rotation can complete lines for both players at once, which is a draw.
+     * @return the marble of the only player with a line of five, DRAW if both players
+     *         have one, or '.' if neither does
+     */
     public char checkWinner() {
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (board[row][col] != '.' && (
-                    checkLineForWin(row, col, 0, 1, board[row][col]) ||
-                    checkLineForWin(row, col, 1, 0, board[row][col]) ||
-                    checkLineForWin(row, col, 1, 1, board[row][col]) ||
-                    checkLineForWin(row, col, 1, -1, board[row][col]))) {
-                    return board[row][col];
+        boolean xWins = hasCount(xLinesLow, xLinesHigh, FIVES);
+        boolean oWins = hasCount(oLinesLow, oLinesHigh, FIVES);
+        if (xWins) {
+            return oWins ? DRAW : PLAYER_X;
+        }
+        return oWins ? PLAYER_O : EMPTY;
+    }
+
+    /**
+     * Checks whether the given player currently has five marbles in a row.
+     * @param marble the marble to check for
+     * @return true if the player has at least one line of five
+     */
+    public boolean hasFiveInARow(char marble) {
+        if (marble == PLAYER_X) {
+            return hasCount(xLinesLow, xLinesHigh, FIVES);
+        }
+        if (marble == PLAYER_O) {
+            return hasCount(oLinesLow, oLinesHigh, FIVES);
+        }
+        throw new IllegalArgumentException("Invalid marble: " + marble);
+    }
+
+    /**
+     * Checks whether the game is drawn, either because both players have five in a row
+     * or because the board is full and neither has.
+     * @return true if the position is a draw
+     */
+    public boolean isDraw() {
+        boolean xWins = hasCount(xLinesLow, xLinesHigh, FIVES);
+        boolean oWins = hasCount(oLinesLow, oLinesHigh, FIVES);
+        return xWins == oWins && (xWins || isFull());
+    }
+
+    /**
+     * Checks whether the game has ended in a win or a draw.
+     * @return true if no further moves should be played
+     */
+    public boolean isGameOver() {
+        return hasCount(xLinesLow, xLinesHigh, FIVES) || hasCount(oLinesLow, oLinesHigh, FIVES) || isFull();
+    }
+
+    /**
+     * Returns how many marbles of the given player lie on one of the winning lines.
+     * @param marble the marble of the player
+     * @param line the index of the line in WIN_MASKS
+     * @return a count between 0 and 5
+     */
+    int getLineCount(char marble, int line) {
+        long word;
+        if (marble == PLAYER_X) {
+            word = line < LINES_PER_WORD ? xLinesLow : xLinesHigh;
+        } else {
+            word = line < LINES_PER_WORD ? oLinesLow : oLinesHigh;
+        }
+        return (int) (word >>> (4 * (line % LINES_PER_WORD))) & 0xF;
+    }
+
+    /**
+     * Returns one word of the packed line counts of a player: 16 counts of 4 bits each,
+     * line {@code 16 * word + i} in bits {@code 4 * i} to {@code 4 * i + 3}.
+     * @param marble the marble of the player
+     * @param word 0 for lines 0-15, 1 for lines 16-31
+     * @return the packed counts
+     */
+    long getPackedLineCounts(char marble, int word) {
+        if (marble == PLAYER_X) {
+            return word == 0 ? xLinesLow : xLinesHigh;
+        }
+        return word == 0 ? oLinesLow : oLinesHigh;
+    }
+
+    /**
+     * Counts the quadrant rotations after which the given player would have five in a row,
+     * from the line-count changes of each rotated quadrant pattern. The board is left unchanged.
+     * @param marble the marble of the player
+     * @return a count between 0 and 8
+     */
+    int countRotationFives(char marble) {
+        long bits = getMarbleBits(marble);
+        if (Long.bitCount(bits) < 5) {
+            return 0;
+        }
+        long low = getPackedLineCounts(marble, 0);
+        long high = getPackedLineCounts(marble, 1);
+        int count = 0;
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            int pattern = gather(bits, QUADRANT_SHIFT[quadrant]);
+            int from = (quadrant << 10) + 2 * pattern;
+            for (int[] table : ROTATED_PATTERN) {
+                int to = (quadrant << 10) + 2 * table[pattern];
+                if (hasCount(low + QUADRANT_LINE_COUNTS[to] - QUADRANT_LINE_COUNTS[from],
+                        high + QUADRANT_LINE_COUNTS[to + 1] - QUADRANT_LINE_COUNTS[from + 1], FIVES)) {
+                    count++;
                 }
             }
         }
-        return '.';
+        return count;
+    }
+
+    /**
+     * Checks whether every cell of the board is occupied.
+     * @return true if no empty cell remains
+     */
+    public boolean isFull() {
+        return (xBits | oBits) == FULL_MASK;
+    }
+
+    /**
+     * Returns the Zobrist hash of the position, maintained incrementally by every
+     * placement, removal and rotation. The hash covers the marbles only, not whose
+     * turn it is.
+     * @return the 64-bit position hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the smallest base-3 key over the eight symmetric images of the position,
+     * packed with the transform that produces that image. Symmetric positions get the
+     * same key, so tables can store one entry for all of them.
+     * @return the packed key; unpack with {@link Symmetry#key(long)} and {@link Symmetry#transform(long)}
+     */
+    public long getCanonicalKey() {
+        return Symmetry.canonicalKey(xBits, oBits);
+    }
+
+    /**
+     * Returns the bitboard of the given player, with bit {@code row * GRID_SIZE + col} set
+     * for every cell holding one of the player's marbles.
+     * @param marble the marble of the player
+     * @return the player's bitboard
+     */
+    long getMarbleBits(char marble) {
+        if (marble == PLAYER_X) {
+            return xBits;
+        }
+        if (marble == PLAYER_O) {
+            return oBits;
+        }
+        throw new IllegalArgumentException("Invalid marble: " + marble);
     }
 
     /**
@@ -71,10 +436,27 @@ public class GameBoard {
      * @param clockwise true to rotate clockwise, false to rotate counterclockwise
      */
     public void rotateQuadrant(int quadrant, boolean clockwise) {
-        int startRow = (quadrant <= 2) ? 0 : QUADRANT_SIZE;
-        int startCol = (quadrant == 1 || quadrant == 3) ? 0 : QUADRANT_SIZE;
-        char[][] temp = copyQuadrantToTempArray(startRow, startCol);
-        rotateTempArrayAndCopyBack(temp, startRow, startCol, clockwise);
+        int shift = QUADRANT_SHIFT[quadrant - 1];
+        int[] table = ROTATED_PATTERN[clockwise ? 0 : 1];
+        long mask = QUADRANT_BASE_MASK << shift;
+        int xPattern = gather(xBits, shift);
+        int oPattern = gather(oBits, shift);
+        int xRotated = table[xPattern];
+        int oRotated = table[oPattern];
+        xBits = (xBits & ~mask) | (SPREAD[xRotated] << shift);
+        oBits = (oBits & ~mask) | (SPREAD[oRotated] << shift);
+        int base = (quadrant - 1) << 10;
+        int xFrom = base + 2 * xPattern;
+        int xTo = base + 2 * xRotated;
+        int oFrom = base + 2 * oPattern;
+        int oTo = base + 2 * oRotated;
+        xLinesLow += QUADRANT_LINE_COUNTS[xTo] - QUADRANT_LINE_COUNTS[xFrom];
+        xLinesHigh += QUADRANT_LINE_COUNTS[xTo + 1] - QUADRANT_LINE_COUNTS[xFrom + 1];
+        oLinesLow += QUADRANT_LINE_COUNTS[oTo] - QUADRANT_LINE_COUNTS[oFrom];
+        oLinesHigh += QUADRANT_LINE_COUNTS[oTo + 1] - QUADRANT_LINE_COUNTS[oFrom + 1];
+        long[] xKeys = QUADRANT_ZOBRIST_KEYS[0][quadrant - 1];
+        long[] oKeys = QUADRANT_ZOBRIST_KEYS[1][quadrant - 1];
+        hash ^= xKeys[xPattern] ^ xKeys[xRotated] ^ oKeys[oPattern] ^ oKeys[oRotated];
     }
 
     /**
@@ -87,7 +469,7 @@ public class GameBoard {
         char[][] temp = new char[QUADRANT_SIZE][QUADRANT_SIZE];
         for (int row = 0; row < QUADRANT_SIZE; row++) {
             for (int col = 0; col < QUADRANT_SIZE; col++) {
-                temp[row][col] = board[startRow + row][startCol + col];
+                temp[row][col] = getMarble(startRow + row, startCol + col);
             }
         }
         return temp;
@@ -95,47 +477,53 @@ public class GameBoard {
 
     /**
      * Rotates a temporary array clockwise or counterclockwise and copies it back to the board.
+     * Cells of the array that hold neither 'X' nor 'O' are copied back as empty.
      * @param temp the temporary array
      * @param startRow the starting row of the quadrant on the board
      * @param startCol the starting column of the quadrant on the board
      * @param clockwise true to rotate clockwise, false to rotate counterclockwise
      */
     public void rotateTempArrayAndCopyBack(char[][] temp, int startRow, int startCol, boolean clockwise) {
-        if (clockwise) {
-            for (int row = 0; row < QUADRANT_SIZE; row++) {
-                for (int col = 0; col < QUADRANT_SIZE; col++) {
-                    board[startRow + col][startCol + QUADRANT_SIZE - row - 1] = temp[row][col];
-                }
-            }
-        } else {
-            for (int row = 0; row < QUADRANT_SIZE; row++) {
-                for (int col = 0; col < QUADRANT_SIZE; col++) {
-                    board[startRow + QUADRANT_SIZE - col - 1][startCol + row] = temp[row][col];
+        int xPattern = 0;
+        int oPattern = 0;
+        for (int row = 0; row < QUADRANT_SIZE; row++) {
+            for (int col = 0; col < QUADRANT_SIZE; col++) {
+                int bit = 1 << (row * QUADRANT_SIZE + col);
+                if (temp[row][col] == PLAYER_X) {
+                    xPattern |= bit;
+                } else if (temp[row][col] == PLAYER_O) {
+                    oPattern |= bit;
                 }
             }
         }
+        int shift = cellIndex(startRow, startCol);
+        int[] table = ROTATED_PATTERN[clockwise ? 0 : 1];
+        long mask = QUADRANT_BASE_MASK << shift;
+        xBits = (xBits & ~mask) | (SPREAD[table[xPattern]] << shift);
+        oBits = (oBits & ~mask) | (SPREAD[table[oPattern]] << shift);
+        hash = computeHash(xBits, oBits);
+        recountLines();
     }
 
-    // Existing methods from the GameBoard class...
-
+    /**
+     * Checks whether placing the given marble on an empty cell would complete a line of five.
+     * The board is left unchanged.
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param playerMarble the marble to place
+     * @return true if the placement wins, false otherwise or if the cell is occupied
+     */
     public boolean checkWinningMove(int row, int col, char playerMarble) {
-        // Temporarily place the marble to check for a win
-        char originalMarble = board[row][col];
-        if (originalMarble != '.') {
+        int cell = cellIndex(row, col);
+        long bit = 1L << cell;
+        if (((xBits | oBits) & bit) != 0) {
             return false; // Position is already occupied, cannot place marble
         }
-        board[row][col] = playerMarble; // Temporarily place the marble
-
-        // Check horizontal, vertical, and both diagonal directions
-        boolean won = (checkLineForWin(row, col - 4, 0, 1, playerMarble) ||
-                       checkLineForWin(row - 4, col, 1, 0, playerMarble) ||
-                       checkLineForWin(row - 4, col - 4, 1, 1, playerMarble) ||
-                       checkLineForWin(row - 4, col + 4, 1, -1, playerMarble));
-
-        // Remove the temporarily placed marble
-        board[row][col] = '.';
-
-        return won;
+        // A line through the empty cell that already holds four of the player's marbles
+        long low = (playerMarble == PLAYER_X) ? xLinesLow : oLinesLow;
+        long high = (playerMarble == PLAYER_X) ? xLinesHigh : oLinesHigh;
+        return ((matchingCounts(low, FOURS) & (CELL_LINE_COUNTS[2 * cell] << 3))
+                | (matchingCounts(high, FOURS) & (CELL_LINE_COUNTS[2 * cell + 1] << 3))) != 0;
     }
 
     /**
@@ -146,11 +534,189 @@ public class GameBoard {
      * @throws IllegalArgumentException if the position is already empty
      */
     public void removeMarble(int row, int col) {
-        if (board[row][col] != '.') {
-            board[row][col] = '.';
-        } else {
+        int cell = cellIndex(row, col);
+        long bit = 1L << cell;
+        if (((xBits | oBits) & bit) == 0) {
             throw new IllegalArgumentException("Position is already empty");
         }
+        if ((xBits & bit) != 0) {
+            hash ^= ZOBRIST_KEYS[0][cell];
+            xLinesLow -= CELL_LINE_COUNTS[2 * cell];
+            xLinesHigh -= CELL_LINE_COUNTS[2 * cell + 1];
+            xBits &= ~bit;
+        } else {
+            hash ^= ZOBRIST_KEYS[1][cell];
+            oLinesLow -= CELL_LINE_COUNTS[2 * cell];
+            oLinesHigh -= CELL_LINE_COUNTS[2 * cell + 1];
+            oBits &= ~bit;
+        }
+    }
+
+    /**
+     * Plays a full move: places the marble and rotates the quadrant. The rotation is
+     * always applied, even when the placement alone completes five in a row; callers
+     * that end the game on such a placement should check {@link #checkWinningMove} first.
+     * Does not allocate.
+     * @param move the encoded move, see {@link Move}
+     * @param marble the marble to place
+     * @throws IllegalArgumentException if the cell of the move is occupied
+     */
+    public void makeMove(int move, char marble) {
+        int cell = Move.cell(move);
+        if (!placeMarble(cell / GRID_SIZE, cell % GRID_SIZE, marble)) {
+            throw new IllegalArgumentException("Cell is occupied: " + Move.toString(move));
+        }
+        rotateQuadrant(Move.quadrant(move), Move.isClockwise(move));
+    }
+
+    /**
+     * Takes back a move played with {@link #makeMove}: rotates the quadrant back and
+     * removes the marble. Does not allocate.
+     * @param move the encoded move, see {@link Move}
+     */
+    public void unmakeMove(int move) {
+        rotateQuadrant(Move.quadrant(move), !Move.isClockwise(move));
+        int cell = Move.cell(move);
+        removeMarble(cell / GRID_SIZE, cell % GRID_SIZE);
+    }
+
+    /**
+     * Plays a full move by the rules of the game: a placement that completes five in a
+     * row ends the game before the rotation, so the rotation is then left out.
+     * @param move the encoded move, see {@link Move}
+     * @param marble the marble to place
+     * @return whether the move was played; false if its cell is occupied
+     */
+    public boolean playMove(int move, char marble) {
+        int row = Move.row(move);
+        int col = Move.col(move);
+        if (getMarble(row, col) != EMPTY) {
+            return false;
+        }
+        if (checkWinningMove(row, col, marble)) {
+            placeMarble(row, col, marble);
+        } else {
+            makeMove(move, marble);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the move that turns this position into another one, as {@link #playMove} would play it.
+     * @param after the position after the move
+     * @param marble the marble of the player who moved
+     * @return the encoded move; for a winning placement, the first move with that placement
+     * @throws IllegalStateException if no single move of that marble leads to the other position
+     */
+    public int findMove(GameBoard after, char marble) {
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = generateMoves(moves);
+        GameBoard board = new GameBoard(this);
+        for (int i = 0; i < count; i++) {
+            board.playMove(moves[i], marble);
+            boolean found = board.xBits == after.xBits && board.oBits == after.oBits;
+            board.copyFrom(this);
+            if (found) {
+                return moves[i];
+            }
+        }
+        throw new IllegalStateException("Player " + marble + " did not play one move");
+    }
+
+    /**
+     * Writes every legal move into the buffer, cell by cell in row-major order with the
+     * eight rotations of a cell adjacent. Does not allocate.
+     * @param moves a buffer of at least {@link Move#MAX_MOVES} entries
+     * @return the number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        int count = 0;
+        for (long empty = ~(xBits | oBits) & FULL_MASK; empty != 0; empty &= empty - 1) {
+            int first = Move.of(Long.numberOfTrailingZeros(empty), 0);
+            for (int rotation = 0; rotation < Move.ROTATIONS; rotation++) {
+                moves[count++] = first + rotation;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Infers whose turn it is from the marble counts, given that X moves first.
+     * @return 'X' if both players have placed the same number of marbles, otherwise 'O'
+     */
+    public char getSideToMove() {
+        return Long.bitCount(xBits) <= Long.bitCount(oBits) ? PLAYER_X : PLAYER_O;
+    }
+
+    /**
+     * @return the number of empty cells
+     */
+    public int getEmptyCount() {
+        return CELL_COUNT - Long.bitCount(xBits | oBits);
+    }
+
+    /**
+     * Rebuilds the line counts of both players from the bitboards.
+     */
+    private void recountLines() {
+        xLinesLow = 0L;
+        xLinesHigh = 0L;
+        oLinesLow = 0L;
+        oLinesHigh = 0L;
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            if ((xBits & (1L << cell)) != 0) {
+                xLinesLow += CELL_LINE_COUNTS[2 * cell];
+                xLinesHigh += CELL_LINE_COUNTS[2 * cell + 1];
+            } else if ((oBits & (1L << cell)) != 0) {
+                oLinesLow += CELL_LINE_COUNTS[2 * cell];
+                oLinesHigh += CELL_LINE_COUNTS[2 * cell + 1];
+            }
+        }
+    }
+
+    /**
+     * Compares every 4-bit line count in a word against the same field of the pattern.
+     * @return a word with the top bit of each matching field set
+     */
+    private static long matchingCounts(long counts, long pattern) {
+        long diff = counts ^ pattern;
+        return ~(((diff & 0x7777_7777_7777_7777L) + 0x7777_7777_7777_7777L) | diff) & 0x8888_8888_8888_8888L;
+    }
+
+    private static boolean hasCount(long low, long high, long pattern) {
+        return (matchingCounts(low, pattern) | matchingCounts(high, pattern)) != 0;
+    }
+
+    private static long computeHash(long xBits, long oBits) {
+        long key = 0L;
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            if ((xBits & (1L << cell)) != 0) {
+                key ^= ZOBRIST_KEYS[0][cell];
+            } else if ((oBits & (1L << cell)) != 0) {
+                key ^= ZOBRIST_KEYS[1][cell];
+            }
+        }
+        return key;
+    }
+
+    private static int cellIndex(int row, int col) {
+        if (row < 0 || row >= GRID_SIZE || col < 0 || col >= GRID_SIZE) {
+            throw new ArrayIndexOutOfBoundsException("Position out of bounds: " + row + ", " + col);
+        }
+        return row * GRID_SIZE + col;
+    }
+
+    /** Collects the nine quadrant cells starting at the given shift into a 9-bit pattern. */
+    private static int gather(long bits, int shift) {
+        return (int) ((bits >>> shift) & 0b111)
+                | (int) ((bits >>> (shift + GRID_SIZE - QUADRANT_SIZE)) & 0b111_000)
+                | (int) ((bits >>> (shift + 2 * (GRID_SIZE - QUADRANT_SIZE))) & 0b111_000_000);
+    }
+
+    /** Inverse of {@link #gather} at shift 0. */
+    private static long spread(int pattern) {
+        return (pattern & 0b111L)
+                | ((long) (pattern & 0b111_000) << (GRID_SIZE - QUADRANT_SIZE))
+                | ((long) (pattern & 0b111_000_000) << (2 * (GRID_SIZE - QUADRANT_SIZE)));
     }
-    // Other methods remain unchanged...
 }
@@ -0,0 +1,220 @@
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Plays random sequences of placements, removals and rotations on the bitboard
+ * GameBoard and on a straightforward char[][] reference board, checking after
+ * every step that both agree on every cell and on the winner.
+ */
+public class GameBoardDifferentialTest {
+    private static final int GAMES = 2000;
+    private static final char[] MARBLES = {'X', 'O'};
+
+    @Test
+    public void testRandomSequencesMatchReferenceBoard() {
+        Random random = new Random(20240601L);
+        for (int game = 0; game < GAMES; game++) {
+            GameBoard board = new GameBoard();
+            ReferenceBoard reference = new ReferenceBoard();
+            int steps = 10 + random.nextInt(60);
+            for (int step = 0; step < steps; step++) {
+                int row = random.nextInt(GameBoard.GRID_SIZE);
+                int col = random.nextInt(GameBoard.GRID_SIZE);
+                switch (random.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        char marble = MARBLES[random.nextInt(2)];
+                        assertEquals(reference.checkWinningMove(row, col, marble),
+                                board.checkWinningMove(row, col, marble));
+                        assertEquals(reference.placeMarble(row, col, marble),
+                                board.placeMarble(row, col, marble));
+                        break;
+                    case 2:
+                        if (reference.getMarble(row, col) != '.') {
+                            reference.removeMarble(row, col);
+                            board.removeMarble(row, col);
+                        }
+                        break;
+                    default:
+                        int quadrant = 1 + random.nextInt(4);
+                        boolean clockwise = random.nextBoolean();
+                        reference.rotateQuadrant(quadrant, clockwise);
+                        board.rotateQuadrant(quadrant, clockwise);
+                        break;
+                }
+                assertSameBoard(reference, board);
+            }
+        }
+    }
+
+    @Test
+    public void testRotationRoundTrip() {
+        Random random = new Random(7L);
+        for (int game = 0; game < GAMES; game++) {
+            GameBoard board = new GameBoard();
+            ReferenceBoard reference = new ReferenceBoard();
+            for (int i = 0; i < 20; i++) {
+                int row = random.nextInt(GameBoard.GRID_SIZE);
+                int col = random.nextInt(GameBoard.GRID_SIZE);
+                char marble = MARBLES[random.nextInt(2)];
+                board.placeMarble(row, col, marble);
+                reference.placeMarble(row, col, marble);
+            }
+            int quadrant = 1 + random.nextInt(4);
+            boolean clockwise = random.nextBoolean();
+            board.rotateQuadrant(quadrant, clockwise);
+            board.rotateQuadrant(quadrant, !clockwise);
+            assertSameBoard(reference, board);
+            for (int i = 0; i < 4; i++) {
+                board.rotateQuadrant(quadrant, clockwise);
+            }
+            assertSameBoard(reference, board);
+        }
+    }
+
+    @Test
+    public void testIncrementalHashMatchesFreshBoard() {
+        Random random = new Random(99L);
+        for (int game = 0; game < GAMES; game++) {
+            GameBoard board = new GameBoard();
+            for (int step = 0; step < 40; step++) {
+                int row = random.nextInt(GameBoard.GRID_SIZE);
+                int col = random.nextInt(GameBoard.GRID_SIZE);
+                if (random.nextInt(3) == 0 && board.getMarble(row, col) != '.') {
+                    board.removeMarble(row, col);
+                } else if (random.nextBoolean()) {
+                    board.placeMarble(row, col, MARBLES[random.nextInt(2)]);
+                } else {
+                    board.rotateQuadrant(1 + random.nextInt(4), random.nextBoolean());
+                }
+                GameBoard fresh = new GameBoard();
+                for (int r = 0; r < GameBoard.GRID_SIZE; r++) {
+                    for (int c = 0; c < GameBoard.GRID_SIZE; c++) {
+                        if (board.getMarble(r, c) != '.') {
+                            fresh.placeMarble(r, c, board.getMarble(r, c));
+                        }
+                    }
+                }
+                assertEquals(fresh.getHash(), board.getHash());
+            }
+        }
+    }
+
+    private static void assertSameBoard(ReferenceBoard reference, GameBoard board) {
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
+                assertEquals(reference.getMarble(row, col), board.getMarble(row, col));
+            }
+        }
+        boolean xWins = reference.hasFive('X');
+        boolean oWins = reference.hasFive('O');
+        if (xWins && !oWins) {
+            assertEquals('X', board.checkWinner());
+        } else if (oWins && !xWins) {
+            assertEquals('O', board.checkWinner());
+        } else if (xWins) {
+            assertEquals(GameBoard.DRAW, board.checkWinner());
+        } else {
+            assertEquals('.', board.checkWinner());
+        }
+    }
+
+    /** The original char[][] implementation of the board, kept as the oracle. */
+    private static class ReferenceBoard {
+        private final char[][] board = new char[GameBoard.GRID_SIZE][GameBoard.GRID_SIZE];
+
+        ReferenceBoard() {
+            for (char[] row : board) {
+                java.util.Arrays.fill(row, '.');
+            }
+        }
+
+        char getMarble(int row, int col) {
+            return board[row][col];
+        }
+
+        boolean placeMarble(int row, int col, char marble) {
+            if (board[row][col] == '.') {
+                board[row][col] = marble;
+                return true;
+            }
+            return false;
+        }
+
+        void removeMarble(int row, int col) {
+            board[row][col] = '.';
+        }
+
+        boolean checkWinningMove(int row, int col, char marble) {
+            if (board[row][col] != '.') {
+                return false;
+            }
+            int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+            for (int[] direction : directions) {
+                int run = 1 + countRun(row, col, direction[0], direction[1], marble)
+                        + countRun(row, col, -direction[0], -direction[1], marble);
+                if (run >= 5) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int countRun(int row, int col, int deltaRow, int deltaCol, char marble) {
+            int count = 0;
+            int r = row + deltaRow;
+            int c = col + deltaCol;
+            while (r >= 0 && r < GameBoard.GRID_SIZE && c >= 0 && c < GameBoard.GRID_SIZE && board[r][c] == marble) {
+                count++;
+                r += deltaRow;
+                c += deltaCol;
+            }
+            return count;
+        }
+
+        boolean hasFive(char marble) {
+            for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+                for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
+                    if (checkLine(row, col, 0, 1, marble) || checkLine(row, col, 1, 0, marble)
+                            || checkLine(row, col, 1, 1, marble) || checkLine(row, col, 1, -1, marble)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean checkLine(int startRow, int startCol, int deltaRow, int deltaCol, char marble) {
+            for (int i = 0; i < 5; i++) {
+                int row = startRow + i * deltaRow;
+                int col = startCol + i * deltaCol;
+                if (row < 0 || row >= GameBoard.GRID_SIZE || col < 0 || col >= GameBoard.GRID_SIZE
+                        || board[row][col] != marble) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void rotateQuadrant(int quadrant, boolean clockwise) {
+            int startRow = (quadrant <= 2) ? 0 : GameBoard.QUADRANT_SIZE;
+            int startCol = (quadrant == 1 || quadrant == 3) ? 0 : GameBoard.QUADRANT_SIZE;
+            char[][] temp = new char[GameBoard.QUADRANT_SIZE][GameBoard.QUADRANT_SIZE];
+            for (int row = 0; row < GameBoard.QUADRANT_SIZE; row++) {
+                for (int col = 0; col < GameBoard.QUADRANT_SIZE; col++) {
+                    temp[row][col] = board[startRow + row][startCol + col];
+                }
+            }
+            for (int row = 0; row < GameBoard.QUADRANT_SIZE; row++) {
+                for (int col = 0; col < GameBoard.QUADRANT_SIZE; col++) {
+                    if (clockwise) {
+                        board[startRow + col][startCol + GameBoard.QUADRANT_SIZE - row - 1] = temp[row][col];
+                    } else {
+                        board[startRow + GameBoard.QUADRANT_SIZE - col - 1][startCol + row] = temp[row][col];
+                    }
+                }
+            }
+        }
+    }
+}
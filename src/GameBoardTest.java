@@ -1,4 +1,5 @@
 import static org.junit.Assert.*;
+import java.lang.management.ManagementFactory;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -142,6 +143,114 @@ public class GameBoardTest {
         }
         assertFalse(board.checkWinningMove(4, 4, 'X'));
     }
+    @Test
+    public void testRotationCompletingBothLinesIsDraw() {
+        for (int col = 0; col < 3; col++) {
+            board.placeMarble(3, col, 'X');
+            board.placeMarble(3, col + 3, 'O');
+        }
+        board.placeMarble(4, 3, 'X');
+        board.placeMarble(5, 3, 'X');
+        board.placeMarble(1, 5, 'O');
+        board.placeMarble(2, 5, 'O');
+        assertEquals('.', board.checkWinner());
+
+        // Row 3 becomes X X X X X O and column 5 becomes O from row 1 to row 5
+        board.rotateQuadrant(4, true);
+        assertEquals(GameBoard.DRAW, board.checkWinner());
+        assertTrue(board.isDraw());
+        assertTrue(board.isGameOver());
+
+        board.rotateQuadrant(4, false);
+        assertEquals('.', board.checkWinner());
+        assertFalse(board.isGameOver());
+    }
+
+    @Test
+    public void testFullBoardWithoutFiveIsDraw() {
+        // Rows alternate X X O O X X / O O X X O O, which leaves no line of five
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
+                boolean x = ((col / 2) + row) % 2 == 0;
+                board.placeMarble(row, col, x ? 'X' : 'O');
+            }
+        }
+        assertEquals('.', board.checkWinner());
+        assertTrue(board.isFull());
+        assertTrue(board.isDraw());
+    }
+
+    @Test
+    public void testMakeAndUnmakeMoveRestoresBoard() {
+        board.placeMarble(0, 0, 'X');
+        board.placeMarble(4, 4, 'O');
+        long hash = board.getHash();
+        int move = Move.encode(1, 2, 1, true);
+        board.makeMove(move, 'X');
+        // (1, 2) rotates clockwise to (2, 1) and (0, 0) to (0, 2)
+        assertEquals('X', board.getMarble(2, 1));
+        assertEquals('X', board.getMarble(0, 2));
+        board.unmakeMove(move);
+        assertEquals('X', board.getMarble(0, 0));
+        assertEquals('.', board.getMarble(1, 2));
+        assertEquals('O', board.getMarble(4, 4));
+        assertEquals(hash, board.getHash());
+    }
+
+    @Test
+    public void testMakeAndUnmakeMoveDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        GameBoard[] boards = PositionCorpus.generate(42L, 64, 0, 19);
+        int[][] moves = new int[boards.length][Move.MAX_MOVES];
+        int[] counts = new int[boards.length];
+        for (int i = 0; i < boards.length; i++) {
+            counts[i] = boards[i].generateMoves(moves[i]);
+        }
+        long checksum = makeAndUnmakeAll(boards, moves, counts); // Warm up, so nothing is loaded later
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int round = 0; round < 100; round++) {
+            checksum += makeAndUnmakeAll(boards, moves, counts);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        assertTrue("make/unmake allocated " + allocated + " bytes (checksum " + checksum + ")", allocated < 1024);
+    }
+
+    private static long makeAndUnmakeAll(GameBoard[] boards, int[][] moves, int[] counts) {
+        long checksum = 0;
+        for (int index = 0; index < boards.length; index++) {
+            GameBoard board = boards[index];
+            char side = board.getSideToMove();
+            for (int i = 0; i < counts[index]; i++) {
+                board.makeMove(moves[index][i], side);
+                checksum += board.getHash();
+                board.unmakeMove(moves[index][i]);
+            }
+        }
+        return checksum;
+    }
+
+    @Test
+    public void testGenerateMovesCoversEmptyCells() {
+        int[] moves = new int[Move.MAX_MOVES];
+        assertEquals(Move.MAX_MOVES, board.generateMoves(moves));
+        board.placeMarble(3, 3, 'X');
+        int count = board.generateMoves(moves);
+        assertEquals((GameBoard.CELL_COUNT - 1) * Move.ROTATIONS, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals('.', board.getMarble(Move.row(moves[i]), Move.col(moves[i])));
+        }
+    }
+
+    @Test
+    public void testMoveTextRoundTrip() {
+        for (int move = 0; move < Move.MAX_MOVES; move++) {
+            assertEquals(move, Move.parse(Move.toString(move)));
+        }
+        assertEquals("5,0,3,ccw", Move.toString(Move.encode(5, 0, 3, false)));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testRemoveMarbleFromEmptyPosition() {
         board.removeMarble(0, 0);
@@ -169,4 +278,37 @@ public class GameBoardTest {
         board.rotateTempArrayAndCopyBack(temp, 0, 0, false);
         assertEquals('X', board.getMarble(GameBoard.QUADRANT_SIZE - 1, 0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPlayMoveSkipsRotationAfterWinningPlacement() {
+        board = GameBoard.fromString("XXXX..OOO...O.......................");
+        assertTrue(board.playMove(Move.encode(0, 4, 1, true), 'X'));
+        assertEquals("XXXXX.OOO...O.......................", board.toString());
+        assertFalse(board.playMove(Move.encode(0, 4, 1, true), 'O'));
+    }
+
+    @Test
+    public void testFindMoveRecoversPlayedMove() {
+        int[] moves = new int[Move.MAX_MOVES];
+        for (GameBoard position : PositionCorpus.generate(5L, 20, 0, 30)) {
+            if (position.isGameOver()) {
+                continue;
+            }
+            char side = position.getSideToMove();
+            int count = position.generateMoves(moves);
+            for (int i = 0; i < count; i++) {
+                GameBoard after = new GameBoard(position);
+                after.playMove(moves[i], side);
+                GameBoard replayed = new GameBoard(position);
+                replayed.playMove(position.findMove(after, side), side);
+                assertEquals(after.toString(), replayed.toString());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFindMoveRejectsTwoMarbles() {
+        GameBoard after = GameBoard.fromString("XX..................................");
+        board.findMove(after, 'X');
+    }
+}
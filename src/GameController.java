@@ -0,0 +1,221 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Drives a {@link Pentago} game for a Swing user interface without blocking the event
+ * dispatch thread.
+ * <p>
+ * The game and the listener are confined to the event dispatch thread: every method must
+ * be called on it and every listener callback is made on it. Every player is asked for its
+ * move with {@link Player#requestMove}; computer players search on a dedicated engine
+ * thread, and human players answer through {@link #playHumanMove}. When the move arrives
+ * it is handed back with {@link SwingUtilities#invokeLater}, played, and the next player
+ * is asked.
+ * <p>
+ * While a {@link ThinkingPlayer} searches, its progress is reported every
+ * {@link #PROGRESS_INTERVAL_MILLIS} milliseconds. It can be told to play at once with
+ * {@link #moveNow()}, and is told so automatically when it exceeds the move timeout.
+ * While a human is to move, a thinking opponent {@link ThinkingPlayer#ponder ponders}.
+ */
+public class GameController {
+    public static final int PROGRESS_INTERVAL_MILLIS = 200;
+
+    /**
+     * Receives the state of the game, always on the event dispatch thread.
+     */
+    public interface Listener {
+        /**
+         * Called when the game starts and after every move, including the last one.
+         * @param snapshot the new position
+         */
+        void positionChanged(BoardSnapshot snapshot);
+
+        /**
+         * Called periodically while a computer player searches.
+         * @param marble the marble of the player searching
+         * @param progress how far its search has come
+         */
+        void thinking(char marble, SearchProgress progress);
+
+        /**
+         * Called when a computer player fails to produce a move; the game stops.
+         * @param marble the marble of the player that failed
+         * @param error the cause
+         */
+        void engineFailed(char marble, Throwable error);
+    }
+
+    private final Pentago game;
+    private final Listener listener;
+    private final long moveTimeoutMillis;
+    private final ExecutorService engine;
+    private final Timer progressTimer;
+
+    private int turn;
+    private boolean closed;
+    private Player playerToMove;
+    private CompletableFuture<Integer> pendingMove;
+    private boolean stopSent;
+
+    /**
+     * @param game the game to drive, from now on only changed through this controller
+     * @param listener receives the positions and search progress
+     * @param moveTimeoutMillis the time after which a thinking player is told to move
+     */
+    public GameController(Pentago game, Listener listener, long moveTimeoutMillis) {
+        this.game = game;
+        this.listener = listener;
+        this.moveTimeoutMillis = moveTimeoutMillis;
+        engine = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pentago-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progressTimer = new Timer(PROGRESS_INTERVAL_MILLIS, e -> reportProgress());
+    }
+
+    /**
+     * Publishes the starting position and asks the first player to move.
+     */
+    public void start() {
+        nextTurn();
+    }
+
+    /**
+     * @return whether a human player is to move and has not chosen a move yet
+     */
+    public boolean isAwaitingHuman() {
+        return playerToMove instanceof HumanPlayer && ((HumanPlayer) playerToMove).isWaiting();
+    }
+
+    /**
+     * @return whether a computer player is searching for its move
+     */
+    public boolean isThinking() {
+        return playerToMove != null && !(playerToMove instanceof HumanPlayer);
+    }
+
+    /**
+     * Checks whether the human player to move would win by placing a marble on a cell, in
+     * which case the move has no rotation.
+     */
+    public boolean isWinningPlacement(int row, int col) {
+        return game.isWinningPlacement(row, col);
+    }
+
+    /**
+     * Hands in the move of the human player to move. The move is played, and the next
+     * player asked, once the event dispatch thread is free again.
+     * @param row the row to place the marble
+     * @param col the column to place the marble
+     * @param quadrant the quadrant to rotate, from 1 to 4; ignored if the placement wins
+     * @param clockwise whether to rotate clockwise; ignored if the placement wins
+     * @return whether the move was accepted; false if no human is to move, the cell is
+     *         occupied or the quadrant does not exist
+     */
+    public boolean playHumanMove(int row, int col, int quadrant, boolean clockwise) {
+        if (!isAwaitingHuman() || game.getMarble(row, col) != '.') {
+            return false;
+        }
+        if (isWinningPlacement(row, col)) {
+            // The rotation is never played, but the move must still encode the right cell
+            quadrant = 1;
+        } else if (quadrant < 1 || quadrant > 4) {
+            return false;
+        }
+        return ((HumanPlayer) playerToMove).submitMove(Move.encode(row, col, quadrant, clockwise));
+    }
+
+    /**
+     * Tells a thinking player to stop searching and play the best move found so far.
+     * Players that are not {@link ThinkingPlayer}s cannot be hurried.
+     */
+    public void moveNow() {
+        if (playerToMove instanceof ThinkingPlayer && !stopSent) {
+            stopSent = true;
+            ((ThinkingPlayer) playerToMove).stopThinking();
+        }
+    }
+
+    /**
+     * Abandons the game: a running search is stopped, a pending move is cancelled, the
+     * players are closed and the engine thread is shut down. The controller cannot be used
+     * afterwards.
+     */
+    public void shutdown() {
+        closed = true;
+        turn++;
+        moveNow();
+        if (pendingMove != null) {
+            pendingMove.cancel(false);
+        }
+        playerToMove = null;
+        pendingMove = null;
+        progressTimer.stop();
+        engine.shutdownNow();
+        game.getPlayer('X').close();
+        game.getPlayer('O').close();
+    }
+
+    private void nextTurn() {
+        BoardSnapshot snapshot = game.snapshot();
+        if (snapshot.isGameOver()) {
+            stopPondering();
+        }
+        if (!closed && !snapshot.isGameOver()) {
+            int thisTurn = ++turn;
+            playerToMove = game.getCurrentPlayer();
+            stopSent = false;
+            pendingMove = playerToMove.requestMove(snapshot, moveTimeoutMillis, engine);
+            pendingMove.whenComplete((move, error) ->
+                    SwingUtilities.invokeLater(() -> finishMove(thisTurn, move, error)));
+            if (isThinking()) {
+                progressTimer.start();
+            } else {
+                Player opponent = game.getPlayer(snapshot.getSideToMove() == 'X' ? 'O' : 'X');
+                if (opponent instanceof ThinkingPlayer) {
+                    ((ThinkingPlayer) opponent).ponder(snapshot);
+                }
+            }
+        }
+        listener.positionChanged(snapshot);
+    }
+
+    private void finishMove(int thisTurn, Integer move, Throwable error) {
+        if (thisTurn != turn) {
+            return; // The game was abandoned while the player was thinking
+        }
+        Player player = playerToMove;
+        playerToMove = null;
+        pendingMove = null;
+        progressTimer.stop();
+        if (error == null && !game.playMove(move)) {
+            error = new IllegalStateException("Player " + player.getMarble() + " chose an occupied cell: "
+                    + Move.toString(move));
+        }
+        if (error != null) {
+            closed = true;
+            listener.engineFailed(player.getMarble(), error instanceof CompletionException ? error.getCause() : error);
+            return;
+        }
+        nextTurn();
+    }
+
+    private void stopPondering() {
+        for (char marble : new char[] {'X', 'O'}) {
+            if (game.getPlayer(marble) instanceof ThinkingPlayer) {
+                ((ThinkingPlayer) game.getPlayer(marble)).stopPondering();
+            }
+        }
+    }
+
+    private void reportProgress() {
+        if (playerToMove instanceof ThinkingPlayer) {
+            listener.thinking(playerToMove.getMarble(), ((ThinkingPlayer) playerToMove).getProgress());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+
+/**
+ * Drives games through the controller with the event dispatch thread standing in for the GUI.
+ */
+public class GameControllerTest {
+    @Test
+    public void testComputerGameIsPlayedOffTheEventThread() throws Exception {
+        Pentago game = new Pentago(new AIGreedyPlayer('X', 1L), new AIGreedyPlayer('O', 2L));
+        RecordingListener listener = new RecordingListener();
+        SwingUtilities.invokeAndWait(() -> new GameController(game, listener, 1000).start());
+
+        assertTrue(listener.finished.await(30, TimeUnit.SECONDS));
+        assertFalse(listener.calledOffEventThread);
+        BoardSnapshot last = listener.positions.get(listener.positions.size() - 1);
+        assertTrue(last.isGameOver());
+        int marbles = 0;
+        for (int i = 0; i < GameBoard.CELL_COUNT; i++) {
+            marbles += last.toString().charAt(i) == '.' ? 0 : 1;
+        }
+        // One position per move plus the starting position
+        assertEquals(marbles + 1, listener.positions.size());
+    }
+
+    @Test
+    public void testThinkingPlayerIsStoppedAtTheTimeout() throws Exception {
+        Player ai = new AIAlphaBetaPlayer('X', 60_000, 4, 1);
+        HumanPlayer human = new HumanPlayer('O');
+        Pentago game = new Pentago(ai, human);
+        RecordingListener listener = new RecordingListener();
+        long start = System.nanoTime();
+        GameController[] controller = new GameController[1];
+        SwingUtilities.invokeAndWait(() -> {
+            controller[0] = new GameController(game, listener, 500);
+            controller[0].start();
+        });
+
+        while (!human.isWaiting()) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(20));
+            Thread.sleep(10);
+        }
+        assertTrue(listener.progressReports.get() > 0);
+        SwingUtilities.invokeAndWait(() -> {
+            assertTrue(controller[0].isAwaitingHuman());
+            String cells = listener.positions.get(listener.positions.size() - 1).toString();
+            int cell = cells.indexOf('.');
+            // A closed quadrant dialog must not turn into a move on another cell
+            assertFalse(controller[0].playHumanMove(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, 0, true));
+            assertFalse(controller[0].playHumanMove(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, 5, true));
+            assertTrue(controller[0].isAwaitingHuman());
+            assertTrue(controller[0].playHumanMove(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, 1, true));
+            assertFalse(controller[0].isAwaitingHuman());
+            controller[0].shutdown();
+            assertFalse(controller[0].isThinking());
+        });
+        assertFalse(listener.calledOffEventThread);
+    }
+
+    @Test
+    public void testEnginePondersWhileTheHumanThinks() throws Exception {
+        AIAlphaBetaPlayer ai = new AIAlphaBetaPlayer('X', 200, 4, 1);
+        HumanPlayer human = new HumanPlayer('O');
+        Pentago game = new Pentago(ai, human);
+        RecordingListener listener = new RecordingListener();
+        long start = System.nanoTime();
+        GameController[] controller = new GameController[1];
+        SwingUtilities.invokeAndWait(() -> {
+            controller[0] = new GameController(game, listener, 10_000);
+            controller[0].start();
+        });
+
+        while (!human.isWaiting()) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(20));
+            Thread.sleep(10);
+        }
+        assertTrue(ai.isPondering());
+        SwingUtilities.invokeAndWait(() -> {
+            String cells = listener.positions.get(listener.positions.size() - 1).toString();
+            int cell = cells.indexOf('.');
+            assertTrue(controller[0].playHumanMove(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, 1, true));
+        });
+        // The engine's move ends the pondering before the human is asked again
+        while (listener.positions.size() < 4) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(20));
+            Thread.sleep(10);
+        }
+        SwingUtilities.invokeAndWait(() -> controller[0].shutdown());
+        assertFalse(ai.isPondering());
+        assertFalse(listener.calledOffEventThread);
+    }
+
+    private static class RecordingListener implements GameController.Listener {
+        final List<BoardSnapshot> positions = new ArrayList<>();
+        final AtomicInteger progressReports = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean calledOffEventThread;
+
+        @Override
+        public void positionChanged(BoardSnapshot snapshot) {
+            checkThread();
+            positions.add(snapshot);
+            if (snapshot.isGameOver()) {
+                finished.countDown();
+            }
+        }
+
+        @Override
+        public void thinking(char marble, SearchProgress progress) {
+            checkThread();
+            progressReports.incrementAndGet();
+        }
+
+        @Override
+        public void engineFailed(char marble, Throwable error) {
+            fail("Player " + marble + " failed: " + error);
+        }
+
+        private void checkThread() {
+            if (!SwingUtilities.isEventDispatchThread()) {
+                calledOffEventThread = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for every finished game, whether played headless, in the GUI or
+ * on the server. {@link #record} also counts the result in the {@link Metrics} registry.
+ */
+@Name("pentago.GameEnd")
+@Label("Game End")
+@Category("Pentago")
+@Description("A finished game and its result")
+public class GameEndEvent extends Event {
+    private static final LongAdder GAMES = Metrics.getDefault().counter("games.finished");
+    private static final LongAdder X_WINS = Metrics.getDefault().counter("games.x_wins");
+    private static final LongAdder O_WINS = Metrics.getDefault().counter("games.o_wins");
+    private static final LongAdder DRAWS = Metrics.getDefault().counter("games.draws");
+    private static final LongAdder MOVES = Metrics.getDefault().counter("games.moves");
+
+    @Label("Result")
+    @Description("X, O, or = for a draw")
+    char result;
+
+    @Label("Moves")
+    int moves;
+
+    @Label("Player X")
+    String playerX;
+
+    @Label("Player O")
+    String playerO;
+
+    /**
+     * Counts a finished game and emits its event.
+     * @param board the final position
+     * @param playerX the name of the X player
+     * @param playerO the name of the O player
+     */
+    public static void record(GameBoard board, String playerX, String playerO) {
+        char winner = board.checkWinner();
+        char result = winner == '.' ? GameBoard.DRAW : winner;
+        int moves = GameBoard.CELL_COUNT - board.getEmptyCount();
+        GAMES.increment();
+        MOVES.add(moves);
+        (result == 'X' ? X_WINS : result == 'O' ? O_WINS : DRAWS).increment();
+        GameEndEvent event = new GameEndEvent();
+        if (event.shouldCommit()) {
+            event.result = result;
+            event.moves = moves;
+            event.playerX = playerX;
+            event.playerO = playerO;
+            event.commit();
+        }
+    }
+}
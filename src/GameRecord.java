@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * The moves of one game from the empty board, and its result.
+ * <p>
+ * In a record file every move is one token: the rank of its cell among the empty cells,
+ * in row-major order, times {@link Move#ROTATIONS} plus its rotation. Tokens below 255 take
+ * one byte. Larger ones, which only the first few moves of a game can produce, are written
+ * as the escape byte 0xFF followed by the token minus 255. See {@link GameRecordWriter}.
+ */
+public final class GameRecord {
+    /** The largest number of moves in a game. */
+    public static final int MAX_MOVES = GameBoard.CELL_COUNT;
+
+    static final int ESCAPE = 0xFF;
+
+    private final int[] moves;
+    private final char result;
+
+    /**
+     * @param moves the encoded moves in the order played, see {@link Move}
+     * @param result 'X', 'O', GameBoard.DRAW, or '.' if the game was not finished
+     */
+    public GameRecord(int[] moves, char result) {
+        if (moves.length > MAX_MOVES) {
+            throw new IllegalArgumentException("Too many moves: " + moves.length);
+        }
+        this.moves = moves.clone();
+        this.result = result;
+    }
+
+    /**
+     * Records a game, taking its result from the final position.
+     * @param moves the encoded moves in the order played
+     * @return the record
+     * @throws IllegalArgumentException if a move is illegal or follows the end of the game
+     */
+    public static GameRecord of(int[] moves) {
+        GameBoard[] positions = replay(moves);
+        GameBoard last = positions[positions.length - 1];
+        char result = '.';
+        if (last.isGameOver()) {
+            char winner = last.checkWinner();
+            result = winner == '.' ? GameBoard.DRAW : winner;
+        }
+        return new GameRecord(moves, result);
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @param ply the number of moves played before this one
+     * @return the encoded move
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * @return 'X', 'O', GameBoard.DRAW, or '.' if the game was not finished
+     */
+    public char getResult() {
+        return result;
+    }
+
+    /**
+     * Plays the game through.
+     * @return the position before every move and the final position, so one more than the moves
+     * @throws IllegalArgumentException if a move is illegal or follows the end of the game
+     */
+    public GameBoard[] replay() {
+        return replay(moves);
+    }
+
+    private static GameBoard[] replay(int[] moves) {
+        GameBoard[] positions = new GameBoard[moves.length + 1];
+        GameBoard board = new GameBoard();
+        positions[0] = new GameBoard(board);
+        for (int ply = 0; ply < moves.length; ply++) {
+            if (board.isGameOver()) {
+                throw new IllegalArgumentException("Move " + (ply + 1) + " follows the end of the game");
+            }
+            if (!board.playMove(moves[ply], board.getSideToMove())) {
+                throw new IllegalArgumentException("Move " + (ply + 1) + " is illegal: " + Move.toString(moves[ply]));
+            }
+            positions[ply + 1] = new GameBoard(board);
+        }
+        return positions;
+    }
+
+    /**
+     * Converts a move to its token in the given position.
+     */
+    static int toToken(GameBoard position, int move) {
+        int cell = Move.cell(move);
+        long empty = emptyCells(position);
+        if ((empty & (1L << cell)) == 0) {
+            throw new IllegalArgumentException("Cell is occupied: " + Move.toString(move));
+        }
+        int rank = Long.bitCount(empty & ((1L << cell) - 1));
+        return rank * Move.ROTATIONS + Move.rotation(move);
+    }
+
+    /**
+     * Converts a token back to the move it stands for in the given position.
+     */
+    static int fromToken(GameBoard position, int token) {
+        long empty = emptyCells(position);
+        int rank = token / Move.ROTATIONS;
+        if (rank >= Long.bitCount(empty)) {
+            throw new IllegalArgumentException("Invalid token " + token + " with " + Long.bitCount(empty) + " empty cells");
+        }
+        for (int i = 0; i < rank; i++) {
+            empty &= empty - 1;
+        }
+        return Move.of(Long.numberOfTrailingZeros(empty), token % Move.ROTATIONS);
+    }
+
+    private static long emptyCells(GameBoard position) {
+        return ~(position.getMarbleBits('X') | position.getMarbleBits('O')) & ((1L << GameBoard.CELL_COUNT) - 1);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GameRecord && result == ((GameRecord) other).result
+                && Arrays.equals(moves, ((GameRecord) other).moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(moves) * 31 + result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int move : moves) {
+            text.append(Move.toString(move)).append(' ');
+        }
+        return text.append(result).toString();
+    }
+}
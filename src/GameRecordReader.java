@@ -0,0 +1,120 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams {@link GameRecord}s from a channel written by {@link GameRecordWriter}, through a
+ * fixed buffer, so archives of any size can be read without holding them in memory.
+ * <p>
+ * Not thread-safe.
+ */
+public class GameRecordReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+    private final GameBoard board = new GameBoard();
+    private final GameBoard empty = new GameBoard();
+    private boolean endOfChannel;
+    private long records;
+
+    /**
+     * Reads the file header.
+     * @param channel the channel to read from; closed by {@link #close()}
+     * @throws IOException if the header is missing or not a supported version
+     */
+    public GameRecordReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip();
+        if (!fill(5) || buffer.getInt() != GameRecordWriter.MAGIC) {
+            throw new IOException("Not a game record file");
+        }
+        int version = buffer.get();
+        if (version != GameRecordWriter.VERSION) {
+            throw new IOException("Unsupported game record version: " + version);
+        }
+    }
+
+    /**
+     * Opens a record file.
+     * @param path the file
+     * @return a reader positioned at the first record
+     * @throws IOException if the file cannot be opened or has no valid header
+     */
+    public static GameRecordReader open(Path path) throws IOException {
+        return new GameRecordReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads the next record.
+     * @return the record, or null at the end of the channel
+     * @throws IOException if the channel fails or the record is truncated or invalid
+     */
+    public GameRecord read() throws IOException {
+        if (!fill(1)) {
+            return null;
+        }
+        if (!fill(2)) {
+            throw new EOFException("Truncated record " + (records + 1));
+        }
+        int count = buffer.get() & 0xFF;
+        int resultIndex = buffer.get() & 0xFF;
+        if (count > GameRecord.MAX_MOVES || resultIndex >= GameRecordWriter.RESULTS.length()) {
+            throw new IOException("Invalid header of record " + (records + 1));
+        }
+        int[] moves = new int[count];
+        board.copyFrom(empty);
+        try {
+            for (int ply = 0; ply < count; ply++) {
+                int token = nextByte();
+                if (token == GameRecord.ESCAPE) {
+                    token += nextByte();
+                }
+                moves[ply] = GameRecord.fromToken(board, token);
+                board.playMove(moves[ply], board.getSideToMove());
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid move in record " + (records + 1), e);
+        }
+        records++;
+        return new GameRecord(moves, GameRecordWriter.RESULTS.charAt(resultIndex));
+    }
+
+    /**
+     * @return the number of records read
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int nextByte() throws IOException {
+        if (!fill(1)) {
+            throw new EOFException("Truncated record " + (records + 1));
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads from the channel until at least the given number of bytes is buffered.
+     * @return false if the channel ended first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes && !endOfChannel) {
+            endOfChannel = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
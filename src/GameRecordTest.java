@@ -0,0 +1,110 @@
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Round-trips random games through the record format.
+ */
+public class GameRecordTest {
+    @Test
+    public void testArchiveRoundTrip() throws IOException {
+        List<GameRecord> games = randomGames(3L, 5000);
+        Path file = Files.createTempFile("games", ".pgr");
+        try {
+            try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+                for (GameRecord game : games) {
+                    writer.write(game);
+                }
+                assertEquals(games.size(), writer.getRecordCount());
+            }
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                for (GameRecord game : games) {
+                    assertEquals(game, reader.read());
+                }
+                assertNull(reader.read());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMovesTakeOneByteUnlessEscaped() throws IOException {
+        // Cell 35 is the last of 36 empty cells, so its tokens need the escape byte
+        int[] moves = {Move.of(35, 7), Move.of(0, 0)};
+        byte[] bytes = write(new GameRecord(moves, '.'));
+        assertEquals(5 + 2 + 2 + 1, bytes.length);
+        assertEquals((byte) GameRecord.ESCAPE, bytes[7]);
+        assertEquals(new GameRecord(moves, '.'), read(bytes).get(0));
+    }
+
+    @Test
+    public void testReplayMatchesThePlayedGame() {
+        HeadlessGame.Result result = new HeadlessGame(new AIGreedyPlayer('X', 4L), new AIGreedyPlayer('O', 5L)).play();
+        GameRecord record = result.getRecord();
+        assertEquals(result.getPlies(), record.getMoveCount());
+        assertEquals(record, GameRecord.of(moves(record)));
+        GameBoard last = record.replay()[record.getMoveCount()];
+        assertTrue(last.isGameOver());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedArchiveIsRejected() throws IOException {
+        byte[] bytes = write(randomGames(6L, 1).get(0));
+        read(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    private static List<GameRecord> randomGames(long seed, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GameRecord> games = new ArrayList<>();
+        int[] moves = new int[Move.MAX_MOVES];
+        for (int i = 0; i < count; i++) {
+            GameBoard board = new GameBoard();
+            int[] played = new int[GameRecord.MAX_MOVES];
+            int plies = 0;
+            while (!board.isGameOver()) {
+                int move = moves[random.nextInt(board.generateMoves(moves))];
+                board.playMove(move, board.getSideToMove());
+                played[plies++] = move;
+            }
+            games.add(GameRecord.of(Arrays.copyOf(played, plies)));
+        }
+        return games;
+    }
+
+    private static int[] moves(GameRecord record) {
+        int[] moves = new int[record.getMoveCount()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = record.getMove(ply);
+        }
+        return moves;
+    }
+
+    private static byte[] write(GameRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+            writer.write(record);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<GameRecord> read(byte[] bytes) throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        try (GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams {@link GameRecord}s to a channel through a fixed buffer, so archives of any size
+ * can be written without holding them in memory.
+ * <p>
+ * A file starts with the magic {@code "PGR1"} and a format version byte. Every record is a
+ * move-count byte, a result byte (0 unfinished, 1 X, 2 O, 3 draw) and the move tokens
+ * described in {@link GameRecord}. A typical game of 20 moves takes about 23 bytes.
+ * <p>
+ * Not thread-safe.
+ */
+public class GameRecordWriter implements Closeable {
+    static final int MAGIC = 0x50475231; // "PGR1"
+    static final int VERSION = 1;
+    static final int BUFFER_SIZE = 1 << 16;
+    static final String RESULTS = ".XO" + GameBoard.DRAW;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final GameBoard board = new GameBoard();
+    private final GameBoard empty = new GameBoard();
+    private long records;
+
+    /**
+     * Writes the file header.
+     * @param channel the channel to write to; closed by {@link #close()}
+     * @throws IOException if the header cannot be written
+     */
+    public GameRecordWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+    }
+
+    /**
+     * Creates or replaces a record file.
+     * @param path the file
+     * @return a writer for the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static GameRecordWriter open(Path path) throws IOException {
+        return new GameRecordWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Appends a record.
+     * @param record the game
+     * @throws IOException if the buffer cannot be flushed
+     * @throws IllegalArgumentException if a move of the record is illegal
+     */
+    public void write(GameRecord record) throws IOException {
+        int result = RESULTS.indexOf(record.getResult());
+        if (result < 0) {
+            throw new IllegalArgumentException("Invalid result: " + record.getResult());
+        }
+        int count = record.getMoveCount();
+        if (buffer.remaining() < 2 + 2 * count) {
+            flush();
+        }
+        int start = buffer.position();
+        buffer.put((byte) count);
+        buffer.put((byte) result);
+        board.copyFrom(empty);
+        try {
+            for (int ply = 0; ply < count; ply++) {
+                int move = record.getMove(ply);
+                int token = GameRecord.toToken(board, move);
+                if (token >= GameRecord.ESCAPE) {
+                    buffer.put((byte) GameRecord.ESCAPE);
+                    token -= GameRecord.ESCAPE;
+                }
+                buffer.put((byte) token);
+                board.playMove(move, board.getSideToMove());
+            }
+        } catch (IllegalArgumentException e) {
+            buffer.position(start); // Leave no partial record behind
+            throw e;
+        }
+        records++;
+    }
+
+    /**
+     * @return the number of records written
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Writes the buffered records to the channel.
+     * @throws IOException if the channel fails
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reads a game record archive written by {@link GameRecordWriter} and replays its games.
+ * <p>
+ * Always prints a summary of the results and game lengths. With {@code --game N} the
+ * N-th game of the file (counting from 0) is printed move by move. With
+ * {@code --positions FILE} every position before a move is written as one line of
+ * {@code cells side-to-move result}, with the cells as in {@link GameBoard#toString()},
+ * for analysis or training. The archive is streamed, so it may be larger than memory.
+ * <p>
+ * Usage:
+ * <pre>
+ * java GameReplay games.pgr [--game N] [--positions positions.txt]
+ * </pre>
+ */
+public class GameReplay {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: java GameReplay games.pgr [--game N] [--positions FILE]");
+        }
+        String archive = args[0];
+        long gameToShow = -1;
+        String positionsOut = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--game":
+                    gameToShow = Long.parseLong(args[++i]);
+                    break;
+                case "--positions":
+                    positionsOut = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long[] results = new long[GameRecordWriter.RESULTS.length()];
+        long moves = 0;
+        int shortest = GameRecord.MAX_MOVES;
+        int longest = 0;
+        long start = System.nanoTime();
+        try (GameRecordReader reader = GameRecordReader.open(Paths.get(archive));
+             Writer positions = positionsOut == null ? null
+                     : Files.newBufferedWriter(Paths.get(positionsOut), StandardCharsets.US_ASCII)) {
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                long game = reader.getRecordCount() - 1;
+                results[GameRecordWriter.RESULTS.indexOf(record.getResult())]++;
+                moves += record.getMoveCount();
+                shortest = Math.min(shortest, record.getMoveCount());
+                longest = Math.max(longest, record.getMoveCount());
+                if (game == gameToShow) {
+                    printGame(game, record);
+                }
+                if (positions != null) {
+                    writePositions(record, positions);
+                }
+            }
+            long games = reader.getRecordCount();
+            System.out.printf("%d games in %.1f s: X %d, O %d, draws %d, unfinished %d; moves %d-%d, average %.1f%n",
+                    games, (System.nanoTime() - start) / 1e9, results[1], results[2], results[3], results[0],
+                    games == 0 ? 0 : shortest, longest, games == 0 ? 0.0 : (double) moves / games);
+        }
+    }
+
+    private static void printGame(long game, GameRecord record) {
+        GameBoard[] positions = record.replay();
+        System.out.println("Game " + game + ", result " + record.getResult());
+        for (int ply = 0; ply < record.getMoveCount(); ply++) {
+            System.out.println((ply + 1) + ". " + positions[ply].getSideToMove() + " "
+                    + Move.toString(record.getMove(ply)));
+            printBoard(positions[ply + 1]);
+        }
+    }
+
+    private static void printBoard(GameBoard board) {
+        String cells = board.toString();
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            System.out.println("    " + cells.substring(row * GameBoard.GRID_SIZE, (row + 1) * GameBoard.GRID_SIZE));
+        }
+    }
+
+    private static void writePositions(GameRecord record, Writer out) throws IOException {
+        GameBoard[] positions = record.replay();
+        for (int ply = 0; ply < record.getMoveCount(); ply++) {
+            out.write(positions[ply] + " " + positions[ply].getSideToMove() + " " + record.getResult() + "\n");
+        }
+    }
+}
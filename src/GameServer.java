@@ -0,0 +1,560 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts many concurrent games behind a line-based TCP protocol.
+ * <p>
+ * One event-loop thread owns every connection and every game, so game state needs no
+ * locking and a game costs little more than its {@link GameBoard}. Engine seats are served
+ * by one shared pool of search threads, each keeping its own engine per player spec. An
+ * engine is seeded from the id of the game it is created for and its spec, never from the
+ * thread, so the first game to need an engine plays the same on every run. A thread keeps
+ * at most {@value #MAX_ENGINES_PER_THREAD} engines and closes the least recently used one
+ * to make room.
+ * <p>
+ * Seats are parsed without creating an engine. Engines search on a single thread, for at
+ * most {@value #MAX_SEAT_MILLIS} ms per move, and keep at most {@value #MAX_SEAT_MEMORY_MB}
+ * MB in the alpha-beta table and forced-win cache or in the Monte Carlo tree; larger
+ * requests are scaled down. The greedy player only keeps a 4 MB endgame table. A client
+ * that causes an unexpected error is disconnected without affecting other connections.
+ * While a client has replies the server could not yet write, its commands are not read,
+ * and a client whose unwritten replies pass {@value #MAX_PENDING_WRITE_BYTES} bytes is
+ * disconnected, so a client that does not read cannot make the server queue replies
+ * without bound.
+ * Games whose engine is to move wait in a first-come, first-served queue and at most one
+ * search per pool thread is handed to the pool at a time, so a busy server slows all
+ * games evenly instead of queueing work without bound.
+ * <p>
+ * Commands, one per line; every command gets exactly one reply line:
+ * <pre>
+ * NEW &lt;x-seat&gt; &lt;o-seat&gt;      start a game; a seat is "human" or an engine spec such as alphabeta:100
+ * MOVE &lt;id&gt; &lt;row,col,quadrant,cw|ccw&gt;   play the move of the human to move
+ * BOARD &lt;id&gt;                   show the game at once, even while an engine is thinking
+ * CLOSE &lt;id&gt;                   end the game
+ * </pre>
+ * NEW and MOVE are answered once a human is to move or the game is over, with
+ * {@code STATE <id> <cells> <side-to-move> <result>}, where the cells are in the form of
+ * {@link GameBoard#toString()} and the result is '.' while the game goes on, 'X', 'O' or
+ * {@code =} for a draw. CLOSE is answered with {@code CLOSED <id>} and errors with
+ * {@code ERROR <message>}. Replies to different games may arrive in any order. Games end
+ * when their connection closes, or with an ERROR reply when an engine fails or answers
+ * with an illegal move.
+ * <p>
+ * Usage:
+ * <pre>
+ * java GameServer [--port P] [--threads T]
+ * </pre>
+ * The {@link Metrics} snapshot is printed when the server process exits.
+ */
+public class GameServer implements Runnable, Closeable {
+    public static final int DEFAULT_PORT = 7777;
+
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int READ_BUFFER_SIZE = 4096;
+    /** A client whose unread replies pass this many bytes is disconnected. */
+    private static final int MAX_PENDING_WRITE_BYTES = 1 << 20;
+    private static final String HUMAN = "human";
+    static final long MAX_SEAT_MILLIS = 10_000;
+    static final int MAX_SEAT_MEMORY_MB = 16;
+    static final int MAX_ENGINES_PER_THREAD = 4;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService searchPool;
+    private final int searchThreads;
+    /** The engines of each search thread by spec and side, least recently used first. */
+    private final ThreadLocal<Map<String, Player>> engines =
+            ThreadLocal.withInitial(() -> new LinkedHashMap<>(16, 0.75f, true));
+    /** The engines of all search threads, closed when the server stops. */
+    private final Set<Player> openEngines = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+
+    // Owned by the event-loop thread
+    private final Map<Integer, Session> sessions = new HashMap<>();
+    private final ArrayDeque<Session> waitingForEngine = new ArrayDeque<>();
+    private int searchesInPool;
+    private int nextGameId = 1;
+
+    private volatile boolean running = true;
+    private volatile int activeGames;
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        GameServer server = new GameServer(port, threads);
+        System.out.println("Serving Pentago on port " + server.getPort() + " with " + threads + " search threads");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.print(Metrics.getDefault().snapshot()),
+                "pentago-metrics"));
+        server.run();
+    }
+
+    /**
+     * Opens the listening socket on the loopback interface.
+     * @param port the port, or 0 for any free port
+     * @param searchThreads the number of threads searching engine moves
+     * @throws IOException if the socket cannot be opened
+     */
+    public GameServer(int port, int searchThreads) throws IOException {
+        if (searchThreads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + searchThreads);
+        }
+        this.searchThreads = searchThreads;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        searchPool = Executors.newFixedThreadPool(searchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "pentago-server-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the number of games in progress or waiting to be closed
+     */
+    public int getActiveGames() {
+        return activeGames;
+    }
+
+    /**
+     * Runs the event loop until {@link #close()} is called.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable completion;
+                while ((completion = completions.poll()) != null) {
+                    completion.run();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Server event loop failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            searchPool.shutdownNow();
+            closeEngines();
+        }
+    }
+
+    /**
+     * Stops the running searches and closes every engine once the search threads are done.
+     */
+    private void closeEngines() {
+        for (Player engine : openEngines) {
+            if (engine instanceof ThinkingPlayer) {
+                ((ThinkingPlayer) engine).stopThinking();
+            }
+        }
+        try {
+            searchPool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Player engine : openEngines) {
+            engine.close();
+        }
+        openEngines.clear();
+    }
+
+    /**
+     * Stops the event loop, which then stops the running searches and closes the engines.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                SelectionKey clientKey = channel.register(selector, SelectionKey.OP_READ);
+                clientKey.attach(new Connection(clientKey));
+            }
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Only this client is affected; the loop keeps serving the others
+            disconnect(connection);
+        }
+    }
+
+    private void handleLine(Connection connection, String line) {
+        String[] parts = line.trim().split("\\s+");
+        try {
+            switch (parts[0].toUpperCase()) {
+                case "NEW":
+                    expectArguments(parts, 2);
+                    newGame(connection, parts[1], parts[2]);
+                    break;
+                case "MOVE":
+                    expectArguments(parts, 2);
+                    playHumanMove(sessionOf(connection, parts[1]), parts[2]);
+                    break;
+                case "BOARD":
+                    expectArguments(parts, 1);
+                    connection.send(stateLine(sessionOf(connection, parts[1])));
+                    break;
+                case "CLOSE":
+                    expectArguments(parts, 1);
+                    Session session = sessionOf(connection, parts[1]);
+                    endSession(session);
+                    connection.sessions.remove(session);
+                    connection.send("CLOSED " + session.id);
+                    break;
+                default:
+                    connection.send("ERROR Unknown command: " + parts[0]);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            connection.send("ERROR " + e.getMessage());
+        }
+    }
+
+    private static void expectArguments(String[] parts, int count) {
+        if (parts.length != count + 1) {
+            throw new IllegalArgumentException(parts[0] + " takes " + count + " arguments");
+        }
+    }
+
+    private void newGame(Connection connection, String seatX, String seatO) {
+        Session session = new Session(nextGameId++, connection, seatOf(seatX), seatOf(seatO));
+        sessions.put(session.id, session);
+        connection.sessions.add(session);
+        activeGames = sessions.size();
+        advance(session);
+    }
+
+    /**
+     * @return null for a human seat, otherwise the engine spec within the limits of the server
+     */
+    private static String seatOf(String seat) {
+        if (seat.equalsIgnoreCase(HUMAN)) {
+            return null;
+        }
+        return PlayerFactory.EngineSpec.parse(seat).limit(MAX_SEAT_MILLIS, MAX_SEAT_MEMORY_MB).toString();
+    }
+
+    private Session sessionOf(Connection connection, String id) {
+        Session session;
+        try {
+            session = sessions.get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid game id: " + id);
+        }
+        if (session == null || session.owner != connection) {
+            throw new IllegalArgumentException("No such game: " + id);
+        }
+        return session;
+    }
+
+    private void playHumanMove(Session session, String moveText) {
+        if (session.board.isGameOver()) {
+            throw new IllegalArgumentException("Game " + session.id + " is over");
+        }
+        char side = session.board.getSideToMove();
+        if (session.engineToMove() != null) {
+            throw new IllegalArgumentException("Game " + session.id + " waits for the engine");
+        }
+        if (!session.board.playMove(Move.parse(moveText), side)) {
+            throw new IllegalArgumentException("Cell is occupied: " + moveText);
+        }
+        advance(session);
+    }
+
+    /**
+     * Replies with the game state if a human is to move or the game is over, otherwise
+     * queues the engine move.
+     */
+    private void advance(Session session) {
+        if (session.board.isGameOver()) {
+            GameEndEvent.record(session.board, session.seatX == null ? "human" : session.seatX,
+                    session.seatO == null ? "human" : session.seatO);
+        }
+        if (session.board.isGameOver() || session.engineToMove() == null) {
+            session.owner.send(stateLine(session));
+            return;
+        }
+        waitingForEngine.add(session);
+        startSearches();
+    }
+
+    private void startSearches() {
+        while (searchesInPool < searchThreads && !waitingForEngine.isEmpty()) {
+            Session session = waitingForEngine.poll();
+            if (session.closed) {
+                continue;
+            }
+            String spec = session.engineToMove();
+            char side = session.board.getSideToMove();
+            BoardSnapshot position = BoardSnapshot.of(session.board, side);
+            searchesInPool++;
+            CompletableFuture.supplyAsync(() -> searchMove(session.id, spec, side, position), searchPool)
+                    .whenComplete((move, error) -> {
+                        completions.add(() -> engineMoved(session, move, error));
+                        selector.wakeup();
+                    });
+        }
+    }
+
+    /**
+     * Runs on a search thread with that thread's engine for the spec and side.
+     */
+    private int searchMove(int gameId, String spec, char side, BoardSnapshot position) {
+        Map<String, Player> threadEngines = engines.get();
+        Player engine = threadEngines.get(spec + side);
+        if (engine == null) {
+            if (threadEngines.size() == MAX_ENGINES_PER_THREAD) {
+                Iterator<Player> leastRecentlyUsed = threadEngines.values().iterator();
+                Player evicted = leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                openEngines.remove(evicted);
+                evicted.close();
+            }
+            engine = PlayerFactory.createEngine(spec, side, engineSeed(gameId, spec, side));
+            threadEngines.put(spec + side, engine);
+            openEngines.add(engine);
+        }
+        return engine.requestMove(position, Long.MAX_VALUE, Runnable::run).join();
+    }
+
+    /**
+     * @return the seed of an engine created for a game
+     */
+    private static long engineSeed(int gameId, String spec, char side) {
+        long seed = new SplittableRandom(gameId).nextLong() ^ spec.hashCode();
+        return side == 'X' ? seed : seed ^ 0x5DEECE66DL;
+    }
+
+    private void engineMoved(Session session, Integer move, Throwable error) {
+        searchesInPool--;
+        startSearches();
+        if (session.closed) {
+            return;
+        }
+        String failure = null;
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            failure = cause.toString();
+        } else if (move < 0 || move >= Move.MAX_MOVES
+                || !session.board.playMove(move, session.board.getSideToMove())) {
+            failure = "illegal move " + move;
+        }
+        if (failure != null) {
+            // Nobody else can move for the engine, so the game cannot go on
+            endSession(session);
+            session.owner.send("ERROR Engine failed in game " + session.id + ", game closed: " + failure);
+            return;
+        }
+        try {
+            advance(session);
+        } catch (RuntimeException e) {
+            disconnect(session.owner);
+        }
+    }
+
+    private static String stateLine(Session session) {
+        GameBoard board = session.board;
+        char result = '.';
+        if (board.isGameOver()) {
+            char winner = board.checkWinner();
+            result = winner == '.' ? GameBoard.DRAW : winner;
+        }
+        return "STATE " + session.id + " " + board + " " + board.getSideToMove() + " " + result;
+    }
+
+    private void endSession(Session session) {
+        session.closed = true;
+        sessions.remove(session.id);
+        activeGames = sessions.size();
+    }
+
+    private void disconnect(Connection connection) {
+        for (Session session : connection.sessions) {
+            endSession(session);
+        }
+        connection.sessions.clear();
+        closeQuietly(connection.key);
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Nothing left to do with a broken connection
+        }
+    }
+
+    /**
+     * One game. The side to move follows from the marble counts, since X always moves first.
+     */
+    private static final class Session {
+        final int id;
+        final Connection owner;
+        final String seatX;
+        final String seatO;
+        final GameBoard board = new GameBoard();
+        boolean closed;
+
+        Session(int id, Connection owner, String seatX, String seatO) {
+            this.id = id;
+            this.owner = owner;
+            this.seatX = seatX;
+            this.seatO = seatO;
+        }
+
+        /**
+         * @return the engine spec of the side to move, or null if a human is to move
+         */
+        String engineToMove() {
+            return board.getSideToMove() == 'X' ? seatX : seatO;
+        }
+    }
+
+    /**
+     * A client socket with its partial input line and the replies not yet written.
+     */
+    private final class Connection {
+        final SelectionKey key;
+        final List<Session> sessions = new ArrayList<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final StringBuilder line = new StringBuilder();
+        private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+        private int pendingWriteBytes;
+
+        Connection(SelectionKey key) {
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                disconnect(this);
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining() && key.isValid()) {
+                char c = (char) readBuffer.get();
+                if (c == '\n') {
+                    String text = line.toString();
+                    line.setLength(0);
+                    if (!text.isBlank()) {
+                        handleLine(this, text);
+                    }
+                } else if (c != '\r') {
+                    if (line.length() == MAX_LINE_LENGTH) {
+                        throw new IOException("Line too long");
+                    }
+                    line.append(c);
+                }
+            }
+            readBuffer.clear();
+        }
+
+        void send(String reply) {
+            if (!key.isValid()) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap((reply + "\n").getBytes(StandardCharsets.US_ASCII));
+            if (pendingWriteBytes + buffer.remaining() > MAX_PENDING_WRITE_BYTES) {
+                disconnect(this);
+                return;
+            }
+            pendingWrites.add(buffer);
+            pendingWriteBytes += buffer.remaining();
+            try {
+                flush();
+            } catch (IOException e) {
+                disconnect(this);
+            }
+        }
+
+        /**
+         * Writes as many pending replies as the socket takes. While some are left, the
+         * client's commands are not read, so a client that does not read its replies
+         * cannot make the server queue more of them.
+         */
+        void flush() throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            while (!pendingWrites.isEmpty()) {
+                ByteBuffer buffer = pendingWrites.peek();
+                pendingWriteBytes -= channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                pendingWrites.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+}
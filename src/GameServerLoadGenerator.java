@@ -0,0 +1,230 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many games against a {@link GameServer} at once and reports the move latency:
+ * the time from sending a random human move to receiving the position after the
+ * engine's answer.
+ * <p>
+ * Every connection starts its share of the games at once and keeps all of them going,
+ * so the number of concurrent games is the total number of games.
+ * <p>
+ * Usage:
+ * <pre>
+ * java GameServerLoadGenerator [--host H] [--port P] [--connections C] [--games G]
+ *                              [--engine SPEC] [--seed S] [--embedded] [--threads T]
+ * </pre>
+ * With {@code --embedded} a server with T search threads is started in this JVM, and its
+ * {@link Metrics} snapshot is printed after the report.
+ */
+public class GameServerLoadGenerator {
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = GameServer.DEFAULT_PORT;
+        int connections = 8;
+        int games = 1000;
+        String engine = "greedy";
+        long seed = 1L;
+        boolean embedded = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[++i]);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--engine":
+                    engine = args[++i];
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--embedded":
+                    embedded = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        GameServer server = null;
+        if (embedded) {
+            server = new GameServer(0, threads);
+            port = server.getPort();
+            Thread loop = new Thread(server, "pentago-server");
+            loop.setDaemon(true);
+            loop.start();
+        }
+        try {
+            Report report = run(host, port, connections, games, engine, seed);
+            System.out.println(report);
+            if (embedded) {
+                System.out.print(Metrics.getDefault().snapshot());
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Plays the games, the human side of each choosing random moves.
+     * @param host the server host
+     * @param port the server port
+     * @param connections the number of connections, each with its own thread
+     * @param games the total number of games, all played at once
+     * @param engine the engine spec of the O seat
+     * @param seed the seed of the human moves
+     * @return the latency report
+     */
+    public static Report run(String host, int port, int connections, int games, String engine, long seed)
+            throws IOException, InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int share = games / connections + (i < games % connections ? 1 : 0);
+            long clientSeed = seed + i;
+            results.add(clients.submit(() -> playGames(host, port, share, engine, clientSeed)));
+        }
+        clients.shutdown();
+        long[] latencies = new long[0];
+        try {
+            for (Future<long[]> result : results) {
+                long[] more = result.get();
+                int length = latencies.length;
+                latencies = Arrays.copyOf(latencies, length + more.length);
+                System.arraycopy(more, 0, latencies, length, more.length);
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Client failed", e.getCause());
+        }
+        return new Report(games, latencies, System.nanoTime() - start);
+    }
+
+    /**
+     * Plays the games of one connection as X against the engine.
+     * @return the latency of every move in nanoseconds
+     */
+    private static long[] playGames(String host, int port, int games, String engine, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<Integer, Long> sentAt = new HashMap<>();
+        long[] latencies = new long[games * GameBoard.CELL_COUNT / 2];
+        int moves = 0;
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            for (int i = 0; i < games; i++) {
+                out.write("NEW human " + engine + "\n");
+            }
+            out.flush();
+            int finished = 0;
+            while (finished < games) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Server closed the connection");
+                }
+                String[] parts = line.split(" ");
+                if (parts[0].equals("CLOSED")) {
+                    finished++;
+                    continue;
+                }
+                if (!parts[0].equals("STATE")) {
+                    throw new IOException("Unexpected reply: " + line);
+                }
+                int id = Integer.parseInt(parts[1]);
+                Long sent = sentAt.remove(id);
+                if (sent != null) {
+                    latencies[moves++] = System.nanoTime() - sent;
+                }
+                if (!parts[4].equals(".")) {
+                    out.write("CLOSE " + id + "\n");
+                } else {
+                    out.write("MOVE " + id + " " + Move.toString(randomMove(parts[2], random)) + "\n");
+                    sentAt.put(id, System.nanoTime());
+                }
+                out.flush();
+            }
+        }
+        return Arrays.copyOf(latencies, moves);
+    }
+
+    private static int randomMove(String cells, SplittableRandom random) {
+        int cell;
+        do {
+            cell = random.nextInt(GameBoard.CELL_COUNT);
+        } while (cells.charAt(cell) != '.');
+        return Move.of(cell, random.nextInt(Move.ROTATIONS));
+    }
+
+    /**
+     * Move latencies of a load run.
+     */
+    public static class Report {
+        private final int games;
+        private final long[] sortedLatencies;
+        private final long elapsedNanos;
+
+        Report(int games, long[] latencies, long elapsedNanos) {
+            this.games = games;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public int getMoves() {
+            return sortedLatencies.length;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency at that percentile in nanoseconds, or 0 if no move was played
+         */
+        public long getLatencyNanos(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%d games, %d moves in %.1f s (%.0f moves/s); latency p50 %d us, p99 %d us, max %d us",
+                    games, getMoves(), seconds, getMoves() / seconds, getLatencyNanos(50) / 1000,
+                    getLatencyNanos(99) / 1000, getLatencyNanos(100) / 1000);
+        }
+    }
+}
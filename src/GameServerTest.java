@@ -0,0 +1,186 @@
+import static org.junit.Assert.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * Talks to a server in this JVM over the loopback interface.
+ */
+public class GameServerTest {
+    @Test
+    public void testProtocol() throws Exception {
+        GameServer server = startServer();
+        try (Socket socket = new Socket("127.0.0.1", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            out.write("NEW human greedy\n");
+            out.flush();
+            String[] state = in.readLine().split(" ");
+            assertEquals("STATE", state[0]);
+            String id = state[1];
+            assertEquals("....................................", state[2]);
+            assertEquals("X", state[3]);
+            assertEquals(".", state[4]);
+
+            // The reply comes after the engine has answered
+            out.write("MOVE " + id + " 0,0,4,cw\n");
+            out.flush();
+            state = in.readLine().split(" ");
+            assertEquals(34, state[2].chars().filter(c -> c == '.').count());
+            assertEquals('X', state[2].charAt(0));
+            assertEquals("X", state[3]);
+
+            out.write("MOVE " + id + " 0,0,1,cw\nMOVE 999 1,1,1,cw\nNEW human nobody\nFOO\n");
+            out.flush();
+            for (int i = 0; i < 4; i++) {
+                assertTrue(in.readLine().startsWith("ERROR "));
+            }
+
+            out.write("BOARD " + id + "\nCLOSE " + id + "\nBOARD " + id + "\n");
+            out.flush();
+            assertEquals(String.join(" ", state), in.readLine());
+            assertEquals("CLOSED " + id, in.readLine());
+            assertTrue(in.readLine().startsWith("ERROR "));
+            assertEquals(0, server.getActiveGames());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testEngineGamePlaysToTheEnd() throws Exception {
+        GameServer server = startServer();
+        try (Socket socket = new Socket("127.0.0.1", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            out.write("NEW greedy greedy\n");
+            out.flush();
+            String[] state = in.readLine().split(" ");
+            assertNotEquals(".", state[4]);
+            GameBoard board = GameBoard.fromString(state[2]);
+            assertTrue(board.isGameOver());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testLoadGeneratorFinishesEveryGame() throws Exception {
+        GameServer server = startServer();
+        try {
+            GameServerLoadGenerator.Report report = GameServerLoadGenerator.run("127.0.0.1", server.getPort(),
+                    3, 50, "greedy", 7L);
+            assertEquals(50, report.getGames());
+            assertTrue(report.getMoves() >= 50 * 2);
+            assertTrue(report.getLatencyNanos(50) <= report.getLatencyNanos(99));
+            assertEquals(0, server.getActiveGames());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testEngineSeatsAreLimited() throws Exception {
+        long helpersBefore = mctsHelperThreads();
+        GameServer server = startServer();
+        try (Socket socket = new Socket("127.0.0.1", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            // Neither seat may allocate a huge table or start helper threads
+            out.write("NEW alphabeta:1:4096 human\nNEW mcts:1:50 human\nNEW alphabeta:0 human\n");
+            out.flush();
+            int states = 0;
+            int errors = 0;
+            for (int i = 0; i < 3; i++) {
+                String reply = in.readLine();
+                if (reply.startsWith("STATE ")) {
+                    states++;
+                } else if (reply.startsWith("ERROR ")) {
+                    errors++;
+                }
+            }
+            assertEquals(2, states);
+            assertEquals(1, errors);
+            assertTrue(mctsHelperThreads() <= helpersBefore);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testClientThatDoesNotReadIsNotServed() throws Exception {
+        GameServer server = startServer();
+        AtomicLong commands = new AtomicLong();
+        try (Socket idle = new Socket("127.0.0.1", server.getPort());
+             Socket socket = new Socket("127.0.0.1", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            Thread flood = new Thread(() -> {
+                try {
+                    OutputStream stream = idle.getOutputStream();
+                    stream.write("NEW human human\n".getBytes(StandardCharsets.US_ASCII));
+                    byte[] batch = "BOARD 1\n".repeat(1000).getBytes(StandardCharsets.US_ASCII);
+                    while (true) {
+                        stream.write(batch);
+                        commands.addAndGet(1000);
+                    }
+                } catch (IOException e) {
+                    // The test closes the socket
+                }
+            }, "pentago-flood");
+            flood.setDaemon(true);
+            flood.start();
+
+            // Once the replies fill the socket buffers the server stops reading, so the writes block
+            int stalledPolls = 0;
+            for (int i = 0; i < 40 && stalledPolls < 8; i++) {
+                long before = commands.get();
+                Thread.sleep(250);
+                stalledPolls = before > 0 && commands.get() == before ? stalledPolls + 1 : 0;
+            }
+            assertEquals(8, stalledPolls);
+
+            out.write("NEW human human\n");
+            out.flush();
+            assertTrue(in.readLine().startsWith("STATE "));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSeatSpecsAreScaledDown() {
+        assertEquals("alphabeta:10000:" + (GameServer.MAX_SEAT_MEMORY_MB - AIAlphaBetaPlayer.FORCED_WIN_CACHE_SIZE_MB),
+                seat("alphabeta:60000:4096"));
+        assertEquals("alphabeta:100:2", seat("alphabeta:100:2"));
+        assertEquals("mcts:10000:1:" + GameServer.MAX_SEAT_MEMORY_MB, seat("mcts:60000:8:4096"));
+        assertEquals("mcts:100:1:2", seat("mcts:100:1:2"));
+        assertEquals("greedy", seat("greedy"));
+    }
+
+    private static String seat(String spec) {
+        return PlayerFactory.EngineSpec.parse(spec)
+                .limit(GameServer.MAX_SEAT_MILLIS, GameServer.MAX_SEAT_MEMORY_MB).toString();
+    }
+
+    private static long mctsHelperThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("pentago-mcts-helper"))
+                .count();
+    }
+
+    private static GameServer startServer() throws Exception {
+        GameServer server = new GameServer(0, 2);
+        Thread loop = new Thread(server, "pentago-server");
+        loop.setDaemon(true);
+        loop.start();
+        return server;
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Plays one game between two computer players without any user interface.
+ * X moves first; the game ends when a player has five in a row or the board is full.
+ * <p>
+ * {@link #play()} uses the calling thread for the whole game. {@link #playAsync} asks for
+ * every move with {@link Player#requestMove} instead and holds no thread between moves,
+ * so many games can share a small pool.
+ */
+public class HeadlessGame {
+    private final Player playerX;
+    private final Player playerO;
+
+    public HeadlessGame(Player playerX, Player playerO) {
+        if (playerX.getMarble() != 'X' || playerO.getMarble() != 'O') {
+            throw new IllegalArgumentException("Players must play X and O");
+        }
+        this.playerX = playerX;
+        this.playerO = playerO;
+    }
+
+    /**
+     * Plays the game to the end.
+     * @return the outcome and timing of the game
+     * @throws IllegalStateException if a player does not place a marble on its turn
+     */
+    public Result play() {
+        GameBoard board = new GameBoard();
+        GameBoard before = new GameBoard();
+        int[] moves = new int[GameRecord.MAX_MOVES];
+        int plies = 0;
+        long totalMoveNanos = 0;
+        long maxMoveNanos = 0;
+        while (!board.isGameOver()) {
+            Player player = (plies % 2 == 0) ? playerX : playerO;
+            before.copyFrom(board);
+            long start = System.nanoTime();
+            player.makeMove(board);
+            long elapsed = System.nanoTime() - start;
+            if (board.getEmptyCount() != before.getEmptyCount() - 1) {
+                throw new IllegalStateException("Player " + player.getMarble() + " did not place one marble");
+            }
+            moves[plies] = before.findMove(board, player.getMarble());
+            totalMoveNanos += elapsed;
+            maxMoveNanos = Math.max(maxMoveNanos, elapsed);
+            plies++;
+        }
+        GameEndEvent.record(board, playerName(playerX), playerName(playerO));
+        char winner = board.checkWinner();
+        return new Result(winner == '.' ? GameBoard.DRAW : winner, plies, totalMoveNanos, maxMoveNanos,
+                Arrays.copyOf(moves, plies));
+    }
+
+    /**
+     * Plays the game to the end without blocking. Move times are measured from the request
+     * to the answer, so they include any time a move waited for a free thread.
+     * @param executor runs the work of finding the moves
+     * @return the outcome and timing of the game; completes exceptionally if a player fails
+     */
+    public CompletableFuture<Result> playAsync(Executor executor) {
+        return continueGame(new GameBoard(), new int[GameRecord.MAX_MOVES], 0, 0, 0, executor);
+    }
+
+    private CompletableFuture<Result> continueGame(GameBoard board, int[] moves, int plies, long totalMoveNanos,
+                                                   long maxMoveNanos, Executor executor) {
+        if (board.isGameOver()) {
+            GameEndEvent.record(board, playerName(playerX), playerName(playerO));
+            char winner = board.checkWinner();
+            return CompletableFuture.completedFuture(new Result(winner == '.' ? GameBoard.DRAW : winner, plies,
+                    totalMoveNanos, maxMoveNanos, Arrays.copyOf(moves, plies)));
+        }
+        Player player = (plies % 2 == 0) ? playerX : playerO;
+        long start = System.nanoTime();
+        return player.requestMove(BoardSnapshot.of(board, player.getMarble()), Long.MAX_VALUE, executor)
+                .thenCompose(move -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (!board.playMove(move, player.getMarble())) {
+                        throw new IllegalStateException("Player " + player.getMarble() + " chose an occupied cell");
+                    }
+                    moves[plies] = move;
+                    return continueGame(board, moves, plies + 1, totalMoveNanos + elapsed,
+                            Math.max(maxMoveNanos, elapsed), executor);
+                });
+    }
+
+    private static String playerName(Player player) {
+        return player.getClass().getSimpleName();
+    }
+
+    /**
+     * The outcome of a finished game.
+     */
+    public static class Result {
+        private final char winner;
+        private final int plies;
+        private final long totalMoveNanos;
+        private final long maxMoveNanos;
+        private final int[] moves;
+
+        public Result(char winner, int plies, long totalMoveNanos, long maxMoveNanos, int[] moves) {
+            this.winner = winner;
+            this.plies = plies;
+            this.totalMoveNanos = totalMoveNanos;
+            this.maxMoveNanos = maxMoveNanos;
+            this.moves = moves;
+        }
+
+        /**
+         * @return 'X', 'O' or GameBoard.DRAW
+         */
+        public char getWinner() {
+            return winner;
+        }
+
+        public int getPlies() {
+            return plies;
+        }
+
+        public long getTotalMoveNanos() {
+            return totalMoveNanos;
+        }
+
+        public long getMaxMoveNanos() {
+            return maxMoveNanos;
+        }
+
+        public long getAverageMoveNanos() {
+            return plies == 0 ? 0 : totalMoveNanos / plies;
+        }
+
+        /**
+         * @return the moves of the game, for archiving with a {@link GameRecordWriter}
+         */
+        public GameRecord getRecord() {
+            return new GameRecord(moves, winner);
+        }
+    }
+}
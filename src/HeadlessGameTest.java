@@ -0,0 +1,62 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Plays games through the asynchronous move requests.
+ */
+public class HeadlessGameTest {
+    @Test
+    public void testAsyncGamesShareASmallPool() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<CompletableFuture<HeadlessGame.Result>> games = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                HeadlessGame game = new HeadlessGame(new AIGreedyPlayer('X', 2L * i), new AIGreedyPlayer('O', 2L * i + 1));
+                games.add(game.playAsync(pool));
+            }
+            for (int i = 0; i < games.size(); i++) {
+                HeadlessGame.Result async = games.get(i).get(30, TimeUnit.SECONDS);
+                HeadlessGame.Result blocking = new HeadlessGame(new AIGreedyPlayer('X', 2L * i),
+                        new AIGreedyPlayer('O', 2L * i + 1)).play();
+                assertEquals(blocking.getWinner(), async.getWinner());
+                assertEquals(blocking.getPlies(), async.getPlies());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testHumanMoveCompletesTheRequest() throws Exception {
+        HumanPlayer human = new HumanPlayer('X');
+        BoardSnapshot empty = BoardSnapshot.of(new GameBoard(), 'X');
+        CompletableFuture<Integer> move = human.requestMove(empty, 1000, Runnable::run);
+        assertTrue(human.isWaiting());
+        assertFalse(move.isDone());
+        assertTrue(human.submitMove(Move.encode(2, 3, 4, false)));
+        assertEquals(Move.encode(2, 3, 4, false), (int) move.get());
+        assertFalse(human.isWaiting());
+        assertFalse(human.submitMove(Move.encode(1, 1, 1, true)));
+    }
+
+    @Test
+    public void testThinkingPlayerStopsAtTheTimeLimit() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            AIAlphaBetaPlayer player = new AIAlphaBetaPlayer('X', 60_000, 4, 1);
+            GameBoard board = new GameBoard();
+            long start = System.nanoTime();
+            int move = player.requestMove(BoardSnapshot.of(board, 'X'), 300, pool).get(20, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(20));
+            assertTrue(board.playMove(move, 'X'));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
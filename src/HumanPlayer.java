@@ -1,12 +1,16 @@
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+/**
+ * A person at the user interface. A requested move stays pending until the interface
+ * hands in the person's choice with {@link #submitMove}.
+ */
 public class HumanPlayer implements Player {
     private final char marble;
-    private final Consumer<HumanPlayer> moveRequestCallback;
+    private CompletableFuture<Integer> pendingMove;
 
-    public HumanPlayer(char marble, Consumer<HumanPlayer> moveRequestCallback) {
+    public HumanPlayer(char marble) {
         this.marble = marble;
-        this.moveRequestCallback = moveRequestCallback;
     }
 
     @Override
@@ -14,11 +18,55 @@ public class HumanPlayer implements Player {
         return marble;
     }
 
+    /**
+     * Waits for the move to be submitted and plays it.
+     */
     @Override
     public void makeMove(GameBoard board) {
-        // Notify the GUI that it's time for this player to make a move
-        if (moveRequestCallback != null) {
-            moveRequestCallback.accept(this);
+        int move = requestMove(BoardSnapshot.of(board, marble), Long.MAX_VALUE, Runnable::run).join();
+        board.playMove(move, marble);
+    }
+
+    /**
+     * Returns a future that {@link #submitMove} completes. People are not hurried, so the
+     * time limit is ignored; a request replaces one that is still pending.
+     */
+    @Override
+    public synchronized CompletableFuture<Integer> requestMove(BoardSnapshot position, long timeLimitMillis,
+                                                               Executor executor) {
+        if (pendingMove != null) {
+            pendingMove.cancel(false);
         }
+        pendingMove = new CompletableFuture<>();
+        return pendingMove;
+    }
+
+    /**
+     * Hands in the move of the person.
+     * @param move the encoded move
+     * @return whether a move was requested and is now answered
+     */
+    public synchronized boolean submitMove(int move) {
+        CompletableFuture<Integer> request = pendingMove;
+        pendingMove = null;
+        return request != null && request.complete(move);
+    }
+
+    /**
+     * Cancels a pending request.
+     */
+    @Override
+    public synchronized void close() {
+        if (pendingMove != null) {
+            pendingMove.cancel(false);
+            pendingMove = null;
+        }
+    }
+
+    /**
+     * @return whether a requested move has not been submitted yet
+     */
+    public synchronized boolean isWaiting() {
+        return pendingMove != null && !pendingMove.isDone();
     }
 }
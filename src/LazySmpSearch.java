@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches one position with several {@link AlphaBetaSearch} workers at once (Lazy SMP).
+ * <p>
+ * Every worker owns its own copy of the board and all of them share one lock-free
+ * {@link TranspositionTable}. The main worker runs on the calling thread and the helpers
+ * on a fixed pool of daemon threads. When the main worker finishes, the helpers are
+ * stopped and the move of the worker that completed the deepest iteration is played,
+ * preferring the main worker on ties.
+ */
+public class LazySmpSearch {
+    private final TranspositionTable table;
+    private final AlphaBetaSearch[] workers;
+    private final ExecutorService helperPool;
+
+    private volatile boolean stopRequested;
+    private volatile long searchStartNanos;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private int completedDepth;
+    private int bestScore;
+    private long elapsedNanos;
+
+    /**
+     * @param table the table shared by all workers
+     * @param threads the number of search threads, including the calling thread
+     */
+    public LazySmpSearch(TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.table = table;
+        workers = new AlphaBetaSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new AlphaBetaSearch(table);
+            workers[i].setWorkerId(i);
+        }
+        helperPool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "pentago-search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the static evaluation used by every worker.
+     * @param evaluator the evaluator, shared by the workers
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        for (AlphaBetaSearch worker : workers) {
+            worker.setEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Searches the position for the best move of the given player.
+     * @param position the position to search; it is copied and left unchanged
+     * @param marble the marble of the player to move
+     * @param timeBudgetMillis the time budget in milliseconds
+     * @param maxDepth the maximum depth in plies
+     * @return the best move found, or Move.NONE if the board is full
+     */
+    public int findBestMove(GameBoard position, char marble, long timeBudgetMillis, int maxDepth) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+        table.newSearch();
+        searchStartNanos = start;
+
+        // The workers were stopped at the end of the last search; a stop request made
+        // since resetStop() is passed on to them
+        for (AlphaBetaSearch worker : workers) {
+            worker.resetStop();
+        }
+        if (stopRequested) {
+            stop();
+        }
+        List<Future<Integer>> helpers = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            AlphaBetaSearch worker = workers[i];
+            helpers.add(helperPool.submit(() -> worker.search(position, marble, deadline, maxDepth)));
+        }
+        int move = workers[0].search(position, marble, deadline, maxDepth);
+        completedDepth = workers[0].getCompletedDepth();
+        bestScore = workers[0].getBestScore();
+        nodes = workers[0].getNodeCount();
+        tableProbes = workers[0].getTableProbeCount();
+        tableHits = workers[0].getTableHitCount();
+
+        for (int i = 1; i < workers.length; i++) {
+            workers[i].stop();
+        }
+        for (int i = 0; i < helpers.size(); i++) {
+            AlphaBetaSearch worker = workers[i + 1];
+            int helperMove = waitFor(helpers.get(i));
+            nodes += worker.getNodeCount();
+            tableProbes += worker.getTableProbeCount();
+            tableHits += worker.getTableHitCount();
+            if (helperMove != Move.NONE && worker.getCompletedDepth() > completedDepth) {
+                move = helperMove;
+                completedDepth = worker.getCompletedDepth();
+                bestScore = worker.getBestScore();
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return move;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible; it returns the best move of the
+     * deepest completed iteration. The request stands until {@link #resetStop()}, so a
+     * search started afterwards only completes depth 1. May be called from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+        for (AlphaBetaSearch worker : workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Clears an earlier stop request.
+     */
+    public void resetStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Reports the progress of a running search over all workers. May be called from any thread.
+     * @return the deepest completed iteration, the nodes visited so far and the time since the search started
+     */
+    public SearchProgress getProgress() {
+        int depth = 0;
+        long visited = 0;
+        for (AlphaBetaSearch worker : workers) {
+            depth = Math.max(depth, worker.getCompletedDepth());
+            visited += worker.getPublishedNodeCount();
+        }
+        return new SearchProgress(depth, visited, System.nanoTime() - searchStartNanos);
+    }
+
+    /**
+     * Stops the helper threads. The search can no longer be used afterwards.
+     */
+    public void shutdown() {
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * @return the transposition table probes of all workers in the last search
+     */
+    public long getTableProbeCount() {
+        return tableProbes;
+    }
+
+    /**
+     * @return the transposition table hits of all workers in the last search
+     */
+    public long getTableHitCount() {
+        return tableHits;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the share of beta cutoffs caused by the first move tried, in the main worker's last search
+     */
+    public double getFirstMoveCutoffRate() {
+        return workers[0].getFirstMoveCutoffRate();
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    private static int waitFor(Future<Integer> helper) {
+        try {
+            return helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Move.NONE;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search helper failed", e.getCause());
+        }
+    }
+}
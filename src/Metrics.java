@@ -0,0 +1,148 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process registry of named counters and latency histograms, shared by the players,
+ * games and server of the JVM.
+ * <p>
+ * Recording never locks: counters are {@link LongAdder}s and histograms count into atomic
+ * log-scale buckets. Look a metric up once and keep it, as the players do in static fields;
+ * the lookup itself goes through a concurrent map. {@link #snapshot()} renders all metrics
+ * as text, one per line and sorted by name.
+ */
+public class Metrics {
+    private static final Metrics DEFAULT = new Metrics();
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry of this JVM
+     */
+    public static Metrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param name the name of the counter
+     * @return the counter, created at zero on first use
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * @param name the name of the histogram
+     * @return the histogram, created empty on first use
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Renders every metric as one line: {@code counter NAME VALUE}, or for histograms
+     * {@code histogram NAME count=N mean=T p50=T p90=T p99=T max=T} with times in microseconds.
+     * @return the snapshot, sorted by metric name
+     */
+    public String snapshot() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            text.append("counter ").append(counter.getKey()).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            text.append(String.format("histogram %s count=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    entry.getKey(), histogram.getCount(), histogram.getMeanNanos() / 1e3,
+                    histogram.getPercentileNanos(50) / 1e3, histogram.getPercentileNanos(90) / 1e3,
+                    histogram.getPercentileNanos(99) / 1e3, histogram.getMaxNanos() / 1e3));
+        }
+        return text.toString();
+    }
+
+    /**
+     * A latency distribution in nanoseconds. Values are counted in buckets of four per power
+     * of two, so percentiles are within 25% of the recorded values.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKETS = 4;
+        private static final int BUCKETS = 62 * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+        /**
+         * @param nanos the latency to count; negative values count as 0
+         */
+        public void record(long nanos) {
+            long value = Math.max(0L, nanos);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        public double getMeanNanos() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the upper bound of the bucket holding that percentile, at most the maximum,
+         *         or 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+            return (exponent - 1) * SUB_BUCKETS + mantissa;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + 1;
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+            return lower + (1L << (exponent - 2)) - 1;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class MetricsTest {
+    @Test
+    public void testBucketsCoverValues() {
+        for (long value : new long[] {0, 1, 3, 4, 5, 7, 8, 9, 1000, 123_456_789L, Long.MAX_VALUE}) {
+            int bucket = Metrics.Histogram.bucket(value);
+            assertTrue(value + " above its bucket", value <= Metrics.Histogram.upperBound(bucket));
+            assertTrue(value + " below its bucket", bucket == 0 || value > Metrics.Histogram.upperBound(bucket - 1));
+        }
+    }
+
+    @Test
+    public void testPercentilesWithinBucketError() {
+        Metrics.Histogram histogram = new Metrics().histogram("latency");
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500.0, histogram.getMeanNanos(), 1e-6);
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        long p50 = histogram.getPercentileNanos(50);
+        assertTrue(p50 + "", p50 >= 500_000 && p50 <= 500_000 * 5 / 4);
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void testConcurrentCountsAndSnapshot() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metrics.counter("b.moves").increment();
+                    metrics.histogram("a.move_time").record(i);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(40_000, metrics.counter("b.moves").sum());
+        assertEquals(40_000, metrics.histogram("a.move_time").getCount());
+        String[] lines = metrics.snapshot().split("\n");
+        assertEquals("counter b.moves 40000", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("histogram a.move_time count=40000 "));
+    }
+
+    @Test
+    public void testGameEmitsFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("pentago", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(MoveEvent.class);
+            recording.enable(GameEndEvent.class);
+            recording.start();
+            HeadlessGame.Result result = new HeadlessGame(new AIGreedyPlayer('X', 1L), new AIGreedyPlayer('O', 2L)).play();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            long moves = events.stream().filter(e -> e.getEventType().getName().equals("pentago.EngineMove")).count();
+            assertEquals(result.getPlies(), moves);
+            RecordedEvent end = events.stream().filter(e -> e.getEventType().getName().equals("pentago.GameEnd"))
+                    .findFirst().orElseThrow(AssertionError::new);
+            assertEquals(result.getWinner(), end.getChar("result"));
+            assertEquals(result.getPlies(), end.getInt("moves"));
+            assertEquals("AIGreedyPlayer", end.getString("playerX"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A single-threaded UCT search: it grows a game tree by selecting children with the
+ * UCB1 formula, expands one new child per iteration and scores it with a random playout.
+ * <p>
+ * Playouts run on a scratch board reset with {@link GameBoard#copyFrom} and pick each
+ * random cell from the bitboard of empty cells, so they do not allocate. A placement
+ * that completes five wins at once, as in the game. Between turns the tree is kept: the
+ * next search continues from the node that matches the new position, two plies down, or
+ * one ply down if the last search was for the other player.
+ * <p>
+ * The tree has a memory budget, counted from an estimate of the size of each node and
+ * of the move and child arrays of every expanded node. Once the budget is reached the
+ * search stops adding nodes and runs its playouts from the leaves it selects, so a long
+ * search refines the statistics of the tree it has instead of growing it. A reused
+ * subtree that fills the whole budget is dropped.
+ */
+public class MonteCarloTreeSearch {
+    /** The UCB1 exploration constant for rewards between 0 and 1. */
+    static final double EXPLORATION = Math.sqrt(2);
+    public static final int DEFAULT_TREE_SIZE_MB = 64;
+    /** The estimated size of a node, with 8-byte references and its object header. */
+    static final int NODE_BYTES = 72;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private static final char NOT_OVER = '.';
+    private static final int TIME_CHECK_INTERVAL = 16;
+
+    private final SplittableRandom random;
+    private final GameBoard board = new GameBoard();
+    private final int[] moveBuffer = new int[Move.MAX_MOVES];
+
+    private final GameBoard rootPosition = new GameBoard();
+    private final long maxTreeBytes;
+    private Node root;
+    private char rootSide;
+    private long treeBytes;
+    private int nodeCount;
+
+    private volatile boolean stopRequested;
+    private volatile long publishedPlayouts;
+    private long playouts;
+    private long reusedVisits;
+
+    /**
+     * @param seed the seed of the random playouts
+     */
+    public MonteCarloTreeSearch(long seed) {
+        this(seed, DEFAULT_TREE_SIZE_MB);
+    }
+
+    /**
+     * @param seed the seed of the random playouts
+     * @param treeSizeMegabytes the memory budget of the tree in megabytes
+     */
+    public MonteCarloTreeSearch(long seed, int treeSizeMegabytes) {
+        if (treeSizeMegabytes <= 0) {
+            throw new IllegalArgumentException("Tree size must be positive: " + treeSizeMegabytes);
+        }
+        random = new SplittableRandom(seed);
+        maxTreeBytes = (long) treeSizeMegabytes * 1024 * 1024;
+    }
+
+    /**
+     * Searches the position until the deadline. The tree of the previous search is reused
+     * if the position follows from it by one move of each player, or by one move if the
+     * previous search was for the other player.
+     * @param position the position to search, left unchanged
+     * @param side the marble of the player to move
+     * @param deadlineNanos the System.nanoTime() at which to stop
+     */
+    public void search(GameBoard position, char side, long deadlineNanos) {
+        reuseOrCreateRoot(position, side);
+        playouts = 0;
+        publishedPlayouts = 0;
+        do {
+            for (int i = 0; i < TIME_CHECK_INTERVAL; i++) {
+                iterate();
+            }
+            publishedPlayouts = playouts;
+        } while (!stopRequested && System.nanoTime() < deadlineNanos);
+    }
+
+    /**
+     * Asks a running search to stop after its current batch of playouts. May be called from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clears an earlier stop request. Called before the search starts, so a stop that
+     * arrives before the search thread begins is not lost.
+     */
+    void resetStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Adds the visit count of every root move to the given totals, so the trees of
+     * several searches over the same position can be combined.
+     * @param visits per-move totals indexed by encoded move
+     */
+    public void addRootVisits(int[] visits) {
+        for (int i = 0; i < root.expanded; i++) {
+            Node child = root.children[i];
+            visits[child.move] += child.visits;
+        }
+    }
+
+    /**
+     * @return the root move with the most visits, or Move.NONE if none was searched
+     */
+    public int getBestMove() {
+        int[] visits = new int[Move.MAX_MOVES];
+        addRootVisits(visits);
+        return mostVisited(visits);
+    }
+
+    /**
+     * @return the number of playouts of the last search
+     */
+    public long getPlayoutCount() {
+        return playouts;
+    }
+
+    /**
+     * Returns the playout count of a running search as of its last time check, so another
+     * thread can watch the search progress.
+     * @return the number of playouts so far
+     */
+    public long getPublishedPlayoutCount() {
+        return publishedPlayouts;
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the estimated memory of the tree in bytes, never more than its budget
+     */
+    public long getTreeBytes() {
+        return treeBytes;
+    }
+
+    /**
+     * @return the number of root visits carried over from the previous search
+     */
+    public long getReusedVisits() {
+        return reusedVisits;
+    }
+
+    /**
+     * Picks the move with the highest count.
+     * @param visits per-move counts indexed by encoded move
+     * @return the move with the most visits, or Move.NONE if all counts are 0
+     */
+    static int mostVisited(int[] visits) {
+        int best = Move.NONE;
+        for (int move = 0; move < visits.length; move++) {
+            if (visits[move] > 0 && (best == Move.NONE || visits[move] > visits[best])) {
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    private void reuseOrCreateRoot(GameBoard position, char side) {
+        Node reused = null;
+        if (root != null && side == rootSide) {
+            for (int i = 0; i < root.expanded && reused == null; i++) {
+                reused = findChild(root.children[i], position.getHash());
+            }
+        } else if (root != null) {
+            reused = findChild(root, position.getHash());
+        }
+        if (reused != null && reused.result == NOT_OVER) {
+            nodeCount = 0;
+            treeBytes = 0;
+            measure(reused);
+            if (treeBytes >= maxTreeBytes) {
+                // The subtree leaves no room to grow, so the search starts over
+                reused = null;
+            }
+        } else {
+            reused = null;
+        }
+        if (reused != null) {
+            reused.parent = null;
+            root = reused;
+            reusedVisits = reused.visits;
+        } else {
+            root = new Node(null, Move.NONE, NOT_OVER, NOT_OVER, position.getHash());
+            nodeCount = 1;
+            treeBytes = NODE_BYTES;
+            reusedVisits = 0;
+        }
+        rootPosition.copyFrom(position);
+        rootSide = side;
+    }
+
+    /**
+     * @return the expanded child of the node with the given position hash, or null
+     */
+    private static Node findChild(Node node, long hash) {
+        for (int i = 0; i < node.expanded; i++) {
+            if (node.children[i].hash == hash) {
+                return node.children[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs one selection, expansion, playout and backpropagation step.
+     */
+    private void iterate() {
+        board.copyFrom(rootPosition);
+        Node node = root;
+        char side = rootSide;
+        // A full tree keeps selecting among the children a node already has
+        while (node.result == NOT_OVER
+                && (node.isFullyExpanded() || node.expanded > 0 && !canExpand(node))) {
+            node = node.selectChild();
+            board.makeMove(node.move, side);
+            side = opponent(side);
+        }
+
+        char result = node.result;
+        if (result == NOT_OVER) {
+            if (canExpand(node)) {
+                node = expand(node, side);
+                side = opponent(side);
+                result = node.result;
+            }
+            if (result == NOT_OVER) {
+                result = playout(side);
+            }
+        }
+        playouts++;
+
+        for (; node != null; node = node.parent) {
+            node.visits++;
+            if (result == node.mover) {
+                node.reward += 1.0;
+            } else if (result == GameBoard.DRAW) {
+                node.reward += 0.5;
+            }
+        }
+    }
+
+    /**
+     * @return whether the tree has room for a new child of the node
+     */
+    private boolean canExpand(Node node) {
+        long bytes = NODE_BYTES;
+        if (node.moves == null) {
+            bytes += arrayBytes(board.getEmptyCount() * Move.ROTATIONS);
+        }
+        return treeBytes + bytes <= maxTreeBytes;
+    }
+
+    /**
+     * Adds the next untried move of a node as a child, playing it on the board.
+     */
+    private Node expand(Node node, char side) {
+        if (node.moves == null) {
+            int count = board.generateMoves(moveBuffer);
+            node.moves = Arrays.copyOf(moveBuffer, count);
+            node.children = new Node[count];
+            treeBytes += arrayBytes(count);
+        }
+        int pick = node.expanded + random.nextInt(node.moves.length - node.expanded);
+        int move = node.moves[pick];
+        node.moves[pick] = node.moves[node.expanded];
+        node.moves[node.expanded] = move;
+
+        char result = play(move, side);
+        Node child = new Node(node, move, side, result, board.getHash());
+        node.children[node.expanded++] = child;
+        nodeCount++;
+        treeBytes += NODE_BYTES;
+        return child;
+    }
+
+    /**
+     * Adds the nodes and estimated memory of a subtree to the tree totals.
+     */
+    private void measure(Node node) {
+        nodeCount++;
+        treeBytes += NODE_BYTES;
+        if (node.moves != null) {
+            treeBytes += arrayBytes(node.moves.length);
+            for (int i = 0; i < node.expanded; i++) {
+                measure(node.children[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the estimated memory of the move and child arrays of a node with the given number of moves
+     */
+    private static long arrayBytes(int count) {
+        return 2 * ARRAY_HEADER_BYTES + (long) count * (Integer.BYTES + Long.BYTES);
+    }
+
+    /**
+     * Plays random moves from the board until the game ends.
+     * @return the winner, or GameBoard.DRAW
+     */
+    private char playout(char side) {
+        while (true) {
+            long empty = ~(board.getMarbleBits('X') | board.getMarbleBits('O')) & ((1L << GameBoard.CELL_COUNT) - 1);
+            int cell = selectBit(empty, random.nextInt(Long.bitCount(empty)));
+            char result = play(Move.of(cell, random.nextInt(Move.ROTATIONS)), side);
+            if (result != NOT_OVER) {
+                return result;
+            }
+            side = opponent(side);
+        }
+    }
+
+    /**
+     * Plays a move on the board, skipping the rotation if the placement already wins.
+     * @return the winner, GameBoard.DRAW, or NOT_OVER if the game goes on
+     */
+    private char play(int move, char side) {
+        int cell = Move.cell(move);
+        board.placeMarble(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, side);
+        if (board.hasFiveInARow(side)) {
+            return side;
+        }
+        board.rotateQuadrant(Move.quadrant(move), Move.isClockwise(move));
+        char winner = board.checkWinner();
+        if (winner != NOT_OVER) {
+            return winner;
+        }
+        return board.isFull() ? GameBoard.DRAW : NOT_OVER;
+    }
+
+    /**
+     * @return the index of the n-th set bit of the bits, counting from 0
+     */
+    private static int selectBit(long bits, int n) {
+        for (int i = 0; i < n; i++) {
+            bits &= bits - 1;
+        }
+        return Long.numberOfTrailingZeros(bits);
+    }
+
+    private static char opponent(char side) {
+        return (side == 'X') ? 'O' : 'X';
+    }
+
+    private static class Node {
+        Node parent;
+        final int move;
+        /** The player who made the move leading here; rewards are from their view. */
+        final char mover;
+        /** The result of the game at this node, or NOT_OVER. */
+        final char result;
+        final long hash;
+
+        int[] moves;
+        Node[] children;
+        int expanded;
+        int visits;
+        double reward;
+
+        Node(Node parent, int move, char mover, char result, long hash) {
+            this.parent = parent;
+            this.move = move;
+            this.mover = mover;
+            this.result = result;
+            this.hash = hash;
+        }
+
+        boolean isFullyExpanded() {
+            return moves != null && expanded == moves.length;
+        }
+
+        Node selectChild() {
+            double logVisits = Math.log(visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < expanded; i++) {
+                Node child = children[i];
+                double value = child.reward / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+}
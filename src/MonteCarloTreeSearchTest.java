@@ -0,0 +1,83 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class MonteCarloTreeSearchTest {
+    private static final long SEARCH_NANOS = 50_000_000L;
+
+    @Test
+    public void testBestMoveIsLegal() {
+        GameBoard board = GameBoard.fromString(Perft.MIDDLE_GAME);
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(1L);
+        search.search(board, board.getSideToMove(), System.nanoTime() + SEARCH_NANOS);
+        int move = search.getBestMove();
+        assertNotEquals(Move.NONE, move);
+        assertEquals('.', board.getMarble(Move.row(move), Move.col(move)));
+        assertTrue(search.getPlayoutCount() > 0);
+        assertEquals(Perft.MIDDLE_GAME, board.toString());
+    }
+
+    @Test
+    public void testTreeIsReusedAfterTwoMoves() {
+        // With few empty cells the first search expands every reply, so the tree must hold the new position
+        GameBoard board = GameBoard.fromString("XXOO.XO.OO.O.OX.XXXOXXX.OOOXOOXXOXOX");
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(3L);
+        search.search(board, 'X', System.nanoTime() + 4 * SEARCH_NANOS);
+        assertEquals(0, search.getReusedVisits());
+
+        playFirstMoveThatDoesNotEndTheGame(board, 'X');
+        playFirstMoveThatDoesNotEndTheGame(board, 'O');
+
+        search.search(board, 'X', System.nanoTime() + SEARCH_NANOS);
+        assertTrue(search.getReusedVisits() > 0);
+        assertNotEquals(Move.NONE, search.getBestMove());
+    }
+
+    @Test
+    public void testTreeOfTheOpponentIsReusedAfterItsMove() {
+        // As when pondering: the tree is grown for the opponent, who then moves
+        GameBoard board = GameBoard.fromString("XXOO.XO.OO.O.OX.XXXOXXX.OOOXOOXXOXOX");
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(4L);
+        search.search(board, 'X', System.nanoTime() + 4 * SEARCH_NANOS);
+
+        playFirstMoveThatDoesNotEndTheGame(board, 'X');
+
+        search.search(board, 'O', System.nanoTime() + SEARCH_NANOS);
+        assertTrue(search.getReusedVisits() > 0);
+        assertNotEquals(Move.NONE, search.getBestMove());
+    }
+
+    @Test
+    public void testTreeStaysWithinItsBudget() {
+        GameBoard board = GameBoard.fromString(Perft.MIDDLE_GAME);
+        char side = board.getSideToMove();
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(5L, 1);
+        long budgetBytes = 1024 * 1024;
+        search.search(board, side, System.nanoTime() + 20 * SEARCH_NANOS);
+        assertTrue(search.getTreeBytes() <= budgetBytes);
+        assertTrue(search.getNodeCount() <= budgetBytes / MonteCarloTreeSearch.NODE_BYTES);
+        // The search goes on with playouts once the tree is full
+        assertTrue(search.getPlayoutCount() > search.getNodeCount());
+        int move = search.getBestMove();
+        assertNotEquals(Move.NONE, move);
+
+        board.makeMove(move, side);
+        playFirstMoveThatDoesNotEndTheGame(board, side == 'X' ? 'O' : 'X');
+        search.search(board, side, System.nanoTime() + 20 * SEARCH_NANOS);
+        assertTrue(search.getTreeBytes() <= budgetBytes);
+        assertTrue(search.getNodeCount() <= budgetBytes / MonteCarloTreeSearch.NODE_BYTES);
+        assertNotEquals(Move.NONE, search.getBestMove());
+    }
+
+    private static void playFirstMoveThatDoesNotEndTheGame(GameBoard board, char side) {
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i], side);
+            if (!board.isGameOver()) {
+                return;
+            }
+            board.unmakeMove(moves[i]);
+        }
+        fail("Every move ends the game");
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Encodes a full Pentago move - a placement plus a quadrant rotation - in one int.
+ * <p>
+ * A move is {@code cell * ROTATIONS + rotation}, where {@code cell = row * GRID_SIZE + col}
+ * and {@code rotation = (quadrant - 1) * 2}, plus one for a counterclockwise turn. Moves are
+ * therefore dense in {@code [0, MAX_MOVES)} and can index arrays directly. The eight moves
+ * of a cell are adjacent.
+ */
+public final class Move {
+    public static final int ROTATIONS = 8;
+    public static final int MAX_MOVES = GameBoard.CELL_COUNT * ROTATIONS;
+
+    /** Stands for "no move", e.g. when the board is full. */
+    public static final int NONE = -1;
+
+    private Move() {
+    }
+
+    public static int encode(int row, int col, int quadrant, boolean clockwise) {
+        return of(row * GameBoard.GRID_SIZE + col, (quadrant - 1) * 2 + (clockwise ? 0 : 1));
+    }
+
+    public static int of(int cell, int rotation) {
+        return cell * ROTATIONS + rotation;
+    }
+
+    public static int cell(int move) {
+        return move / ROTATIONS;
+    }
+
+    public static int row(int move) {
+        return move / ROTATIONS / GameBoard.GRID_SIZE;
+    }
+
+    public static int col(int move) {
+        return move / ROTATIONS % GameBoard.GRID_SIZE;
+    }
+
+    /**
+     * @return the rotation index between 0 and ROTATIONS - 1
+     */
+    public static int rotation(int move) {
+        return move % ROTATIONS;
+    }
+
+    /**
+     * @return the quadrant to rotate (1-4)
+     */
+    public static int quadrant(int move) {
+        return move % ROTATIONS / 2 + 1;
+    }
+
+    public static boolean isClockwise(int move) {
+        return move % 2 == 0;
+    }
+
+    /**
+     * Formats a move as {@code row,col,quadrant,cw} or {@code row,col,quadrant,ccw}.
+     * @param move the encoded move
+     * @return the text form of the move
+     */
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "none";
+        }
+        return row(move) + "," + col(move) + "," + quadrant(move) + "," + (isClockwise(move) ? "cw" : "ccw");
+    }
+
+    /**
+     * Parses the text form produced by {@link #toString(int)}.
+     * @param text the text form of a move
+     * @return the encoded move
+     * @throws IllegalArgumentException if the text is not a valid move
+     */
+    public static int parse(String text) {
+        String[] parts = text.trim().split("\\s*,\\s*");
+        if (parts.length != 4 || !(parts[3].equalsIgnoreCase("cw") || parts[3].equalsIgnoreCase("ccw"))) {
+            throw new IllegalArgumentException("Invalid move: " + text);
+        }
+        try {
+            int row = Integer.parseInt(parts[0]);
+            int col = Integer.parseInt(parts[1]);
+            int quadrant = Integer.parseInt(parts[2]);
+            if (row < 0 || row >= GameBoard.GRID_SIZE || col < 0 || col >= GameBoard.GRID_SIZE
+                    || quadrant < 1 || quadrant > 4) {
+                throw new IllegalArgumentException("Invalid move: " + text);
+            }
+            return encode(row, col, quadrant, parts[3].equalsIgnoreCase("cw"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid move: " + text, e);
+        }
+    }
+}
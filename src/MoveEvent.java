@@ -0,0 +1,73 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for every move an engine player chooses, spanning the time it
+ * took. Record with {@code java -XX:StartFlightRecording=filename=pentago.jfr ...}; when
+ * recording is off the event costs next to nothing.
+ */
+@Name("pentago.EngineMove")
+@Label("Engine Move")
+@Category("Pentago")
+@Description("A move chosen by an engine player")
+public class MoveEvent extends Event {
+    /** The move came from a search. */
+    public static final String SEARCH = "search";
+    /** The move came from the opening book. */
+    public static final String BOOK = "book";
+    /** The move is the first of a proven forced win. */
+    public static final String FORCED_WIN = "forced win";
+    /** The move came from the exact endgame solver. */
+    public static final String SOLVER = "solver";
+    /** The move came from a fixed rule of thumb, without searching. */
+    public static final String HEURISTIC = "heuristic";
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Marble")
+    char marble;
+
+    @Label("Source")
+    @Description("search, book, forced win, solver or heuristic")
+    String source;
+
+    @Label("Depth")
+    @Description("Deepest completed iteration, 0 if the engine does not search by depth")
+    int depth;
+
+    @Label("Nodes")
+    @Description("Nodes or playouts searched")
+    long nodes;
+
+    @Label("Table Probes")
+    long tableProbes;
+
+    @Label("Table Hits")
+    long tableHits;
+
+    @Label("Best Move")
+    String bestMove;
+
+    /**
+     * Fills in the event and commits it if it passes the recording's filters.
+     * Call {@link #begin()} when the move search starts.
+     * @param engine the name of the engine
+     * @param marble the marble it plays
+     * @param source where the move came from, one of the constants
+     * @param move the encoded move
+     */
+    public void complete(String engine, char marble, String source, int move) {
+        end();
+        if (shouldCommit()) {
+            this.engine = engine;
+            this.marble = marble;
+            this.source = source;
+            this.bestMove = move == Move.NONE ? "none" : Move.toString(move);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * Orders the moves of a search node so that the ones most likely to cause a beta cutoff
+ * are searched first: the hash move, placements that block an opponent's winning
+ * placement, the two killer moves of the ply, then the rest by their history score.
+ * <p>
+ * Killers are the last moves that caused a cutoff at the same ply in a sibling node. The
+ * history table is indexed by the encoded move, that is by cell and rotation, and grows by
+ * the square of the remaining depth whenever the move causes a cutoff anywhere in the tree.
+ * <p>
+ * Every move is sorted as one int, its rank above the move bits, so ordering is a single
+ * primitive sort. The orderer also counts cutoffs and how many of them came from the first
+ * move searched, the usual measure of ordering quality. An instance belongs to one search
+ * and is not thread-safe.
+ */
+public class MoveOrderer {
+    private static final int MOVE_BITS = 9;
+    private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+    private static final int MAX_RANK = (1 << 21) - 1;
+    private static final int HASH_RANK = MAX_RANK;
+    private static final int BLOCK_RANK = MAX_RANK - 1;
+    private static final int KILLER_RANK = MAX_RANK - 2;
+    private static final int MAX_HISTORY = MAX_RANK - 4;
+    private static final long ALL_CELLS = (1L << GameBoard.CELL_COUNT) - 1;
+
+    private final int[][] killers;
+    private final int[] history = new int[Move.MAX_MOVES];
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    /**
+     * @param maxPly the deepest ply that will be ordered
+     */
+    public MoveOrderer(int maxPly) {
+        killers = new int[maxPly + 1][2];
+        clearKillers();
+    }
+
+    /**
+     * Prepares for a new search: forgets the killers and cutoff counts and halves the
+     * history, so it favours the recent position without starting from nothing.
+     */
+    public void newSearch() {
+        clearKillers();
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Sorts the moves of a node, best first.
+     * @param board the position of the node
+     * @param moves the moves, as generated by {@link GameBoard#generateMoves}
+     * @param count the number of moves
+     * @param hashMove the move stored in the transposition table, or Move.NONE
+     * @param marble the marble of the player to move
+     * @param ply the distance from the root
+     */
+    public void order(GameBoard board, int[] moves, int count, int hashMove, char marble, int ply) {
+        long blocks = findWinningCells(board, marble == 'X' ? 'O' : 'X');
+        int[] plyKillers = killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int rank;
+            if (move == hashMove) {
+                rank = HASH_RANK;
+            } else if ((blocks & (1L << Move.cell(move))) != 0) {
+                rank = BLOCK_RANK;
+            } else if (move == plyKillers[0]) {
+                rank = KILLER_RANK;
+            } else if (move == plyKillers[1]) {
+                rank = KILLER_RANK - 1;
+            } else {
+                rank = history[move];
+            }
+            moves[i] = (MAX_RANK - rank) << MOVE_BITS | move;
+        }
+        Arrays.sort(moves, 0, count);
+        for (int i = 0; i < count; i++) {
+            moves[i] &= MOVE_MASK;
+        }
+    }
+
+    /**
+     * Records that a move caused a beta cutoff.
+     * @param move the move
+     * @param index the position of the move in the ordered list, 0 for the first
+     * @param depth the remaining depth of the node
+     * @param ply the distance of the node from the root
+     */
+    public void recordCutoff(int move, int index, int depth, int ply) {
+        cutoffs++;
+        if (index == 0) {
+            firstMoveCutoffs++;
+        }
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        history[move] += depth * depth;
+        if (history[move] > MAX_HISTORY) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * @return the number of cutoffs since the last {@link #newSearch()}
+     */
+    public long getCutoffCount() {
+        return cutoffs;
+    }
+
+    /**
+     * @return the number of cutoffs caused by the first move searched
+     */
+    public long getFirstMoveCutoffCount() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * @return the share of cutoffs caused by the first move searched, or 0 without cutoffs
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    private void clearKillers() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+    }
+
+    /**
+     * @return the cells on which a placement by the given player completes five in a row
+     */
+    private static long findWinningCells(GameBoard board, char marble) {
+        long cells = 0L;
+        long empty = ~(board.getMarbleBits('X') | board.getMarbleBits('O')) & ALL_CELLS;
+        for (; empty != 0; empty &= empty - 1) {
+            int cell = Long.numberOfTrailingZeros(empty);
+            if (board.checkWinningMove(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, marble)) {
+                cells |= 1L << cell;
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class MoveOrdererTest {
+    @Test
+    public void testOrderIsPermutationWithHashMoveFirst() {
+        MoveOrderer orderer = new MoveOrderer(AlphaBetaSearch.MAX_DEPTH);
+        int[] moves = new int[Move.MAX_MOVES];
+        for (GameBoard board : PositionCorpus.generate(31L, 200, 0, 30)) {
+            int count = board.generateMoves(moves);
+            int[] generated = Arrays.copyOf(moves, count);
+            int hashMove = generated[count / 2];
+            orderer.order(board, moves, count, hashMove, board.getSideToMove(), 0);
+            assertEquals(hashMove, moves[0]);
+            int[] ordered = Arrays.copyOf(moves, count);
+            Arrays.sort(ordered);
+            Arrays.sort(generated);
+            assertArrayEquals(generated, ordered);
+        }
+    }
+
+    @Test
+    public void testBlocksAndKillersComeFirst() {
+        MoveOrderer orderer = new MoveOrderer(AlphaBetaSearch.MAX_DEPTH);
+        // O threatens to complete the first row at its last cell
+        GameBoard board = GameBoard.fromString(
+                "OOOO.." + "X....." + "X....." + "......" + "......" + "......");
+        int killer = Move.encode(5, 5, 4, true);
+        orderer.recordCutoff(killer, 3, 2, 1);
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        orderer.order(board, moves, count, Move.NONE, 'X', 1);
+        for (int i = 0; i < Move.ROTATIONS; i++) {
+            assertEquals(4, Move.cell(moves[i]));
+        }
+        assertEquals(killer, moves[Move.ROTATIONS]);
+        assertEquals(1, orderer.getCutoffCount());
+        assertEquals(0, orderer.getFirstMoveCutoffCount());
+    }
+
+    @Test
+    public void testOrderingSearchesFewerNodes() {
+        long ordered = 0;
+        long unordered = 0;
+        for (GameBoard board : PositionCorpus.generate(32L, 12, 4, 14)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1));
+            search.setEndgameTable(null);
+            search.findBestMove(board, board.getSideToMove(), 60_000, 2);
+            int score = search.getBestScore();
+            ordered += search.getNodeCount();
+
+            search = new AlphaBetaSearch(new TranspositionTable(1));
+            search.setEndgameTable(null);
+            search.setMoveOrdering(false);
+            search.findBestMove(board, board.getSideToMove(), 60_000, 2);
+            assertEquals(board.toString(), score, search.getBestScore());
+            unordered += search.getNodeCount();
+        }
+        assertTrue(ordered + " >= " + unordered, ordered < unordered);
+    }
+}
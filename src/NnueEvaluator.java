@@ -0,0 +1,266 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Scores a position with a small quantized neural network in the style of NNUE: one input
+ * per cell and marble, a hidden layer with clipped ReLU activations, and one output.
+ * <p>
+ * The first layer is kept as an accumulator, the hidden biases plus the int16 weight rows of
+ * the occupied inputs. Each thread that evaluates keeps its own accumulator together with
+ * the marbles it was computed for. The next evaluation only adds and subtracts the rows of
+ * the cells whose marble changed, which in a search are the few placements and rotations
+ * between two leaves: a rotation changes at most the eight outer cells of its quadrant.
+ * When more cells changed than the board holds marbles, the accumulator is recomputed.
+ * <p>
+ * The hidden activations are the accumulator clamped to [0, 127]; the output is the int32
+ * output bias plus their dot product with the int8 output weights, shifted right by
+ * {@value #OUTPUT_SHIFT} to give the score for X.
+ * <p>
+ * On disk a network is a header (magic {@code "PNN1"}, format version and hidden size)
+ * followed by the input weights, one row of hidden-size int16 values for each of the 36 X
+ * inputs and then the 36 O inputs, the int16 hidden biases, the int8 output weights and the
+ * int32 output bias, all big-endian. Players use the network named by the
+ * {@code pentago.nnue} system property through {@link Evaluator#getDefault()}.
+ */
+public class NnueEvaluator implements Evaluator {
+    public static final String NETWORK_PROPERTY = "pentago.nnue";
+    /** The inputs: one per cell for X marbles, then one per cell for O marbles. */
+    public static final int INPUT_COUNT = 2 * GameBoard.CELL_COUNT;
+    public static final int MAX_HIDDEN_SIZE = 1024;
+    static final int ACTIVATION_MAX = 127;
+    static final int OUTPUT_SHIFT = 6;
+
+    private static final int MAGIC = 0x504E4E31; // "PNN1"
+    private static final int VERSION = 1;
+    private static final long ALL_CELLS = (1L << GameBoard.CELL_COUNT) - 1;
+
+    private static NnueEvaluator defaultNetwork;
+    private static boolean defaultNetworkLoaded;
+
+    private final int hiddenSize;
+    private final short[] inputWeights;
+    private final short[] hiddenBiases;
+    private final byte[] outputWeights;
+    private final int outputBias;
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    /**
+     * @param inputWeights INPUT_COUNT rows of hidden-size weights
+     * @param hiddenBiases the bias of every hidden unit
+     * @param outputWeights the weight of every hidden unit in the output
+     * @param outputBias the bias of the output
+     */
+    public NnueEvaluator(short[] inputWeights, short[] hiddenBiases, byte[] outputWeights, int outputBias) {
+        hiddenSize = hiddenBiases.length;
+        if (hiddenSize == 0 || hiddenSize > MAX_HIDDEN_SIZE) {
+            throw new IllegalArgumentException("Invalid hidden size: " + hiddenSize);
+        }
+        if (inputWeights.length != INPUT_COUNT * hiddenSize || outputWeights.length != hiddenSize) {
+            throw new IllegalArgumentException("Weights do not match hidden size " + hiddenSize);
+        }
+        this.inputWeights = inputWeights.clone();
+        this.hiddenBiases = hiddenBiases.clone();
+        this.outputWeights = outputWeights.clone();
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Returns the network named by the {@code pentago.nnue} system property, loading it on
+     * first use.
+     * @return the network, or null if the property is not set
+     * @throws java.io.UncheckedIOException if the property is set but the file cannot be read
+     */
+    public static synchronized NnueEvaluator getDefault() {
+        if (!defaultNetworkLoaded) {
+            defaultNetwork = ConfiguredFile.load(NETWORK_PROPERTY, "network", NnueEvaluator::load);
+            defaultNetworkLoaded = true;
+        }
+        return defaultNetwork;
+    }
+
+    /**
+     * Reads a network file.
+     * @param path the file to read
+     * @return the network
+     * @throws IOException if the file cannot be read or is not a valid network
+     */
+    public static NnueEvaluator load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a network: " + path);
+            }
+            int hiddenSize = in.readInt();
+            if (hiddenSize <= 0 || hiddenSize > MAX_HIDDEN_SIZE) {
+                throw new IOException("Invalid hidden size " + hiddenSize + ": " + path);
+            }
+            short[] inputWeights = new short[INPUT_COUNT * hiddenSize];
+            for (int i = 0; i < inputWeights.length; i++) {
+                inputWeights[i] = in.readShort();
+            }
+            short[] hiddenBiases = new short[hiddenSize];
+            for (int i = 0; i < hiddenSize; i++) {
+                hiddenBiases[i] = in.readShort();
+            }
+            byte[] outputWeights = new byte[hiddenSize];
+            in.readFully(outputWeights);
+            int outputBias = in.readInt();
+            if (in.read() != -1) {
+                throw new IOException("Trailing data in network: " + path);
+            }
+            return new NnueEvaluator(inputWeights, hiddenBiases, outputWeights, outputBias);
+        }
+    }
+
+    /**
+     * Writes the network, replacing the file atomically.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hiddenSize);
+            for (short weight : inputWeights) {
+                out.writeShort(weight);
+            }
+            for (short bias : hiddenBiases) {
+                out.writeShort(bias);
+            }
+            out.write(outputWeights);
+            out.writeInt(outputBias);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Creates an untrained network with small random weights, for benchmarks and tests.
+     * @param hiddenSize the number of hidden units
+     * @param seed the seed of the weights
+     * @return the network
+     */
+    static NnueEvaluator random(int hiddenSize, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] inputWeights = new short[INPUT_COUNT * hiddenSize];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) random.nextInt(-32, 33);
+        }
+        short[] hiddenBiases = new short[hiddenSize];
+        byte[] outputWeights = new byte[hiddenSize];
+        for (int i = 0; i < hiddenSize; i++) {
+            hiddenBiases[i] = (short) random.nextInt(0, 64);
+            outputWeights[i] = (byte) random.nextInt(-127, 128);
+        }
+        return new NnueEvaluator(inputWeights, hiddenBiases, outputWeights, 0);
+    }
+
+    /**
+     * @return the number of hidden units
+     */
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    @Override
+    public int evaluate(GameBoard board, char marble) {
+        Accumulator accumulator = accumulators.get();
+        accumulator.update(board.getMarbleBits('X'), board.getMarbleBits('O'));
+        return score(accumulator.values, marble);
+    }
+
+    /**
+     * Scores a position from a freshly computed accumulator, the baseline the incremental
+     * evaluation is measured against. Gives the same score as {@link #evaluate}.
+     * @param board the position; it is left unchanged
+     * @param marble the marble of the player to score for
+     * @return the score for the player
+     */
+    int evaluateFromScratch(GameBoard board, char marble) {
+        int[] values = new int[hiddenSize];
+        refresh(values, board.getMarbleBits('X'), board.getMarbleBits('O'));
+        return score(values, marble);
+    }
+
+    private int score(int[] values, char marble) {
+        int output = outputBias;
+        for (int i = 0; i < hiddenSize; i++) {
+            output += Math.max(0, Math.min(ACTIVATION_MAX, values[i])) * outputWeights[i];
+        }
+        int score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, output >> OUTPUT_SHIFT));
+        return marble == 'X' ? score : -score;
+    }
+
+    private void refresh(int[] values, long xBits, long oBits) {
+        for (int i = 0; i < hiddenSize; i++) {
+            values[i] = hiddenBiases[i];
+        }
+        for (long bits = xBits; bits != 0; bits &= bits - 1) {
+            add(values, Long.numberOfTrailingZeros(bits));
+        }
+        for (long bits = oBits; bits != 0; bits &= bits - 1) {
+            add(values, GameBoard.CELL_COUNT + Long.numberOfTrailingZeros(bits));
+        }
+    }
+
+    private void add(int[] values, int input) {
+        int row = input * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            values[i] += inputWeights[row + i];
+        }
+    }
+
+    private void subtract(int[] values, int input) {
+        int row = input * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            values[i] -= inputWeights[row + i];
+        }
+    }
+
+    /**
+     * The first layer of one thread, with the marbles it was computed for.
+     */
+    private class Accumulator {
+        final int[] values = new int[hiddenSize];
+        long xBits;
+        long oBits;
+
+        Accumulator() {
+            refresh(values, 0L, 0L);
+        }
+
+        void update(long newXBits, long newOBits) {
+            long changedX = (xBits ^ newXBits) & ALL_CELLS;
+            long changedO = (oBits ^ newOBits) & ALL_CELLS;
+            if (Long.bitCount(changedX) + Long.bitCount(changedO) > Long.bitCount(newXBits | newOBits)) {
+                refresh(values, newXBits, newOBits);
+            } else {
+                for (long bits = changedX; bits != 0; bits &= bits - 1) {
+                    int cell = Long.numberOfTrailingZeros(bits);
+                    if ((newXBits & (1L << cell)) != 0) {
+                        add(values, cell);
+                    } else {
+                        subtract(values, cell);
+                    }
+                }
+                for (long bits = changedO; bits != 0; bits &= bits - 1) {
+                    int cell = Long.numberOfTrailingZeros(bits);
+                    if ((newOBits & (1L << cell)) != 0) {
+                        add(values, GameBoard.CELL_COUNT + cell);
+                    } else {
+                        subtract(values, GameBoard.CELL_COUNT + cell);
+                    }
+                }
+            }
+            xBits = newXBits;
+            oBits = newOBits;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class NnueEvaluatorTest {
+    private static final int POSITIONS = 200;
+
+    @Test
+    public void testIncrementalMatchesFromScratch() {
+        NnueEvaluator network = NnueEvaluator.random(32, 41L);
+        int[] moves = new int[Move.MAX_MOVES];
+        for (GameBoard board : PositionCorpus.generate(42L, POSITIONS, 0, 30)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            char side = board.getSideToMove();
+            assertEquals(board.toString(), network.evaluateFromScratch(board, side), network.evaluate(board, side));
+            int count = board.generateMoves(moves);
+            for (int i = 0; i < count; i += 7) {
+                board.makeMove(moves[i], side);
+                assertEquals(board.toString(), network.evaluateFromScratch(board, 'X'), network.evaluate(board, 'X'));
+                assertEquals(board.toString(), -network.evaluate(board, 'X'), network.evaluate(board, 'O'));
+                board.unmakeMove(moves[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAndLoadRoundTrip() throws IOException {
+        NnueEvaluator network = NnueEvaluator.random(16, 43L);
+        Path file = Files.createTempFile("pentago", ".nnue");
+        try {
+            network.save(file);
+            NnueEvaluator loaded = NnueEvaluator.load(file);
+            assertEquals(16, loaded.getHiddenSize());
+            for (GameBoard board : PositionCorpus.generate(44L, POSITIONS, 0, 30)) {
+                assertEquals(board.toString(), network.evaluate(board, 'X'), loaded.evaluate(board, 'X'));
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            try {
+                NnueEvaluator.load(file);
+                fail("Truncated network was loaded");
+            } catch (IOException e) {
+                // Expected
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSearchPlaysLegalMovesWithNetwork() {
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1));
+        search.setEvaluator(NnueEvaluator.random(32, 45L));
+        for (GameBoard board : PositionCorpus.generate(46L, 10, 4, 20)) {
+            if (board.isGameOver()) {
+                continue;
+            }
+            int move = search.findBestMove(board, board.getSideToMove(), 60_000, 2);
+            assertTrue(board.toString(), board.playMove(move, board.getSideToMove()));
+        }
+    }
+}
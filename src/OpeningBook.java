@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only book of precomputed moves for early positions, memory-mapped from a file.
+ * <p>
+ * The file is a 16-byte header (magic {@code "PBK1"}, format version, entry count, and
+ * 4 reserved bytes) followed by 16-byte entries sorted by key: the canonical base-3
+ * position key (long), the best move in the canonical orientation (short), the search
+ * depth (short) and the score (int), all big-endian. Symmetric positions share one
+ * entry; {@link #lookup} maps the stored move back onto the actual position.
+ * Lookups binary-search the mapped file and do not allocate.
+ * <p>
+ * Books are written by {@link OpeningBookGenerator}. The AI players use the book named by
+ * the {@code pentago.book} system property, if any.
+ */
+public class OpeningBook {
+    public static final String BOOK_PROPERTY = "pentago.book";
+
+    private static final int MAGIC = 0x50424B31; // "PBK1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+
+    private static OpeningBook defaultBook;
+    private static boolean defaultBookLoaded;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    /**
+     * Maps a book file into memory.
+     * @param path the book file
+     * @throws IOException if the file cannot be read or is not a valid book
+     */
+    public OpeningBook(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book: " + path);
+        }
+        size = buffer.getInt(8);
+        if ((long) HEADER_BYTES + (long) size * ENTRY_BYTES != buffer.capacity()) {
+            throw new IOException("Truncated opening book: " + path);
+        }
+    }
+
+    /**
+     * Returns the book named by the {@code pentago.book} system property, loading it on
+     * first use.
+     * @return the book, or null if the property is not set
+     * @throws java.io.UncheckedIOException if the property is set but the file cannot be read
+     */
+    public static synchronized OpeningBook getDefault() {
+        if (!defaultBookLoaded) {
+            defaultBook = ConfiguredFile.load(BOOK_PROPERTY, "opening book", OpeningBook::new);
+            defaultBookLoaded = true;
+        }
+        return defaultBook;
+    }
+
+    /**
+     * Looks up the book move for a position.
+     * @param board the position
+     * @return the move to play on this board, or Move.NONE if the position is not in the book
+     */
+    public int lookup(GameBoard board) {
+        long canonical = board.getCanonicalKey();
+        int index = find(Symmetry.key(canonical));
+        if (index < 0) {
+            return Move.NONE;
+        }
+        int move = buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 8);
+        return Symmetry.transformMove(move, Symmetry.inverse(Symmetry.transform(canonical)));
+    }
+
+    /**
+     * @return the number of positions in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = buffer.getLong(HEADER_BYTES + middle * ENTRY_BYTES);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One position of a book being written.
+     */
+    public static class Entry {
+        final long key;
+        final int move;
+        final int depth;
+        final int score;
+
+        /**
+         * @param key the canonical base-3 key of the position, see {@link Symmetry#key(long)}
+         * @param move the best move in the canonical orientation
+         * @param depth the depth of the search that found the move
+         * @param score the score of the move
+         */
+        public Entry(long key, int move, int depth, int score) {
+            this.key = key;
+            this.move = move;
+            this.depth = depth;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Writes a book file.
+     * @param path the file to write
+     * @param entries the positions, in any order and with distinct keys
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(entry -> entry.key));
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + sorted.size() * ENTRY_BYTES);
+        out.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(0);
+        long previousKey = -1;
+        for (Entry entry : sorted) {
+            if (entry.key == previousKey) {
+                throw new IllegalArgumentException("Duplicate book position: " + entry.key);
+            }
+            previousKey = entry.key;
+            out.putLong(entry.key).putShort((short) entry.move).putShort((short) entry.depth).putInt(entry.score);
+        }
+        out.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds an {@link OpeningBook} by searching every position of the first plies offline.
+ * <p>
+ * All positions reachable in fewer than the given number of plies are enumerated, one
+ * per symmetry class, and each is searched with its own time budget. The searches run on
+ * a fixed thread pool and share one transposition table. The positions are searched one
+ * ply at a time, and the table starts one generation per ply, so searches running at
+ * the same time never make each other's entries look stale.
+ * <p>
+ * Usage: {@code java OpeningBookGenerator [--plies N] [--millis M] [--threads T] [--table MB] [--out book.bin]}
+ */
+public class OpeningBookGenerator {
+    private final int plies;
+    private final long millisPerPosition;
+    private final int threads;
+    private final TranspositionTable table;
+
+    /**
+     * @param plies the book covers positions with fewer than this many marbles
+     * @param millisPerPosition the search time for each position
+     * @param threads the number of positions searched at once
+     * @param tableSizeMegabytes the memory budget of the shared transposition table
+     */
+    public OpeningBookGenerator(int plies, long millisPerPosition, int threads, int tableSizeMegabytes) {
+        this.plies = plies;
+        this.millisPerPosition = millisPerPosition;
+        this.threads = threads;
+        this.table = new TranspositionTable(tableSizeMegabytes);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int plies = 3;
+        long millis = 200;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int tableMegabytes = AIAlphaBetaPlayer.DEFAULT_TABLE_SIZE_MB;
+        String out = "book.bin";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "--millis":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--table":
+                    tableMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        OpeningBookGenerator generator = new OpeningBookGenerator(plies, millis, threads, tableMegabytes);
+        long start = System.nanoTime();
+        List<OpeningBook.Entry> entries = generator.generate();
+        OpeningBook.write(Paths.get(out), entries);
+        System.out.printf("%d positions in %.1f s -> %s%n", entries.size(), (System.nanoTime() - start) / 1e9, out);
+    }
+
+    /**
+     * Enumerates and searches the book positions.
+     * @return one entry per position class that has a move
+     */
+    public List<OpeningBook.Entry> generate() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<OpeningBook.Entry> entries = new ArrayList<>();
+            for (List<Long> keys : enumeratePositions()) {
+                table.newSearch();
+                List<Future<OpeningBook.Entry>> results = new ArrayList<>();
+                for (long key : keys) {
+                    results.add(pool.submit(() -> search(key)));
+                }
+                for (Future<OpeningBook.Entry> result : results) {
+                    OpeningBook.Entry entry = result.get();
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                }
+            }
+            return entries;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Book search failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists the canonical keys of all positions reachable in fewer than {@code plies}
+     * moves where the game is not over, one list per ply.
+     */
+    List<List<Long>> enumeratePositions() {
+        return enumeratePositions(new GameBoard());
+    }
+
+    /**
+     * Lists the canonical keys of all positions reachable from a start position in fewer
+     * than {@code plies} moves played by the rules, where the game is not over.
+     * @param start the position of ply 0, left unchanged
+     */
+    List<List<Long>> enumeratePositions(GameBoard start) {
+        List<List<Long>> all = new ArrayList<>();
+        Set<Long> current = new LinkedHashSet<>();
+        current.add(Symmetry.key(start.getCanonicalKey()));
+        int[] moves = new int[Move.MAX_MOVES];
+        GameBoard child = new GameBoard();
+        for (int ply = 0; ply < plies && !current.isEmpty(); ply++) {
+            all.add(new ArrayList<>(current));
+            if (ply + 1 == plies) {
+                break;
+            }
+            Set<Long> next = new LinkedHashSet<>();
+            for (long key : current) {
+                GameBoard board = Symmetry.fromKey(key);
+                char side = board.getSideToMove();
+                int count = board.generateMoves(moves);
+                for (int i = 0; i < count; i++) {
+                    child.copyFrom(board);
+                    child.playMove(moves[i], side);
+                    if (!child.isGameOver()) {
+                        next.add(Symmetry.key(child.getCanonicalKey()));
+                    }
+                }
+            }
+            current = next;
+        }
+        return all;
+    }
+
+    private OpeningBook.Entry search(long key) {
+        GameBoard board = Symmetry.fromKey(key);
+        AlphaBetaSearch search = new AlphaBetaSearch(table);
+        // findBestMove would start a new table generation while other positions are searched
+        int move = search.search(board, board.getSideToMove(), System.nanoTime() + millisPerPosition * 1_000_000L,
+                AlphaBetaSearch.MAX_DEPTH);
+        if (move == Move.NONE) {
+            return null;
+        }
+        return new OpeningBook.Entry(key, move, search.getCompletedDepth(), search.getBestScore());
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class OpeningBookTest {
+    @Test
+    public void testLookupFollowsSymmetry() throws Exception {
+        Path file = Files.createTempFile("book", ".bin");
+        try {
+            List<OpeningBook.Entry> entries = new OpeningBookGenerator(2, 10, 1, 1).generate();
+            assertEquals(7, entries.size());
+            OpeningBook.write(file, entries);
+            OpeningBook book = new OpeningBook(file);
+            assertEquals(7, book.size());
+
+            GameBoard board = new GameBoard();
+            board.placeMarble(1, 2, 'X');
+            int move = book.lookup(board);
+            assertNotEquals(Move.NONE, move);
+            for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+                GameBoard image = Symmetry.transform(board, transform);
+                int imageMove = book.lookup(image);
+                assertEquals('.', image.getMarble(Move.row(imageMove), Move.col(imageMove)));
+                GameBoard played = new GameBoard(board);
+                played.makeMove(move, 'O');
+                image.makeMove(imageMove, 'O');
+                assertEquals(Symmetry.key(played.getCanonicalKey()), Symmetry.key(image.getCanonicalKey()));
+            }
+
+            board.placeMarble(4, 4, 'O');
+            board.placeMarble(5, 5, 'X');
+            assertEquals(Move.NONE, book.lookup(board));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEnumerationDoesNotRotateAfterAWin() {
+        GameBoard start = GameBoard.fromString("XXXX..OOOO..........................");
+        Set<Long> byRules = new HashSet<>();
+        Set<Long> onlyAfterWinRotation = new HashSet<>();
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = start.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            GameBoard played = new GameBoard(start);
+            played.playMove(moves[i], 'X');
+            if (!played.isGameOver()) {
+                byRules.add(Symmetry.key(played.getCanonicalKey()));
+            }
+            GameBoard rotated = new GameBoard(start);
+            rotated.makeMove(moves[i], 'X');
+            if (played.isGameOver() && !rotated.isGameOver()) {
+                onlyAfterWinRotation.add(Symmetry.key(rotated.getCanonicalKey()));
+            }
+        }
+        onlyAfterWinRotation.removeAll(byRules);
+        assertFalse(onlyAfterWinRotation.isEmpty());
+
+        List<List<Long>> positions = new OpeningBookGenerator(2, 10, 1, 1).enumeratePositions(start);
+        assertEquals(2, positions.size());
+        assertEquals(byRules, new HashSet<>(positions.get(1)));
+        for (long key : onlyAfterWinRotation) {
+            assertFalse(positions.get(1).contains(key));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws Exception {
+        Path file = Files.createTempFile("book", ".bin");
+        try {
+            Files.write(file, "not a book at all".getBytes());
+            new OpeningBook(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scores a position by its open lines: winning lines that hold marbles of one player only,
+ * weighted by how many, plus the rotations that would give a player five in a row.
+ * <p>
+ * The board keeps a 4-bit marble count per player for each of the 32 winning lines, packed
+ * 16 to a long. A table indexed by one byte of X's counts and the same byte of O's counts
+ * holds the score of those two lines, so the open-line part of an evaluation is 16 table
+ * loads. The rotation threats come from {@link GameBoard#countRotationFives(char)}.
+ * <p>
+ * The features are the differences between the player's counts and the opponent's:
+ * <ul>
+ * <li>{@link #OPEN_ONES} to {@link #OPEN_FOURS}: lines holding 1 to 4 marbles of one player only</li>
+ * <li>{@link #ROTATION_FIVES}: quadrant rotations that complete a line of five</li>
+ * </ul>
+ * The score is the weighted sum of the features. Instances are immutable.
+ * <p>
+ * Weights can be kept in a text file of {@code name weight} lines, one per feature, with
+ * {@code #} starting a comment; {@link EvalTuner} writes such files. The players use the
+ * weights named by the {@code pentago.weights} system property, if any.
+ */
+public class PatternEvaluator implements Evaluator {
+    public static final int OPEN_ONES = 0;
+    public static final int OPEN_TWOS = 1;
+    public static final int OPEN_THREES = 2;
+    public static final int OPEN_FOURS = 3;
+    public static final int ROTATION_FIVES = 4;
+    public static final int FEATURE_COUNT = 5;
+    /** The names of the features in weight files, indexed by the feature constants. */
+    public static final List<String> FEATURE_NAMES =
+            List.of("open_ones", "open_twos", "open_threes", "open_fours", "rotation_fives");
+    public static final String WEIGHTS_PROPERTY = "pentago.weights";
+
+    private static final int[] DEFAULT_WEIGHTS = {1, 4, 16, 64, 256};
+
+    private static PatternEvaluator defaultEvaluator;
+
+    private final int[] weights;
+
+    /** For each byte of X's line counts and byte of O's, the score of those two lines for X. */
+    private final int[] pairScores = new int[1 << 16];
+
+    /**
+     * Creates an evaluator with the default weights.
+     */
+    public PatternEvaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * @param weights the weight of every feature, indexed by the feature constants
+     */
+    public PatternEvaluator(int[] weights) {
+        if (weights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FEATURE_COUNT + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+        for (int index = 0; index < pairScores.length; index++) {
+            int xByte = index >>> 8;
+            int oByte = index & 0xFF;
+            pairScores[index] = lineScore(xByte & 0xF, oByte & 0xF) + lineScore(xByte >>> 4, oByte >>> 4);
+        }
+    }
+
+    /**
+     * Returns the evaluator shared by all players: with the weights of the file named by the
+     * {@code pentago.weights} system property, loaded on first use, or the default weights
+     * if the property is not set.
+     * @return the shared evaluator
+     * @throws java.io.UncheckedIOException if the property is set but the file cannot be read
+     */
+    public static synchronized PatternEvaluator getDefault() {
+        if (defaultEvaluator == null) {
+            PatternEvaluator tuned = ConfiguredFile.load(WEIGHTS_PROPERTY, "evaluation weights", PatternEvaluator::load);
+            defaultEvaluator = tuned != null ? tuned : new PatternEvaluator();
+        }
+        return defaultEvaluator;
+    }
+
+    /**
+     * Reads a weight file. Every feature must be given exactly once.
+     * @param path the file to read
+     * @return an evaluator with the weights of the file
+     * @throws IOException if the file cannot be read or is not a valid weight file
+     */
+    public static PatternEvaluator load(Path path) throws IOException {
+        int[] weights = new int[FEATURE_COUNT];
+        boolean[] seen = new boolean[FEATURE_COUNT];
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String text = (comment < 0 ? line : line.substring(0, comment)).strip();
+            if (text.isEmpty()) {
+                continue;
+            }
+            String[] parts = text.split("\\s+");
+            int feature = FEATURE_NAMES.indexOf(parts[0]);
+            if (parts.length != 2 || feature < 0 || seen[feature]) {
+                throw new IOException("Invalid weight at line " + lineNumber + " of " + path);
+            }
+            try {
+                weights[feature] = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid weight at line " + lineNumber + " of " + path, e);
+            }
+            seen[feature] = true;
+        }
+        for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+            if (!seen[feature]) {
+                throw new IOException("Missing weight " + FEATURE_NAMES.get(feature) + " in " + path);
+            }
+        }
+        return new PatternEvaluator(weights);
+    }
+
+    /**
+     * Writes the weights, replacing the file atomically.
+     * @param path the file to write
+     * @param comment a comment for the first line, or null
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path, String comment) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (comment != null) {
+            lines.add("# " + comment);
+        }
+        for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+            lines.add(FEATURE_NAMES.get(feature) + " " + weights[feature]);
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return a copy of the weights, indexed by the feature constants
+     */
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    @Override
+    public int evaluate(GameBoard board, char marble) {
+        int score = 0;
+        for (int word = 0; word < 2; word++) {
+            long x = board.getPackedLineCounts('X', word);
+            long o = board.getPackedLineCounts('O', word);
+            for (int shift = 0; shift < 64; shift += 8) {
+                score += pairScores[(int) ((x >>> shift) & 0xFF) << 8 | (int) ((o >>> shift) & 0xFF)];
+            }
+        }
+        score += weights[ROTATION_FIVES] * (board.countRotationFives('X') - board.countRotationFives('O'));
+        score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+        return marble == 'X' ? score : -score;
+    }
+
+    /**
+     * Computes the features of a position for one player, the score being their dot product
+     * with the weights before clamping to MAX_SCORE.
+     * @param board the position; it is left unchanged
+     * @param marble the marble of the player
+     * @param features receives the FEATURE_COUNT features
+     */
+    public static void extractFeatures(GameBoard board, char marble, int[] features) {
+        Arrays.fill(features, 0, FEATURE_COUNT, 0);
+        char opponent = marble == 'X' ? 'O' : 'X';
+        for (int line = 0; line < GameBoard.WIN_MASKS.length; line++) {
+            int own = board.getLineCount(marble, line);
+            int other = board.getLineCount(opponent, line);
+            if (other == 0 && own > 0 && own < 5) {
+                features[OPEN_ONES + own - 1]++;
+            } else if (own == 0 && other > 0 && other < 5) {
+                features[OPEN_ONES + other - 1]--;
+            }
+        }
+        features[ROTATION_FIVES] = board.countRotationFives(marble) - board.countRotationFives(opponent);
+    }
+
+    /**
+     * Scores one line for X from the marble counts of both players. Lines holding both
+     * players' marbles are dead; completed lines are left to the win check.
+     */
+    private int lineScore(int xCount, int oCount) {
+        if (oCount == 0 && xCount > 0 && xCount < 5) {
+            return weights[OPEN_ONES + xCount - 1];
+        }
+        if (xCount == 0 && oCount > 0 && oCount < 5) {
+            return -weights[OPEN_ONES + oCount - 1];
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.Assert.*;
+import java.io.UncheckedIOException;
+import org.junit.Test;
+
+public class PatternEvaluatorTest {
+    private static final int POSITIONS = 500;
+
+    @Test
+    public void testMatchesLineScan() {
+        int[] weights = {3, 7, 19, 71, 0};
+        PatternEvaluator evaluator = new PatternEvaluator(weights);
+        for (GameBoard board : PositionCorpus.generate(11L, POSITIONS, 0, 30)) {
+            long x = board.getMarbleBits('X');
+            long o = board.getMarbleBits('O');
+            int expected = 0;
+            for (long mask : GameBoard.WIN_MASKS) {
+                int xCount = Long.bitCount(x & mask);
+                int oCount = Long.bitCount(o & mask);
+                if (oCount == 0 && xCount > 0 && xCount < 5) {
+                    expected += weights[xCount - 1];
+                } else if (xCount == 0 && oCount > 0 && oCount < 5) {
+                    expected -= weights[oCount - 1];
+                }
+            }
+            assertEquals(board.toString(), expected, evaluator.evaluate(board, 'X'));
+            assertEquals(board.toString(), -expected, evaluator.evaluate(board, 'O'));
+        }
+    }
+
+    @Test
+    public void testRotationFivesMatchRotatedBoards() {
+        int positionsWithThreats = 0;
+        for (GameBoard board : PositionCorpus.generate(12L, POSITIONS, 10, 30)) {
+            for (char marble : new char[] {'X', 'O'}) {
+                int expected = 0;
+                for (int quadrant = 1; quadrant <= 4; quadrant++) {
+                    for (boolean clockwise : new boolean[] {true, false}) {
+                        GameBoard rotated = new GameBoard(board);
+                        rotated.rotateQuadrant(quadrant, clockwise);
+                        if (rotated.hasFiveInARow(marble)) {
+                            expected++;
+                        }
+                    }
+                }
+                assertEquals(board.toString(), expected, board.countRotationFives(marble));
+                positionsWithThreats += expected > 0 ? 1 : 0;
+            }
+        }
+        assertTrue(positionsWithThreats > 0);
+    }
+
+    @Test
+    public void testFeaturesDotWeightsIsScore() {
+        PatternEvaluator evaluator = PatternEvaluator.getDefault();
+        int[] weights = evaluator.getWeights();
+        int[] features = new int[PatternEvaluator.FEATURE_COUNT];
+        for (GameBoard board : PositionCorpus.generate(13L, POSITIONS, 0, 30)) {
+            char marble = board.getSideToMove();
+            PatternEvaluator.extractFeatures(board, marble, features);
+            int expected = 0;
+            for (int i = 0; i < features.length; i++) {
+                expected += weights[i] * features[i];
+            }
+            assertEquals(board.toString(), expected, evaluator.evaluate(board, marble));
+        }
+    }
+
+    @Test
+    public void testConfiguredWeightsMustLoad() {
+        String property = PatternEvaluator.WEIGHTS_PROPERTY;
+        String previous = System.getProperty(property);
+        try {
+            System.clearProperty(property);
+            assertNull(ConfiguredFile.load(property, "evaluation weights", PatternEvaluator::load));
+            System.setProperty(property, "no-such-weights.txt");
+            assertThrows(UncheckedIOException.class,
+                    () -> ConfiguredFile.load(property, "evaluation weights", PatternEvaluator::load));
+        } finally {
+            if (previous == null) {
+                System.clearProperty(property);
+            } else {
+                System.setProperty(property, previous);
+            }
+        }
+    }
+}
@@ -1,4 +1,7 @@
-import java.util.function.Consumer;
+/**
+ * The state of one game: the board, the two players and whose turn it is. Asking the
+ * players for their moves is left to a {@link GameController}.
+ */
 public class Pentago {
     private static final int GRID_SIZE = 6;
     private static final int QUADRANT_SIZE = GRID_SIZE / 2;
@@ -8,16 +11,28 @@ public class Pentago {
     private Player player1;
     private Player player2;
     private Player currentPlayer;
-    private Consumer<HumanPlayer> moveRequestCallback;
 
-    public Pentago(Consumer<HumanPlayer> moveRequestCallback, String gameMode) {
+    public Pentago(String gameMode) {
         board = new GameBoard();
-        this.moveRequestCallback = moveRequestCallback;
         initializePlayers(gameMode);
     }
 
+    /**
+     * @param player1 the player of X, who moves first
+     * @param player2 the player of O
+     */
+    public Pentago(Player player1, Player player2) {
+        if (player1.getMarble() != PLAYER_X || player2.getMarble() != PLAYER_O) {
+            throw new IllegalArgumentException("Players must play X and O");
+        }
+        board = new GameBoard();
+        this.player1 = player1;
+        this.player2 = player2;
+        currentPlayer = player1;
+    }
+
     private void initializePlayers(String gameMode) {
-        PlayerFactory playerFactory = new PlayerFactory(moveRequestCallback);
+        PlayerFactory playerFactory = new PlayerFactory();
         player1 = playerFactory.createPlayer(PLAYER_X, gameMode);
         player2 = playerFactory.createPlayer(PLAYER_O, gameMode);
         currentPlayer = player1;
@@ -50,13 +65,63 @@ public class Pentago {
         return board.checkWinner();
     }
 
+    /**
+     * Checks whether the game is drawn.
+     * @return Whether both players have five in a row, or the board is full without a winner.
+     */
+    public boolean isDraw() {
+        return board.isDraw();
+    }
+
+    /**
+     * Checks whether placing the current player's marble on a cell completes five in a
+     * row, which wins before the rotation.
+     * @param row The row of the empty cell.
+     * @param col The column of the empty cell.
+     * @return Whether the placement wins.
+     */
+    public boolean isWinningPlacement(int row, int col) {
+        return board.checkWinningMove(row, col, currentPlayer.getMarble());
+    }
+
+    /**
+     * Plays a full move for the current player and passes the turn. A placement that
+     * completes five ends the game without the rotation.
+     * @param move The encoded move, see {@link Move}.
+     * @return Whether the move was played; false if its cell is occupied.
+     */
+    public boolean playMove(int move) {
+        if (!board.playMove(move, currentPlayer.getMarble())) {
+            return false;
+        }
+        if (board.isGameOver()) {
+            GameEndEvent.record(board, player1.getClass().getSimpleName(), player2.getClass().getSimpleName());
+        }
+        switchPlayer();
+        return true;
+    }
+
+    /**
+     * @return An immutable copy of the position and the side to move.
+     */
+    public BoardSnapshot snapshot() {
+        return BoardSnapshot.of(board, currentPlayer.getMarble());
+    }
 
     public void switchPlayer() {
         currentPlayer = (currentPlayer == player1) ? player2 : player1;
-        System.out.println("Pentago.switchPlayer called.");
-        System.out.println("New Current Player: " + currentPlayer);
-        System.out.println("Player1: " + player1);
-        System.out.println("Player2: " + player2);
+    }
+
+    /**
+     * @param marble 'X' or 'O'
+     * @return the player of that marble
+     */
+    public Player getPlayer(char marble) {
+        return marble == PLAYER_X ? player1 : player2;
+    }
+
+    public Player getCurrentPlayer() {
+        return currentPlayer;
     }
 
     public char getCurrentPlayerMarble() {
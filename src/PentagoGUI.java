@@ -1,20 +1,23 @@
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import java.util.function.Consumer;
 
 public class PentagoGUI {
+    private static final long MOVE_TIMEOUT_MILLIS = 10_000;
+
     private JFrame frame;
     private Pentago game;
+    private GameController controller;
+    private BoardSnapshot position;
     private JButton[][] buttons;
-    private JButton rotateButton;
+    private JLabel statusLabel;
+    private JButton moveNowButton;
     private int selectedQuadrant;
     private boolean rotateClockwise;
 
     public PentagoGUI() {
         String gameMode = getUserGameModeSelection();
-        Consumer<HumanPlayer> moveRequestCallback = this::handleHumanPlayerMove;
-        game = new Pentago(moveRequestCallback, gameMode);
+        game = new Pentago(gameMode);
         frame = new JFrame("Pentago");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(600, 600);
@@ -29,52 +32,100 @@ public class PentagoGUI {
             for (int j = 0; j < 6; j++) {
                 JButton button = new JButton();
                 button.setFont(new Font("Arial", Font.BOLD, 24));
+                button.setEnabled(false);
                 button.addActionListener(new ButtonListener(i, j));
                 boardPanel.add(button);
                 buttons[i][j] = button;
             }
         }
 
-        rotateButton = new JButton("Rotate");
-        rotateButton.addActionListener(new ActionListener() {
+        // The status line shows whose turn it is and the progress of a thinking AI
+        statusLabel = new JLabel(" ");
+        moveNowButton = new JButton("Move Now");
+        moveNowButton.setEnabled(false);
+        moveNowButton.addActionListener(e -> controller.moveNow());
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(moveNowButton, BorderLayout.EAST);
+        frame.add(statusPanel, BorderLayout.SOUTH);
+
+        controller = new GameController(game, new GameController.Listener() {
+            @Override
+            public void positionChanged(BoardSnapshot snapshot) {
+                position = snapshot;
+                updateBoard();
+                announceResultIfGameOver();
+                if (controller.isAwaitingHuman()) {
+                    enableEmptyCells();
+                }
+            }
+
             @Override
-            public void actionPerformed(ActionEvent e) {
-                // Prompt user to select quadrant and direction after placing a marble
-                SwingUtilities.invokeLater(() -> {
-                    selectedQuadrant = getUserQuadrantSelection();
-                    rotateClockwise = getUserRotationDirection();
-                    game.rotateQuadrant(selectedQuadrant, rotateClockwise);
-                    updateBoard();
-                    game.switchPlayer();
-                });
+            public void thinking(char marble, SearchProgress progress) {
+                statusLabel.setText("Player " + marble + " is thinking: " + progress);
+                moveNowButton.setEnabled(true);
+            }
+
+            @Override
+            public void engineFailed(char marble, Throwable error) {
+                moveNowButton.setEnabled(false);
+                JOptionPane.showMessageDialog(frame, "Player " + marble + " failed: " + error.getMessage());
+            }
+        }, MOVE_TIMEOUT_MILLIS);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                controller.shutdown();
             }
         });
-        frame.add(rotateButton, BorderLayout.SOUTH);
 
         frame.setVisible(true);
+        controller.start();
     }
 
-    private void handleHumanPlayerMove(HumanPlayer player) {
+    private void enableEmptyCells() {
         // Enable all buttons for the human player to make a move
         for (int i = 0; i < 6; i++) {
             for (int j = 0; j < 6; j++) {
-                if (game.getMarble(i, j) == '.') {
+                if (position.getMarble(i, j) == '.') {
                     buttons[i][j].setEnabled(true);
                 }
             }
         }
     }
 
+    /**
+     * Shows the latest position with all cells disabled.
+     */
     private void updateBoard() {
         for (int i = 0; i < 6; i++) {
             for (int j = 0; j < 6; j++) {
-                char marble = game.getMarble(i, j);
-                buttons[i][j].setText(String.valueOf(marble));
-                buttons[i][j].setEnabled(marble == '.');
+                buttons[i][j].setText(String.valueOf(position.getMarble(i, j)));
+                buttons[i][j].setEnabled(false);
             }
         }
+        moveNowButton.setEnabled(false);
+        statusLabel.setText("Player " + position.getSideToMove() + " to move");
+    }
+
+    /**
+     * Shows the result and exits if the last move ended the game.
+     * A rotation can give both players five in a row at once, which is a draw.
+     */
+    private void announceResultIfGameOver() {
+        char result = position.getResult();
+        if (result == GameBoard.DRAW) {
+            JOptionPane.showMessageDialog(frame, "It's a draw!");
+            System.exit(0);
+        } else if (result != '.') {
+            JOptionPane.showMessageDialog(frame, "Player " + result + " wins!");
+            System.exit(0);
+        }
     }
 
+    /**
+     * @return the quadrant from 1 to 4, or 0 if the dialog was closed
+     */
     private int getUserQuadrantSelection() {
         Object[] options = {"Upper Left", "Upper Right", "Lower Left", "Lower Right"};
         int n = JOptionPane.showOptionDialog(frame,
@@ -88,7 +139,10 @@ public class PentagoGUI {
         return n + 1;
     }
 
-    private boolean getUserRotationDirection() {
+    /**
+     * @return 0 for clockwise, 1 for counter-clockwise, or -1 if the dialog was closed
+     */
+    private int getUserRotationDirection() {
         Object[] options = {"Clockwise", "Counter-Clockwise"};
         int n = JOptionPane.showOptionDialog(frame,
                 "Choose the rotation direction:",
@@ -98,7 +152,7 @@ public class PentagoGUI {
                 null,
                 options,
                 options[0]);
-        return n == 0;
+        return n;
     }
 
     private class ButtonListener implements ActionListener {
@@ -112,32 +166,37 @@ public class PentagoGUI {
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (!game.placeMarble(row, col)) {
+            if (!controller.isAwaitingHuman()) {
+                return;
+            }
+            if (position.getMarble(row, col) != '.') {
                 JOptionPane.showMessageDialog(frame, "Invalid move, try again.");
                 return;
             }
 
             JButton button = (JButton) e.getSource();
-            button.setText(String.valueOf(game.getCurrentPlayerMarble()));
+            button.setText(String.valueOf(position.getSideToMove()));
             button.setEnabled(false);
 
-            char winner = game.checkWinner();
-            if (winner != '.') {
-                JOptionPane.showMessageDialog(frame, "Player " + winner + " wins!");
-                System.exit(0);
+            // A placement that completes five wins at once, without a rotation
+            if (!controller.isWinningPlacement(row, col)) {
+                selectedQuadrant = getUserQuadrantSelection();
+                int direction = selectedQuadrant == 0 ? -1 : getUserRotationDirection();
+                if (direction < 0) {
+                    // Closing either dialog takes the placement back
+                    button.setText(String.valueOf(position.getMarble(row, col)));
+                    button.setEnabled(true);
+                    return;
+                }
+                rotateClockwise = direction == 0;
             }
-
-            // Prompt user to select quadrant and direction for rotation
-            selectedQuadrant = getUserQuadrantSelection();
-            rotateClockwise = getUserRotationDirection();
-            game.rotateQuadrant(selectedQuadrant, rotateClockwise);
-            updateBoard();
-            game.switchPlayer();
+            controller.playHumanMove(row, col, selectedQuadrant, rotateClockwise);
         }
     }
 
     private String getUserGameModeSelection() {
-        Object[] options = {"Player vs. Player", "Player vs. AI"};
+        Object[] options = {"Player vs. Player", "Player vs. AI", "Player vs. Alpha-Beta AI",
+                "Player vs. Monte Carlo AI"};
         int n = JOptionPane.showOptionDialog(null,
                 "Choose a game mode:",
                 "Select Game Mode",
@@ -0,0 +1,374 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the leaf positions of the move tree to a fixed depth (perft), to verify move
+ * generation and make/unmake against known counts and to measure how fast the board
+ * applies moves.
+ * <p>
+ * Moves are played by the rules of the game, as {@link GameBoard#playMove} plays them: a
+ * placement plus a rotation, except that a placement completing five in a row ends the
+ * game before the rotation, so it is one child instead of eight. A position where the
+ * game is over has no moves, so it counts as a leaf only when it is reached at the last
+ * ply. In symmetric mode the moves of a position that lead to the same child position up
+ * to the eight board symmetries are counted once, by the canonical key of {@link Symmetry}.
+ * <p>
+ * The root moves are split across a fixed thread pool; each task works on its own copy
+ * of the board.
+ * <p>
+ * Usage:
+ * <pre>
+ * java Perft [--position board] [--depth N] [--threads N] [--symmetric] [--divide]
+ * java Perft --verify [--threads N]
+ * </pre>
+ */
+public class Perft {
+    static final String EMPTY_BOARD = new GameBoard().toString();
+    static final String MIDDLE_GAME = "X..O..OX..X.....O..X.O.X..O....X.O..";
+    static final String FOUR_IN_A_ROW = "XXXX..OO.O...O...........X..........";
+    static final String NEARLY_FULL = "XOOO.OXOXXX.OOXX.OOOOXO.X.XXXOO.XOXX";
+
+    /** A verified leaf count. */
+    private static final class KnownCount {
+        final String position;
+        final int depth;
+        final boolean symmetric;
+        final long leaves;
+
+        KnownCount(String position, int depth, boolean symmetric, long leaves) {
+            this.position = position;
+            this.depth = depth;
+            this.symmetric = symmetric;
+            this.leaves = leaves;
+        }
+    }
+
+    private static final KnownCount[] KNOWN_COUNTS = {
+            new KnownCount(EMPTY_BOARD, 1, false, 288L),
+            new KnownCount(EMPTY_BOARD, 2, false, 80_640L),
+            new KnownCount(EMPTY_BOARD, 3, false, 21_934_080L),
+            new KnownCount(EMPTY_BOARD, 4, false, 5_790_597_120L),
+            new KnownCount(EMPTY_BOARD, 1, true, 6L),
+            new KnownCount(EMPTY_BOARD, 2, true, 345L),
+            new KnownCount(EMPTY_BOARD, 3, true, 45_045L),
+            new KnownCount(MIDDLE_GAME, 1, false, 192L),
+            new KnownCount(MIDDLE_GAME, 2, false, 35_328L),
+            new KnownCount(MIDDLE_GAME, 3, false, 6_205_408L),
+            new KnownCount(MIDDLE_GAME, 3, true, 6_151_332L),
+            new KnownCount(FOUR_IN_A_ROW, 1, false, 216L),
+            new KnownCount(FOUR_IN_A_ROW, 2, false, 44_200L),
+            new KnownCount(FOUR_IN_A_ROW, 3, false, 8_787_536L),
+            new KnownCount(FOUR_IN_A_ROW, 3, true, 3_704_610L),
+            new KnownCount(NEARLY_FULL, 3, false, 28_906L),
+            new KnownCount(NEARLY_FULL, 5, false, 4_170_560L),
+            new KnownCount(NEARLY_FULL, 5, true, 2_164_000L),
+    };
+
+    private final int threads;
+    private final boolean symmetric;
+
+    /**
+     * @param threads the number of threads to count with
+     * @param symmetric true to count moves leading to the same position up to symmetry once
+     */
+    public Perft(int threads, boolean symmetric) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Counts the leaves of the move tree below a position.
+     * @param position the position, left unchanged
+     * @param depth the depth in plies
+     * @return the number of leaf positions
+     */
+    public long count(GameBoard position, int depth) {
+        long total = 0;
+        for (long nodes : divide(position, depth)) {
+            total += nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Counts the leaves of the move tree below each root move of a position.
+     * @param position the position, left unchanged
+     * @param depth the depth in plies, at least 1
+     * @return the leaf count of every generated root move, in generation order; moves
+     *         that are not played count 0, i.e. all but the first rotation of a winning
+     *         placement and, in symmetric mode, the repeats
+     */
+    public long[] divide(GameBoard position, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be positive: " + depth);
+        }
+        int[] moves = new int[Move.MAX_MOVES];
+        int moveCount = position.isGameOver() ? 0 : position.generateMoves(moves);
+        long[] counts = new long[moveCount];
+        boolean[] counted = new boolean[moveCount];
+        Worker rootWorker = new Worker(position, depth, symmetric);
+        char side = position.getSideToMove();
+        boolean placementWins = false;
+        for (int i = 0; i < moveCount; i++) {
+            int move = moves[i];
+            if (Move.rotation(move) == 0) {
+                placementWins = position.checkWinningMove(Move.row(move), Move.col(move), side);
+            }
+            counted[i] = (Move.rotation(move) == 0 || !placementWins) && rootWorker.isNewChild(move, side, 0);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < moveCount; i++) {
+                int move = moves[i];
+                results.add(counted[i]
+                        ? pool.submit(() -> new Worker(position, depth, symmetric).countBelow(move, side))
+                        : null);
+            }
+            for (int i = 0; i < moveCount; i++) {
+                counts[i] = results.get(i) == null ? 0 : waitFor(results.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return counts;
+    }
+
+    /**
+     * Counts one subtree on a private copy of the board with per-ply move buffers.
+     */
+    private static class Worker {
+        private final GameBoard board;
+        private final boolean symmetric;
+        private final int[][] moves;
+        private final KeySet[] children;
+
+        Worker(GameBoard position, int depth, boolean symmetric) {
+            this.board = new GameBoard(position);
+            this.symmetric = symmetric;
+            moves = new int[depth][Move.MAX_MOVES];
+            children = new KeySet[depth];
+            for (int ply = 0; ply < depth; ply++) {
+                children[ply] = new KeySet();
+            }
+        }
+
+        /**
+         * Tells whether a move of the root leads to a position none of the earlier root
+         * moves led to up to symmetry. Always true outside symmetric mode.
+         */
+        boolean isNewChild(int move, char side, int ply) {
+            if (!symmetric) {
+                return true;
+            }
+            boolean placementOnly = play(move, side);
+            boolean added = children[ply].add(Symmetry.key(board.getCanonicalKey()));
+            undo(move, placementOnly);
+            return added;
+        }
+
+        long countBelow(int move, char side) {
+            int depth = moves.length;
+            boolean placementOnly = play(move, side);
+            long nodes;
+            if (depth == 1) {
+                nodes = 1;
+            } else {
+                nodes = board.isGameOver() ? 0 : perft(opponent(side), depth - 1, 1);
+            }
+            undo(move, placementOnly);
+            return nodes;
+        }
+
+        private long perft(char side, int depth, int ply) {
+            int[] buffer = moves[ply];
+            int count = board.generateMoves(buffer);
+            if (depth == 1 && !symmetric) {
+                long leaves = count;
+                for (int i = 0; i < count; i += Move.ROTATIONS) {
+                    if (board.checkWinningMove(Move.row(buffer[i]), Move.col(buffer[i]), side)) {
+                        leaves -= Move.ROTATIONS - 1;
+                    }
+                }
+                return leaves;
+            }
+            KeySet seen = children[ply];
+            seen.clear();
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                int move = buffer[i];
+                boolean placementOnly = play(move, side);
+                if (placementOnly) {
+                    i += Move.ROTATIONS - 1; // The other rotations of the cell are the same move
+                }
+                if (!symmetric || seen.add(Symmetry.key(board.getCanonicalKey()))) {
+                    if (depth == 1) {
+                        nodes++;
+                    } else if (!board.isGameOver()) {
+                        nodes += perft(opponent(side), depth - 1, ply + 1);
+                    }
+                }
+                undo(move, placementOnly);
+            }
+            return nodes;
+        }
+
+        /**
+         * Plays a move by the rules of the game. Only the first rotation of a cell, which
+         * {@link GameBoard#generateMoves} writes first, is checked for a winning placement.
+         * @return true if the placement won, so the rotation was left out
+         */
+        private boolean play(int move, char side) {
+            int row = Move.row(move);
+            int col = Move.col(move);
+            if (Move.rotation(move) == 0 && board.checkWinningMove(row, col, side)) {
+                board.placeMarble(row, col, side);
+                return true;
+            }
+            board.makeMove(move, side);
+            return false;
+        }
+
+        private void undo(int move, boolean placementOnly) {
+            if (placementOnly) {
+                board.removeMarble(Move.row(move), Move.col(move));
+            } else {
+                board.unmakeMove(move);
+            }
+        }
+    }
+
+    /**
+     * A set of the position keys of one node's children: an open-addressing table
+     * cleared in O(1) by bumping a stamp, so counting does not allocate.
+     */
+    private static class KeySet {
+        private static final int BITS = 9;
+        private static final int SIZE = 1 << BITS;
+
+        private final long[] keys = new long[SIZE];
+        private final int[] stamps = new int[SIZE];
+        private int stamp = 1;
+
+        void clear() {
+            stamp++;
+        }
+
+        /**
+         * @return true if the key was not in the set yet
+         */
+        boolean add(long key) {
+            int index = (int) ((key * 0x9E37_79B9_7F4A_7C15L) >>> (Long.SIZE - BITS));
+            while (stamps[index] == stamp) {
+                if (keys[index] == key) {
+                    return false;
+                }
+                index = (index + 1) & (SIZE - 1);
+            }
+            stamps[index] = stamp;
+            keys[index] = key;
+            return true;
+        }
+    }
+
+    private static char opponent(char side) {
+        return (side == 'X') ? 'O' : 'X';
+    }
+
+    private static long waitFor(Future<Long> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perft task failed", e.getCause());
+        }
+    }
+
+    public static void main(String[] args) {
+        String position = EMPTY_BOARD;
+        int depth = 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean symmetric = false;
+        boolean divide = false;
+        boolean verify = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--position":
+                    position = args[++i];
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--symmetric":
+                    symmetric = true;
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--verify":
+                    verify = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (verify) {
+            System.exit(verify(threads) ? 0 : 1);
+        }
+        GameBoard board = GameBoard.fromString(position);
+        Perft perft = new Perft(threads, symmetric);
+        long start = System.nanoTime();
+        if (divide) {
+            int[] moves = new int[Move.MAX_MOVES];
+            board.generateMoves(moves);
+            long[] counts = perft.divide(board, depth);
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                System.out.printf("%-12s %d%n", Move.toString(moves[i]), counts[i]);
+                total += counts[i];
+            }
+            report(total, System.nanoTime() - start);
+        } else {
+            report(perft.count(board, depth), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Recounts every known result and reports any difference.
+     * @return true if all counts match
+     */
+    static boolean verify(int threads) {
+        boolean allMatch = true;
+        for (KnownCount known : KNOWN_COUNTS) {
+            long start = System.nanoTime();
+            long actual = new Perft(threads, known.symmetric)
+                    .count(GameBoard.fromString(known.position), known.depth);
+            long elapsed = System.nanoTime() - start;
+            boolean match = actual == known.leaves;
+            allMatch &= match;
+            System.out.printf("%s %s depth %d%s: %d (expected %d) %.1f M leaves/s%n", match ? "OK  " : "FAIL",
+                    known.position, known.depth, known.symmetric ? " symmetric" : "", actual, known.leaves,
+                    actual * 1000.0 / elapsed);
+        }
+        return allMatch;
+    }
+
+    private static void report(long leaves, long elapsedNanos) {
+        System.out.printf("%d leaves in %.3f s (%.1f M leaves/s)%n",
+                leaves, elapsedNanos / 1e9, leaves * 1000.0 / elapsedNanos);
+    }
+}
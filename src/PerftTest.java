@@ -0,0 +1,146 @@
+import static org.junit.Assert.*;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Checks perft counts against a slow counter that copies the board for every move,
+ * rotates through the char[][] path, which rebuilds the hash and line counts from scratch,
+ * and finds symmetric positions by turning and mirroring the board text.
+ */
+public class PerftTest {
+    private static final String[] POSITIONS = {
+            Perft.EMPTY_BOARD, Perft.MIDDLE_GAME, Perft.FOUR_IN_A_ROW, Perft.NEARLY_FULL};
+
+    @Test
+    public void testEmptyBoardCounts() {
+        Perft perft = new Perft(1, false);
+        GameBoard board = new GameBoard();
+        assertEquals(288L, perft.count(board, 1));
+        assertEquals(80_640L, perft.count(board, 2));
+        assertEquals(6L, new Perft(1, true).count(board, 1)); // One marble, up to symmetry
+    }
+
+    @Test
+    public void testWinningPlacementIsOneTerminalChild() {
+        GameBoard board = GameBoard.fromString("XXXX..OOOO..........................");
+        // 28 empty cells: 27 placements with eight rotations each and the winning (0,4) without
+        assertEquals(27 * Move.ROTATIONS + 1, new Perft(1, false).count(board, 1));
+        long[] counts = new Perft(1, false).divide(board, 1); // (0,4) is the first empty cell
+        assertEquals(1L, counts[0]);
+        for (int rotation = 1; rotation < Move.ROTATIONS; rotation++) {
+            assertEquals(0L, counts[rotation]);
+        }
+        assertEquals(0L, new Perft(1, false).divide(board, 2)[0]);
+    }
+
+    @Test
+    public void testCountsMatchSlowCounter() {
+        for (String position : POSITIONS) {
+            GameBoard board = GameBoard.fromString(position);
+            for (int depth = 1; depth <= 2; depth++) {
+                assertEquals(position + " depth " + depth, slowCount(board, depth, false),
+                        new Perft(2, false).count(board, depth));
+                assertEquals(position + " depth " + depth + " symmetric", slowCount(board, depth, true),
+                        new Perft(2, true).count(board, depth));
+            }
+        }
+        GameBoard nearlyFull = GameBoard.fromString(Perft.NEARLY_FULL);
+        assertEquals(slowCount(nearlyFull, 3, false), new Perft(1, false).count(nearlyFull, 3));
+        assertEquals(slowCount(nearlyFull, 3, true), new Perft(1, true).count(nearlyFull, 3));
+    }
+
+    @Test
+    public void testCountLeavesBoardUnchanged() {
+        GameBoard board = GameBoard.fromString(Perft.MIDDLE_GAME);
+        long hash = board.getHash();
+        new Perft(1, true).count(board, 2);
+        assertEquals(Perft.MIDDLE_GAME, board.toString());
+        assertEquals(hash, board.getHash());
+    }
+
+    @Test
+    public void testBoardTextRoundTrip() {
+        for (String position : POSITIONS) {
+            assertEquals(position, GameBoard.fromString(position).toString());
+        }
+    }
+
+    private static long slowCount(GameBoard board, int depth, boolean symmetric) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (board.isGameOver()) {
+            return 0;
+        }
+        char side = board.getSideToMove();
+        Set<String> seen = new HashSet<>();
+        long nodes = 0;
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            for (int col = 0; col < GameBoard.GRID_SIZE; col++) {
+                if (board.getMarble(row, col) != '.') {
+                    continue;
+                }
+                GameBoard placed = new GameBoard(board);
+                placed.placeMarble(row, col, side);
+                if (placed.hasFiveInARow(side)) {
+                    if (!symmetric || seen.add(smallestImage(placed))) {
+                        nodes += slowCount(placed, depth - 1, symmetric);
+                    }
+                    continue;
+                }
+                for (int quadrant = 1; quadrant <= 4; quadrant++) {
+                    for (boolean clockwise : new boolean[] {true, false}) {
+                        GameBoard child = new GameBoard(placed);
+                        int startRow = (quadrant <= 2) ? 0 : GameBoard.QUADRANT_SIZE;
+                        int startCol = (quadrant == 1 || quadrant == 3) ? 0 : GameBoard.QUADRANT_SIZE;
+                        char[][] temp = child.copyQuadrantToTempArray(startRow, startCol);
+                        child.rotateTempArrayAndCopyBack(temp, startRow, startCol, clockwise);
+                        if (!symmetric || seen.add(smallestImage(child))) {
+                            nodes += slowCount(child, depth - 1, symmetric);
+                        }
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /** Returns the smallest text of the eight turned and mirrored images of a board. */
+    private static String smallestImage(GameBoard board) {
+        int size = GameBoard.GRID_SIZE;
+        char[][] grid = new char[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                grid[row][col] = board.getMarble(row, col);
+            }
+        }
+        String smallest = null;
+        for (int mirror = 0; mirror < 2; mirror++) {
+            for (int turn = 0; turn < 4; turn++) {
+                StringBuilder text = new StringBuilder();
+                for (char[] line : grid) {
+                    text.append(line);
+                }
+                if (smallest == null || text.toString().compareTo(smallest) < 0) {
+                    smallest = text.toString();
+                }
+                char[][] turned = new char[size][size];
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        turned[col][size - 1 - row] = grid[row][col];
+                    }
+                }
+                grid = turned;
+            }
+            for (char[] line : grid) {
+                for (int col = 0; col < size / 2; col++) {
+                    char cell = line[col];
+                    line[col] = line[size - 1 - col];
+                    line[size - 1 - col] = cell;
+                }
+            }
+        }
+        return smallest;
+    }
+}
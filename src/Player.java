@@ -1,4 +1,53 @@
-public interface Player {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A participant in a game, either a person or an engine.
+ * <p>
+ * Players are asked for moves with {@link #requestMove}, which returns at once with a
+ * future of the encoded {@link Move}, so games can wait for people, engines and remote
+ * stand-ins alike without holding a thread. {@link #makeMove} is the blocking form used
+ * where a thread per game is fine.
+ * <p>
+ * Players that own threads release them in {@link #close()}.
+ */
+public interface Player extends AutoCloseable {
     char getMarble();
+
+    /**
+     * Finds a move and plays it on the board, returning when it has been played.
+     * @param board the position, with this player to move
+     */
     void makeMove(GameBoard board);
+
+    /**
+     * Asks for a move without blocking. The player does not change the position; the
+     * caller plays the move with {@link GameBoard#playMove}.
+     * <p>
+     * By default {@link #makeMove} runs on a copy of the position on the given executor
+     * and the move is read back from the result. The time limit is advisory: the default
+     * ignores it and lets {@code makeMove} finish. Players that can cut their work short,
+     * such as a {@link ThinkingPlayer}, override this to honour it.
+     * @param position the position, with this player to move
+     * @param timeLimitMillis the time within which the move is wanted, or Long.MAX_VALUE for no limit;
+     *        ignored by this default
+     * @param executor runs the work of finding the move
+     * @return the encoded move; completes exceptionally if no move can be found
+     */
+    default CompletableFuture<Integer> requestMove(BoardSnapshot position, long timeLimitMillis, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            GameBoard before = position.toBoard();
+            GameBoard after = new GameBoard(before);
+            makeMove(after);
+            return before.findMove(after, getMarble());
+        }, executor);
+    }
+
+    /**
+     * Stops any background work and releases the threads of the player, which is not used
+     * afterwards. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
 }
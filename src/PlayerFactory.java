@@ -1,23 +1,163 @@
-import java.util.function.Consumer;
-
 public class PlayerFactory {
-    private final Consumer<HumanPlayer> moveRequestCallback;
-
-    public PlayerFactory(Consumer<HumanPlayer> moveRequestCallback) {
-        this.moveRequestCallback = moveRequestCallback;
-    }
+    /** Table size for engines in headless games, where many players run at once. */
+    private static final int HEADLESS_TABLE_SIZE_MB = 4;
+    /** Tree size of all trees together for Monte Carlo engines in headless games. */
+    private static final int HEADLESS_TREE_SIZE_MB = 16;
 
     public Player createPlayer(char marble, String gameMode) {
         if (gameMode.equals("Player vs. Player")) {
-            return new HumanPlayer(marble, moveRequestCallback);
+            return new HumanPlayer(marble);
         } else if (gameMode.equals("Player vs. AI")) {
             if (marble == 'X') {
-                return new HumanPlayer(marble, moveRequestCallback);
+                return new HumanPlayer(marble);
             } else {
                 return new AIGreedyPlayer(marble);
             }
+        } else if (gameMode.equals("Player vs. Alpha-Beta AI")) {
+            if (marble == 'X') {
+                return new HumanPlayer(marble);
+            } else {
+                return new AIAlphaBetaPlayer(marble);
+            }
+        } else if (gameMode.equals("Player vs. Monte Carlo AI")) {
+            if (marble == 'X') {
+                return new HumanPlayer(marble);
+            } else {
+                return new AIMonteCarloPlayer(marble);
+            }
         } else {
             throw new IllegalArgumentException("Invalid game mode: " + gameMode);
         }
     }
+
+    /**
+     * Creates a computer player from a text spec, for headless games.
+     * Supported specs are {@code greedy}, {@code alphabeta[:millisPerMove[:tableMegabytes]]},
+     * which searches on a single thread, and {@code mcts[:millisPerMove[:threads[:treeMegabytes]]]},
+     * which uses one tree unless more threads are given.
+     * @param spec the player spec
+     * @param marble the marble of the player
+     * @param seed the seed for players that make random choices
+     * @return a new player
+     * @throws IllegalArgumentException if the spec is not recognized
+     */
+    public static Player createEngine(String spec, char marble, long seed) {
+        return EngineSpec.parse(spec).create(marble, seed);
+    }
+
+    /**
+     * A parsed engine spec, as accepted by {@link #createEngine}. Parsing checks the spec
+     * without creating a player, so it is cheap enough for untrusted input.
+     */
+    public static final class EngineSpec {
+        private final String type;
+        private final long millis;
+        private final int threads;
+        /** The table size in megabytes for alphabeta, the size of all trees for mcts, unused for greedy. */
+        private final int megabytes;
+
+        private EngineSpec(String type, long millis, int threads, int megabytes) {
+            this.type = type;
+            this.millis = millis;
+            this.threads = threads;
+            this.megabytes = megabytes;
+        }
+
+        /**
+         * @param spec the player spec
+         * @return the parsed spec
+         * @throws IllegalArgumentException if the spec is not recognized or a number is not positive
+         */
+        public static EngineSpec parse(String spec) {
+            String[] parts = spec.split(":");
+            try {
+                switch (parts[0]) {
+                    case "greedy":
+                        if (parts.length == 1) {
+                            return new EngineSpec("greedy", 0, 0, 0);
+                        }
+                        break;
+                    case "alphabeta":
+                        if (parts.length <= 3) {
+                            return checked(spec, new EngineSpec("alphabeta",
+                                    parts.length > 1 ? Long.parseLong(parts[1]) : AIAlphaBetaPlayer.DEFAULT_TIME_BUDGET_MILLIS,
+                                    1,
+                                    parts.length > 2 ? Integer.parseInt(parts[2]) : HEADLESS_TABLE_SIZE_MB));
+                        }
+                        break;
+                    case "mcts":
+                        if (parts.length <= 4) {
+                            return checked(spec, new EngineSpec("mcts",
+                                    parts.length > 1 ? Long.parseLong(parts[1]) : AIMonteCarloPlayer.DEFAULT_TIME_BUDGET_MILLIS,
+                                    parts.length > 2 ? Integer.parseInt(parts[2]) : 1,
+                                    parts.length > 3 ? Integer.parseInt(parts[3]) : HEADLESS_TREE_SIZE_MB));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid player spec: " + spec, e);
+            }
+            throw new IllegalArgumentException("Invalid player spec: " + spec);
+        }
+
+        private static EngineSpec checked(String spec, EngineSpec parsed) {
+            if (parsed.millis <= 0 || parsed.threads <= 0 || parsed.megabytes <= 0) {
+                throw new IllegalArgumentException("Invalid player spec: " + spec);
+            }
+            return parsed;
+        }
+
+        /**
+         * Bounds the resources of the engine, for engines requested by untrusted clients.
+         * @param maxMillis the longest search time per move in milliseconds
+         * @param maxMegabytes the most memory the engine may keep, in megabytes
+         * @return a spec with at most the given time and memory, and a single search thread
+         */
+        public EngineSpec limit(long maxMillis, int maxMegabytes) {
+            switch (type) {
+                case "alphabeta":
+                    // The forced-win cache counts against the budget too
+                    int maxTable = Math.max(1, maxMegabytes - AIAlphaBetaPlayer.FORCED_WIN_CACHE_SIZE_MB);
+                    return new EngineSpec(type, Math.min(millis, maxMillis), 1, Math.min(megabytes, maxTable));
+                case "mcts":
+                    return new EngineSpec(type, Math.min(millis, maxMillis), 1, Math.min(megabytes, maxMegabytes));
+                default:
+                    // The greedy player's only memory is its small endgame table
+                    return this;
+            }
+        }
+
+        /**
+         * @param marble the marble of the player
+         * @param seed the seed for players that make random choices
+         * @return a new player
+         */
+        public Player create(char marble, long seed) {
+            switch (type) {
+                case "alphabeta":
+                    return new AIAlphaBetaPlayer(marble, millis, megabytes, 1);
+                case "mcts":
+                    return new AIMonteCarloPlayer(marble, millis, threads, megabytes, seed);
+                default:
+                    return new AIGreedyPlayer(marble, seed);
+            }
+        }
+
+        /**
+         * @return the spec in the form accepted by {@link #parse}, with every number given
+         */
+        @Override
+        public String toString() {
+            switch (type) {
+                case "alphabeta":
+                    return type + ":" + millis + ":" + megabytes;
+                case "mcts":
+                    return type + ":" + millis + ":" + threads + ":" + megabytes;
+                default:
+                    return type;
+            }
+        }
+    }
 }
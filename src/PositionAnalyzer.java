@@ -0,0 +1,214 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzes positions in bulk without a user interface, for labelling training data or
+ * auditing games. Reads one position per line in the form of {@link GameBoard#toString()}
+ * and writes one JSON line per position, in input order, with the best move for the side
+ * to move, its score and the completed search depth.
+ * <p>
+ * Positions are searched in parallel, each worker thread with its own search and table.
+ * At most {@code --queue} positions are read ahead of the oldest one not yet written, so
+ * a slow position holds up the reader instead of letting results pile up, and memory
+ * stays constant however long the input is. Blank lines are skipped; lines that are not
+ * valid positions get an {@code error} line, and finished games a {@code result} line.
+ * <p>
+ * Usage:
+ * <pre>
+ * java PositionAnalyzer [--in positions.txt] [--out analysis.jsonl] [--threads N]
+ *                       [--millis M] [--depth D] [--table MB] [--queue N]
+ * </pre>
+ * Input defaults to standard input and output to standard output. Each position is
+ * searched for {@code --millis} milliseconds, 100 by default, up to {@code --depth} plies.
+ */
+public class PositionAnalyzer {
+    public static final long DEFAULT_MILLIS = 100;
+    public static final int DEFAULT_TABLE_SIZE_MB = 16;
+
+    private final int threads;
+    private final long millis;
+    private final int maxDepth;
+    private final int tableMegabytes;
+    private final int maxInFlight;
+    private final ThreadLocal<AlphaBetaSearch> searches;
+
+    /**
+     * @param threads the number of worker threads
+     * @param millis the search time per position in milliseconds
+     * @param maxDepth the maximum search depth in plies
+     * @param tableMegabytes the transposition table size of every worker in megabytes
+     * @param maxInFlight the most positions read but not yet written
+     */
+    public PositionAnalyzer(int threads, long millis, int maxDepth, int tableMegabytes, int maxInFlight) {
+        if (threads <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Threads and queue size must be positive");
+        }
+        this.threads = threads;
+        this.millis = millis;
+        this.maxDepth = maxDepth;
+        this.tableMegabytes = tableMegabytes;
+        this.maxInFlight = maxInFlight;
+        this.searches = ThreadLocal.withInitial(() -> new AlphaBetaSearch(new TranspositionTable(this.tableMegabytes)));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String in = null;
+        String out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long millis = DEFAULT_MILLIS;
+        int depth = AlphaBetaSearch.MAX_DEPTH;
+        int tableMegabytes = DEFAULT_TABLE_SIZE_MB;
+        int queue = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--in":
+                    in = args[++i];
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--millis":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--table":
+                    tableMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        PositionAnalyzer analyzer = new PositionAnalyzer(threads, millis, depth, tableMegabytes,
+                queue > 0 ? queue : 4 * threads);
+        long start = System.nanoTime();
+        long positions;
+        try (Reader reader = in == null ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(in), StandardCharsets.UTF_8);
+             Writer writer = out == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+            positions = analyzer.run(reader, writer);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d positions in %.1f s (%.0f positions/s)%n", positions, seconds, positions / seconds);
+    }
+
+    /**
+     * Analyzes every position of the input and writes the results in input order.
+     * @param reader the positions, one per line
+     * @param writer where to write one JSON line per position
+     * @return the number of positions analyzed, not counting blank lines
+     * @throws IOException if reading or writing fails
+     */
+    public long run(Reader reader, Writer writer) throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(reader);
+        BufferedWriter out = new BufferedWriter(writer);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pentago-analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>(maxInFlight);
+        long positions = 0;
+        try {
+            long lineNumber = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String text = line.strip();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                if (pending.size() == maxInFlight) {
+                    out.write(take(pending));
+                }
+                long number = lineNumber;
+                pending.add(pool.submit(() -> analyze(number, text)));
+                positions++;
+            }
+            while (!pending.isEmpty()) {
+                out.write(take(pending));
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return positions;
+    }
+
+    private static String take(ArrayDeque<Future<String>> pending) throws InterruptedException {
+        try {
+            return pending.poll().get();
+        } catch (ExecutionException e) {
+            // analyze() reports bad input itself, so this is a bug or an Error
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        }
+    }
+
+    /**
+     * Analyzes one position on the calling worker thread.
+     * @return the JSON line of the position, with its line separator
+     */
+    private String analyze(long lineNumber, String text) {
+        GameBoard board;
+        try {
+            board = GameBoard.fromString(text);
+        } catch (IllegalArgumentException e) {
+            return String.format("{\"line\":%d,\"error\":\"%s\"}%n", lineNumber, escape(e.getMessage()));
+        }
+        int difference = Long.bitCount(board.getMarbleBits('X')) - Long.bitCount(board.getMarbleBits('O'));
+        if (difference != 0 && difference != 1) {
+            return String.format("{\"line\":%d,\"error\":\"Impossible marble counts: %s\"}%n",
+                    lineNumber, escape(text));
+        }
+        if (board.isGameOver()) {
+            char winner = board.checkWinner();
+            String result = winner == 'X' || winner == 'O' ? String.valueOf(winner) : "draw";
+            return String.format("{\"line\":%d,\"position\":\"%s\",\"result\":\"%s\"}%n", lineNumber, text, result);
+        }
+        char side = board.getSideToMove();
+        AlphaBetaSearch search = searches.get();
+        int move = search.findBestMove(board, side, millis, maxDepth);
+        return String.format("{\"line\":%d,\"position\":\"%s\",\"side\":\"%c\",\"move\":\"%s\",\"score\":%d,"
+                + "\"depth\":%d,\"nodes\":%d}%n", lineNumber, text, side, Move.toString(move),
+                search.getBestScore(), search.getCompletedDepth(), search.getNodeCount());
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
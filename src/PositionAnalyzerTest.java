@@ -0,0 +1,43 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class PositionAnalyzerTest {
+    @Test
+    public void testResultsKeepInputOrder() throws IOException, InterruptedException {
+        GameBoard[] positions = PositionCorpus.generate(51L, 40, 0, 20);
+        StringBuilder input = new StringBuilder();
+        for (GameBoard position : positions) {
+            input.append(position).append('\n');
+        }
+        StringWriter output = new StringWriter();
+        PositionAnalyzer analyzer = new PositionAnalyzer(3, 60_000, 1, 1, 2);
+        assertEquals(positions.length, analyzer.run(new StringReader(input.toString()), output));
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(positions.length, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i], lines[i].startsWith("{\"line\":" + (i + 1) + ",\"position\":\"" + positions[i] + "\""));
+            if (!positions[i].isGameOver()) {
+                assertTrue(lines[i], lines[i].contains("\"depth\":1,"));
+            }
+        }
+    }
+
+    @Test
+    public void testBadLinesAndFinishedGames() throws IOException, InterruptedException {
+        String won = "XXXXX." + "OOOO.." + "......" + "......" + "......" + "......";
+        String input = "not a board\n\n" + won + "\r\n" + "XX" + ".".repeat(34) + "\n" + "Q" + ".".repeat(35) + "\n";
+        StringWriter output = new StringWriter();
+        assertEquals(4, new PositionAnalyzer(2, 60_000, 1, 1, 1).run(new StringReader(input), output));
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"line\":1,\"error\":\"Board must have 36 cells"));
+        assertEquals("{\"line\":3,\"position\":\"" + won + "\",\"result\":\"X\"}", lines[1]);
+        assertTrue(lines[2], lines[2].startsWith("{\"line\":4,\"error\":\"Impossible marble counts"));
+        assertEquals("{\"line\":5,\"error\":\"Invalid marble: Q\"}", lines[3]);
+    }
+}
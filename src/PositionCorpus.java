@@ -0,0 +1,47 @@
+import java.util.Random;
+
+/**
+ * Reproducible sets of positions for benchmarks and reports, generated from a seed.
+ */
+public class PositionCorpus {
+    private PositionCorpus() {
+    }
+
+    /**
+     * Generates positions reached by alternating random placements, starting with X,
+     * none of which contains a line of five.
+     * @param seed the random seed
+     * @param count the number of positions
+     * @param minMarbles the fewest marbles on a position
+     * @param maxMarbles the most marbles on a position
+     * @return the positions, identical for identical arguments
+     */
+    public static GameBoard[] generate(long seed, int count, int minMarbles, int maxMarbles) {
+        Random random = new Random(seed);
+        GameBoard[] positions = new GameBoard[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = randomPosition(random, minMarbles + random.nextInt(maxMarbles - minMarbles + 1));
+        }
+        return positions;
+    }
+
+    /**
+     * Builds a position by placing the given number of marbles at random, alternating
+     * players, without creating a line of five.
+     */
+    static GameBoard randomPosition(Random random, int marbles) {
+        GameBoard board = new GameBoard();
+        char marble = 'X';
+        int placed = 0;
+        while (placed < marbles) {
+            int row = random.nextInt(GameBoard.GRID_SIZE);
+            int col = random.nextInt(GameBoard.GRID_SIZE);
+            if (board.getMarble(row, col) == '.' && !board.checkWinningMove(row, col, marble)) {
+                board.placeMarble(row, col, marble);
+                marble = (marble == 'X') ? 'O' : 'X';
+                placed++;
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * An immutable report of how far a running search has come, taken while it runs.
+ * <p>
+ * For a Monte Carlo search the node count is the number of playouts, each of which adds
+ * one node to the tree until the tree reaches its memory budget, and the depth is 0
+ * because the search is not depth-limited.
+ */
+public final class SearchProgress {
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    /**
+     * @param depth the deepest completed iteration, or 0 if the search has no depth
+     * @param nodes the number of nodes visited so far
+     * @param elapsedNanos the time since the search started
+     */
+    public SearchProgress(int depth, long nodes, long elapsedNanos) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        String rate = nodes + " nodes, " + getNodesPerSecond() + " nodes/s";
+        return depth == 0 ? rate : "depth " + depth + ", " + rate;
+    }
+}
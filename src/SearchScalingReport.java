@@ -0,0 +1,51 @@
+/**
+ * Reports how the parallel search scales with the number of threads by searching the
+ * same seeded positions at 1, 2, 4, 8, ... threads and printing nodes per second,
+ * speedup over one thread and the average depth reached.
+ * <p>
+ * Usage: {@code java SearchScalingReport [millisPerPosition] [maxThreads] [positions] [tableMegabytes]}
+ */
+public class SearchScalingReport {
+    private static final long SEED = 2024L;
+
+    public static void main(String[] args) {
+        long budgetMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int positionCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int tableMegabytes = args.length > 3 ? Integer.parseInt(args[3]) : AIAlphaBetaPlayer.DEFAULT_TABLE_SIZE_MB;
+        GameBoard[] positions = PositionCorpus.generate(SEED, positionCount, 4, 16);
+
+        System.out.printf("%d positions, %d ms each, %d MB table%n", positionCount, budgetMillis, tableMegabytes);
+        System.out.printf("%8s %14s %14s %8s %10s %9s%n",
+                "threads", "nodes", "nodes/s", "speedup", "avg depth", "hit rate");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            TranspositionTable table = new TranspositionTable(tableMegabytes);
+            LazySmpSearch search = new LazySmpSearch(table, threads);
+            long nodes = 0;
+            long elapsed = 0;
+            int depthSum = 0;
+            for (GameBoard position : positions) {
+                search.findBestMove(position, position.getSideToMove(), budgetMillis, AlphaBetaSearch.MAX_DEPTH);
+                nodes += search.getNodeCount();
+                elapsed += search.getElapsedNanos();
+                depthSum += search.getCompletedDepth();
+            }
+            search.shutdown();
+
+            double nodesPerSecond = nodes * 1e9 / elapsed;
+            if (threads == 1) {
+                baseline = nodesPerSecond;
+            }
+            System.out.printf("%8d %14d %14.0f %8.2f %10.2f %9.3f%n", threads, nodes, nodesPerSecond,
+                    nodesPerSecond / baseline, (double) depthSum / positionCount, table.getHitRate());
+        }
+    }
+
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+}
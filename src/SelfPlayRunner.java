@@ -0,0 +1,210 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays many AI-vs-AI games concurrently without a user interface and streams one
+ * result line per finished game to a CSV file, or JSON Lines if the file name ends in
+ * {@code .jsonl}.
+ * <p>
+ * Usage:
+ * <pre>
+ * java SelfPlayRunner --games 1000 --x greedy --o alphabeta:20 [--threads N] [--seed S]
+ *                     [--swap] [--out results.csv] [--record games.pgr] [--metrics]
+ * </pre>
+ * Player specs are those of {@link PlayerFactory#createEngine}. Each game gets its own
+ * seed derived from the base seed and the game number, so any single game can be
+ * replayed. With {@code --swap}, the two specs change sides every other game. With
+ * {@code --record}, the moves of every game are archived as well; see {@link GameReplay}.
+ * With {@code --metrics}, the {@link Metrics} snapshot is printed at the end.
+ */
+public class SelfPlayRunner {
+    private final int games;
+    private final int threads;
+    private final String specX;
+    private final String specO;
+    private final long seed;
+    private final boolean swapSides;
+
+    private GameRecordWriter recordWriter;
+
+    private final AtomicInteger xWins = new AtomicInteger();
+    private final AtomicInteger oWins = new AtomicInteger();
+    private final AtomicInteger draws = new AtomicInteger();
+
+    public SelfPlayRunner(int games, int threads, String specX, String specO, long seed, boolean swapSides) {
+        this.games = games;
+        this.threads = threads;
+        this.specX = specX;
+        this.specO = specO;
+        this.seed = seed;
+        this.swapSides = swapSides;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String specX = "greedy";
+        String specO = "greedy";
+        long seed = 1L;
+        boolean swapSides = false;
+        String out = "selfplay.csv";
+        String record = null;
+        boolean metrics = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--x":
+                    specX = args[++i];
+                    break;
+                case "--o":
+                    specO = args[++i];
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--swap":
+                    swapSides = true;
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--record":
+                    record = args[++i];
+                    break;
+                case "--metrics":
+                    metrics = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        SelfPlayRunner runner = new SelfPlayRunner(games, threads, specX, specO, seed, swapSides);
+        boolean json = out.endsWith(".jsonl");
+        long start = System.nanoTime();
+        try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+             GameRecordWriter records = record == null ? null : GameRecordWriter.open(Paths.get(record))) {
+            runner.setRecordWriter(records);
+            runner.run(writer, json);
+        }
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.printf("%d games in %.1f s (%.0f games/min): X %d, O %d, draws %d -> %s%n",
+                games, minutes * 60, games / minutes, runner.xWins.get(), runner.oWins.get(),
+                runner.draws.get(), out);
+        if (metrics) {
+            System.out.print(Metrics.getDefault().snapshot());
+        }
+    }
+
+    /**
+     * Archives the moves of every game played from now on.
+     * @param recordWriter the archive, or null to archive nothing
+     */
+    public void setRecordWriter(GameRecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    /**
+     * Plays all games and writes one line per game, in the order the games finish.
+     * @param writer where to write the results
+     * @param json true for JSON Lines, false for CSV with a header line
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if a game fails; the games not yet started are cancelled
+     */
+    public void run(Writer writer, boolean json) throws IOException, InterruptedException {
+        BufferedWriter out = new BufferedWriter(writer);
+        if (!json) {
+            out.write("game,seed,x,o,winner,plies,avg_move_us,max_move_us,total_ms\n");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>(games);
+        try {
+            for (int game = 0; game < games; game++) {
+                int gameNumber = game;
+                results.add(pool.submit(() -> {
+                    String line = playGame(gameNumber, json);
+                    synchronized (out) {
+                        try {
+                            out.write(line);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }));
+            }
+            for (int game = 0; game < games; game++) {
+                try {
+                    results.get(game).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw new IllegalStateException("Game " + game + " failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        out.flush();
+    }
+
+    private String playGame(int game, boolean json) {
+        long gameSeed = new SplittableRandom(seed + game).nextLong();
+        boolean swapped = swapSides && game % 2 == 1;
+        String x = swapped ? specO : specX;
+        String o = swapped ? specX : specO;
+        HeadlessGame.Result result;
+        try (Player playerX = PlayerFactory.createEngine(x, 'X', gameSeed);
+             Player playerO = PlayerFactory.createEngine(o, 'O', gameSeed ^ 0x5DEECE66DL)) {
+            result = new HeadlessGame(playerX, playerO).play();
+        }
+        if (recordWriter != null) {
+            synchronized (recordWriter) {
+                try {
+                    recordWriter.write(result.getRecord());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        if (result.getWinner() == 'X') {
+            xWins.incrementAndGet();
+        } else if (result.getWinner() == 'O') {
+            oWins.incrementAndGet();
+        } else {
+            draws.incrementAndGet();
+        }
+        String winner = result.getWinner() == GameBoard.DRAW ? "draw" : String.valueOf(result.getWinner());
+        long averageMicros = result.getAverageMoveNanos() / 1000;
+        long maxMicros = result.getMaxMoveNanos() / 1000;
+        long totalMillis = result.getTotalMoveNanos() / 1_000_000;
+        if (json) {
+            return String.format("{\"game\":%d,\"seed\":%d,\"x\":\"%s\",\"o\":\"%s\",\"winner\":\"%s\","
+                    + "\"plies\":%d,\"avg_move_us\":%d,\"max_move_us\":%d,\"total_ms\":%d}%n",
+                    game, gameSeed, x, o, winner, result.getPlies(), averageMicros, maxMicros, totalMillis);
+        }
+        return String.format("%d,%d,%s,%s,%s,%d,%d,%d,%d%n",
+                game, gameSeed, x, o, winner, result.getPlies(), averageMicros, maxMicros, totalMillis);
+    }
+}
@@ -0,0 +1,37 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Test;
+
+public class SelfPlayRunnerTest {
+    @Test
+    public void testEveryGameWritesOneLine() throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        new SelfPlayRunner(6, 2, "greedy", "greedy", 7L, true).run(out, true);
+        String[] lines = out.toString().split("\n");
+        assertEquals(6, lines.length);
+        Set<String> games = new TreeSet<>();
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("{\"game\":"));
+            games.add(line.substring(0, line.indexOf(',')));
+        }
+        assertEquals(6, games.size());
+    }
+
+    @Test
+    public void testMonteCarloGamesDoNotLeaveThreads() throws IOException, InterruptedException {
+        new SelfPlayRunner(8, 2, "mcts:5:3", "greedy", 7L, true).run(new StringWriter(), false);
+        long helpers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("pentago-mcts-helper"))
+                .count();
+        // Two games search at once with two helpers each; a pool per player would leave 16
+        assertTrue(helpers + " helper threads", helpers <= 8);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedGameFailsTheRun() throws IOException, InterruptedException {
+        new SelfPlayRunner(4, 2, "greedy", "nobody", 7L, false).run(new StringWriter(), false);
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * The eight symmetries of the board: the rotations and reflections of the whole 6x6 grid.
+ * Each maps quadrants to quadrants and lines of five to lines of five, so symmetric
+ * positions have the same game value and one entry per equivalence class is enough in
+ * caches, opening books and endgame tables.
+ * <p>
+ * Transform {@code t} first mirrors the columns if {@code t >= 4} and then turns the
+ * board clockwise {@code t & 3} times. The inverse of a pure turn {@code t} is
+ * {@code (4 - t) & 3}, and the mirrored transforms 4-7 are their own inverses. Mirroring
+ * swaps clockwise and counterclockwise quadrant rotations.
+ * <p>
+ * Positions are keyed in base 3 ({@code sum(digit(cell) * 3^cell)} with 0 = empty,
+ * 1 = 'X', 2 = 'O'), which is below 2^58 and so leaves the top bits free.
+ * {@link GameBoard#getCanonicalKey()} packs the smallest key over all eight images
+ * together with the transform that produced it; {@link #key} and {@link #transform}
+ * unpack it.
+ */
+public final class Symmetry {
+    public static final int COUNT = 8;
+
+    /** The number of bits used by a base-3 position key. */
+    public static final int KEY_BITS = 58;
+
+    private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+    private static final int TRANSFORM_SHIFT = 60;
+    private static final int ROW_MASK = (1 << GameBoard.GRID_SIZE) - 1;
+
+    /** The image of each 6-bit row pattern, indexed by transform, row and pattern. */
+    private static final long[][][] ROW_IMAGES = new long[COUNT][GameBoard.GRID_SIZE][1 << GameBoard.GRID_SIZE];
+
+    /** The image of each cell, indexed by transform and cell. */
+    private static final int[][] CELL_IMAGES = new int[COUNT][GameBoard.CELL_COUNT];
+
+    /** The base-3 value of each 6-bit row pattern with every set bit as digit 1. */
+    private static final long[] TERNARY_ROW = new long[1 << GameBoard.GRID_SIZE];
+
+    /** 3 to the power of 6 * row, the weight of each row in a key. */
+    private static final long[] ROW_WEIGHTS = new long[GameBoard.GRID_SIZE];
+
+    static {
+        int size = GameBoard.GRID_SIZE;
+        for (int transform = 0; transform < COUNT; transform++) {
+            for (int cell = 0; cell < GameBoard.CELL_COUNT; cell++) {
+                int row = cell / size;
+                int col = cell % size;
+                if (transform >= 4) {
+                    col = size - 1 - col;
+                }
+                for (int turn = 0; turn < (transform & 3); turn++) {
+                    int turned = col;
+                    col = size - 1 - row;
+                    row = turned;
+                }
+                CELL_IMAGES[transform][cell] = row * size + col;
+            }
+            for (int row = 0; row < size; row++) {
+                for (int pattern = 0; pattern <= ROW_MASK; pattern++) {
+                    long image = 0L;
+                    for (int col = 0; col < size; col++) {
+                        if ((pattern & (1 << col)) != 0) {
+                            image |= 1L << CELL_IMAGES[transform][row * size + col];
+                        }
+                    }
+                    ROW_IMAGES[transform][row][pattern] = image;
+                }
+            }
+        }
+
+        long power = 1;
+        long[] powers = new long[size];
+        for (int col = 0; col < size; col++) {
+            powers[col] = power;
+            power *= 3;
+        }
+        for (int pattern = 0; pattern <= ROW_MASK; pattern++) {
+            for (int col = 0; col < size; col++) {
+                if ((pattern & (1 << col)) != 0) {
+                    TERNARY_ROW[pattern] += powers[col];
+                }
+            }
+        }
+        long rowWeight = 1;
+        for (int row = 0; row < size; row++) {
+            ROW_WEIGHTS[row] = rowWeight;
+            rowWeight *= power;
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /**
+     * Applies a transform to a bitboard.
+     * @param bits a bitboard with bit {@code row * 6 + col} per cell
+     * @param transform the transform, 0-7
+     * @return the bitboard of the image
+     */
+    public static long transformBits(long bits, int transform) {
+        long[][] images = ROW_IMAGES[transform];
+        long image = 0L;
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            image |= images[row][(int) (bits >>> (row * GameBoard.GRID_SIZE)) & ROW_MASK];
+        }
+        return image;
+    }
+
+    /**
+     * Applies a transform to a cell index.
+     * @param cell the cell, {@code row * 6 + col}
+     * @param transform the transform, 0-7
+     * @return the cell of the image
+     */
+    public static int transformCell(int cell, int transform) {
+        return CELL_IMAGES[transform][cell];
+    }
+
+    /**
+     * Applies a transform to a move, so that playing the image of a move on the image of
+     * a position gives the image of the resulting position.
+     * @param move the encoded move, see {@link Move}
+     * @param transform the transform, 0-7
+     * @return the encoded image move
+     */
+    public static int transformMove(int move, int transform) {
+        int cell = CELL_IMAGES[transform][Move.cell(move)];
+        int quadrant = Move.quadrant(move);
+        int corner = (quadrant <= 2 ? 0 : GameBoard.QUADRANT_SIZE) * GameBoard.GRID_SIZE
+                + (quadrant == 1 || quadrant == 3 ? 0 : GameBoard.QUADRANT_SIZE);
+        int image = CELL_IMAGES[transform][corner];
+        int row = image / GameBoard.GRID_SIZE;
+        int col = image % GameBoard.GRID_SIZE;
+        int imageQuadrant = 1 + (row < GameBoard.QUADRANT_SIZE ? 0 : 2) + (col < GameBoard.QUADRANT_SIZE ? 0 : 1);
+        boolean clockwise = Move.isClockwise(move) != (transform >= 4);
+        return Move.encode(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, imageQuadrant, clockwise);
+    }
+
+    /**
+     * @param transform a transform, 0-7
+     * @return the transform that undoes it
+     */
+    public static int inverse(int transform) {
+        return transform >= 4 ? transform : (4 - transform) & 3;
+    }
+
+    /**
+     * Computes the base-3 key of a position.
+     * @param xBits the bitboard of 'X'
+     * @param oBits the bitboard of 'O'
+     * @return the key, below 2^58
+     */
+    public static long key(long xBits, long oBits) {
+        long key = 0L;
+        for (int row = 0; row < GameBoard.GRID_SIZE; row++) {
+            int shift = row * GameBoard.GRID_SIZE;
+            int x = (int) (xBits >>> shift) & ROW_MASK;
+            int o = (int) (oBits >>> shift) & ROW_MASK;
+            key += (TERNARY_ROW[x] + 2 * TERNARY_ROW[o]) * ROW_WEIGHTS[row];
+        }
+        return key;
+    }
+
+    /**
+     * Finds the smallest key over the eight images of a position.
+     * @param xBits the bitboard of 'X'
+     * @param oBits the bitboard of 'O'
+     * @return the canonical key with the transform that produced it in the top bits
+     */
+    static long canonicalKey(long xBits, long oBits) {
+        long best = key(xBits, oBits);
+        int bestTransform = 0;
+        for (int transform = 1; transform < COUNT; transform++) {
+            long key = key(transformBits(xBits, transform), transformBits(oBits, transform));
+            if (key < best) {
+                best = key;
+                bestTransform = transform;
+            }
+        }
+        return best | ((long) bestTransform << TRANSFORM_SHIFT);
+    }
+
+    /**
+     * @param canonical a value returned by {@link GameBoard#getCanonicalKey()}
+     * @return the base-3 key of the canonical image
+     */
+    public static long key(long canonical) {
+        return canonical & KEY_MASK;
+    }
+
+    /**
+     * @param canonical a value returned by {@link GameBoard#getCanonicalKey()}
+     * @return the transform that maps the position to its canonical image
+     */
+    public static int transform(long canonical) {
+        return (int) (canonical >>> TRANSFORM_SHIFT);
+    }
+
+    /**
+     * Rebuilds a position from its base-3 key.
+     * @param key a key as returned by {@link #key(long, long)}
+     * @return a new board holding the position
+     */
+    public static GameBoard fromKey(long key) {
+        GameBoard board = new GameBoard();
+        for (int cell = 0; cell < GameBoard.CELL_COUNT; cell++) {
+            int digit = (int) (key % 3);
+            key /= 3;
+            if (digit != 0) {
+                board.placeMarble(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, digit == 1 ? 'X' : 'O');
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Builds the image of a position under a transform.
+     * @param board the position, left unchanged
+     * @param transform the transform, 0-7
+     * @return a new board holding the image
+     */
+    public static GameBoard transform(GameBoard board, int transform) {
+        long xBits = transformBits(board.getMarbleBits('X'), transform);
+        long oBits = transformBits(board.getMarbleBits('O'), transform);
+        return fromKey(key(xBits, oBits));
+    }
+}
@@ -0,0 +1,69 @@
+import static org.junit.Assert.*;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class SymmetryTest {
+    private static final int POSITIONS = 500;
+
+    @Test
+    public void testAllImagesShareCanonicalKey() {
+        for (GameBoard board : PositionCorpus.generate(7L, POSITIONS, 0, 30)) {
+            long key = Symmetry.key(board.getCanonicalKey());
+            for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+                assertEquals(key, Symmetry.key(Symmetry.transform(board, transform).getCanonicalKey()));
+            }
+        }
+    }
+
+    @Test
+    public void testTransformLeadsToCanonicalImage() {
+        for (GameBoard board : PositionCorpus.generate(8L, POSITIONS, 0, 30)) {
+            long canonical = board.getCanonicalKey();
+            GameBoard image = Symmetry.transform(board, Symmetry.transform(canonical));
+            assertEquals(Symmetry.key(canonical), Symmetry.key(image.getMarbleBits('X'), image.getMarbleBits('O')));
+            assertEquals(board.toString(), Symmetry.fromKey(Symmetry.key(board.getMarbleBits('X'),
+                    board.getMarbleBits('O'))).toString());
+        }
+    }
+
+    @Test
+    public void testInverseUndoesTransform() {
+        GameBoard board = GameBoard.fromString(Perft.MIDDLE_GAME);
+        for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+            GameBoard image = Symmetry.transform(board, transform);
+            assertEquals(Perft.MIDDLE_GAME, Symmetry.transform(image, Symmetry.inverse(transform)).toString());
+        }
+    }
+
+    @Test
+    public void testTransformedMoveCommutesWithMakeMove() {
+        Random random = new Random(9L);
+        int[] moves = new int[Move.MAX_MOVES];
+        for (GameBoard board : PositionCorpus.generate(10L, 100, 0, 30)) {
+            char side = board.getSideToMove();
+            int count = board.generateMoves(moves);
+            int move = moves[random.nextInt(count)];
+            for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+                GameBoard image = Symmetry.transform(board, transform);
+                image.makeMove(Symmetry.transformMove(move, transform), side);
+                GameBoard played = new GameBoard(board);
+                played.makeMove(move, side);
+                assertEquals(Symmetry.transform(played, transform).toString(), image.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testSingleMarblePositionsFormSixClasses() {
+        Set<Long> keys = new HashSet<>();
+        for (int cell = 0; cell < GameBoard.CELL_COUNT; cell++) {
+            GameBoard board = new GameBoard();
+            board.placeMarble(cell / GameBoard.GRID_SIZE, cell % GameBoard.GRID_SIZE, 'X');
+            keys.add(Symmetry.key(board.getCanonicalKey()));
+        }
+        assertEquals(6, keys.size());
+        assertEquals(0L, new GameBoard().getCanonicalKey());
+    }
+}
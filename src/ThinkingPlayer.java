@@ -0,0 +1,64 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A player that searches for its move. While {@link #makeMove} runs on one thread,
+ * other threads may watch its progress and ask it to stop early.
+ */
+public interface ThinkingPlayer extends Player {
+    /**
+     * @return the progress of the running search, or of the last one if none is running
+     */
+    SearchProgress getProgress();
+
+    /**
+     * Asks the search for the requested move to stop and play the best move found so far.
+     * The request stands from the moment the move was requested, so if the search has not
+     * started yet it stops as soon as it does. A move is always played. May be called from
+     * any thread.
+     */
+    void stopThinking();
+
+    /**
+     * Starts searching in the background while the opponent decides on its move, so the
+     * work can be reused for the reply. The next {@link #makeMove}, {@link #stopPondering()}
+     * or {@link #close()} stops it. Does nothing by default. May be called from any thread.
+     * @param position the position, with the opponent to move
+     */
+    default void ponder(BoardSnapshot position) {
+    }
+
+    /**
+     * Stops a background search started by {@link #ponder} and waits for it to end.
+     * Does nothing by default. May be called from any thread.
+     */
+    default void stopPondering() {
+    }
+
+    /**
+     * Asks for a move as {@link Player#requestMove} does, and stops the search if it is
+     * still running when the time limit expires.
+     */
+    @Override
+    default CompletableFuture<Integer> requestMove(BoardSnapshot position, long timeLimitMillis, Executor executor) {
+        return stopAtTimeLimit(Player.super.requestMove(position, timeLimitMillis, executor), timeLimitMillis);
+    }
+
+    /**
+     * Calls {@link #stopThinking()} if the move is still being searched when the time limit expires.
+     * @param move the requested move
+     * @param timeLimitMillis the time limit in milliseconds, or Long.MAX_VALUE for no limit
+     * @return the move
+     */
+    default CompletableFuture<Integer> stopAtTimeLimit(CompletableFuture<Integer> move, long timeLimitMillis) {
+        if (timeLimitMillis != Long.MAX_VALUE) {
+            CompletableFuture.delayedExecutor(timeLimitMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!move.isDone()) {
+                    stopThinking();
+                }
+            });
+        }
+        return move;
+    }
+}
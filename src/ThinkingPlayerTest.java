@@ -0,0 +1,108 @@
+import static org.junit.Assert.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ThinkingPlayerTest {
+    private static final long BUDGET_MILLIS = 60_000;
+
+    @Test
+    public void testAlphaBetaStopBeforeTheSearchStartsIsKept() throws Exception {
+        try (AIAlphaBetaPlayer player = new AIAlphaBetaPlayer('X', BUDGET_MILLIS, 4, 1)) {
+            assertStopIsKept(player, position(31L, 'X'));
+        }
+    }
+
+    @Test
+    public void testAlphaBetaStopWhilePonderingIsKept() throws Exception {
+        try (AIAlphaBetaPlayer player = new AIAlphaBetaPlayer('X', BUDGET_MILLIS, 4, 1)) {
+            player.ponder(BoardSnapshot.of(position(32L, 'O'), 'O'));
+            assertTrue(player.isPondering());
+            // The move stops the pondering before it searches
+            assertStopIsKept(player, position(33L, 'X'));
+        }
+    }
+
+    @Test
+    public void testMonteCarloStopBeforeTheSearchStartsIsKept() throws Exception {
+        try (AIMonteCarloPlayer player = new AIMonteCarloPlayer('O', BUDGET_MILLIS, 2, 1L)) {
+            assertStopIsKept(player, position(34L, 'O'));
+        }
+    }
+
+    @Test
+    public void testMonteCarloStopWhilePonderingIsKept() throws Exception {
+        GameBoard reply = position(38L, 'O');
+        try (AIMonteCarloPlayer player = new AIMonteCarloPlayer('O', BUDGET_MILLIS, 2, 1L)) {
+            player.ponder(BoardSnapshot.of(position(38L, 'X'), 'X'));
+            assertTrue(player.isPondering());
+            // The move stops the pondering before it searches
+            assertStopIsKept(player, reply);
+            assertFalse(player.isPondering());
+        }
+    }
+
+    @Test
+    public void testMonteCarloWinningPlacementIsTimed() {
+        GameBoard board = GameBoard.fromString("OOOO..XXXX.........................X");
+        assertEquals('O', board.getSideToMove());
+        Metrics.Histogram moveTimes = Metrics.getDefault().histogram("mcts.move_time");
+        long before = moveTimes.getCount();
+        try (AIMonteCarloPlayer player = new AIMonteCarloPlayer('O', BUDGET_MILLIS, 1, 1L)) {
+            player.makeMove(board);
+        }
+        assertEquals('O', board.checkWinner());
+        assertEquals(before + 1, moveTimes.getCount());
+    }
+
+    /**
+     * Requests a move, stops the player before the engine thread starts on it and checks
+     * that the move comes long before the budget runs out.
+     */
+    private static void assertStopIsKept(ThinkingPlayer player, GameBoard board) throws Exception {
+        ExecutorService engine = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            Executor held = task -> engine.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            });
+            CompletableFuture<Integer> move = player.requestMove(BoardSnapshot.of(board, player.getMarble()),
+                    Long.MAX_VALUE, held);
+            player.stopThinking();
+            release.countDown();
+            int played = move.get(BUDGET_MILLIS / 4, TimeUnit.MILLISECONDS);
+            assertTrue(board + " " + Move.toString(played), new GameBoard(board).playMove(played, player.getMarble()));
+        } finally {
+            engine.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a position out of the opening book whose result a shallow search cannot
+     *         tell, so only a stop ends the search early
+     */
+    private static GameBoard position(long seed, char side) {
+        ForcedWinSearch prover = new ForcedWinSearch();
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(4));
+        for (GameBoard board : PositionCorpus.generate(seed, 50, 8, 14)) {
+            if (board.isGameOver() || board.getSideToMove() != side
+                    || prover.findForcedWin(board, side, 1000, ForcedWinSearch.DEFAULT_MAX_ATTACKS) != Move.NONE) {
+                continue;
+            }
+            search.findBestMove(board, side, 60_000, 5);
+            if (Math.abs(search.getBestScore()) < AlphaBetaSearch.WIN_SCORE - AlphaBetaSearch.MAX_DEPTH) {
+                return board;
+            }
+        }
+        throw new AssertionError("No quiet position for seed " + seed);
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size transposition table for the alpha-beta search, backed by two
+ * primitive arrays so it never allocates after construction.
+ * <p>
+ * Each slot holds one packed entry:
+ * bits 0-15 hold the best move plus one (0 for none), bits 16-23 the depth,
+ * bits 24-25 the bound type, bits 26-31 the search generation and bits 32-63 the score.
+ * A slot is overwritten when it is empty, holds the same position, belongs to an
+ * older search, or was searched no deeper than the new result (depth-preferred).
+ * <p>
+ * The table may be shared by several search threads without locking. Next to each
+ * entry it stores {@code key ^ entry}, so a slot torn by two concurrent writers fails
+ * the key check on probe and reads as a miss instead of returning a wrong result.
+ * Searches count their own probes and hits and add them with {@link #recordStatistics}.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int GENERATION_MASK = 0x3F;
+    private static final int OCCUPANCY_SAMPLE = 1 << 16;
+
+    private final long[] checks;
+    private final long[] entries;
+    private final int indexMask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * Creates a table that uses at most the given amount of memory.
+     * The number of slots is the largest power of two that fits.
+     * @param sizeMegabytes the memory budget in megabytes
+     */
+    public TranspositionTable(int sizeMegabytes) {
+        if (sizeMegabytes <= 0) {
+            throw new IllegalArgumentException("Table size must be positive: " + sizeMegabytes);
+        }
+        long slots = Long.highestOneBit((long) sizeMegabytes * 1024 * 1024 / ENTRY_BYTES);
+        slots = Math.min(slots, 1L << 30);
+        checks = new long[(int) slots];
+        entries = new long[(int) slots];
+        indexMask = (int) slots - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key the position key
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int index = (int) key & indexMask;
+        long entry = entries[index];
+        if (entry != 0 && (checks[index] ^ entry) == key) {
+            return entry;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result for a position.
+     * @param key the position key
+     * @param move the best move found, or Move.NONE
+     * @param depth the remaining depth of the search
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score the score from the point of view of the side to move
+     */
+    public void store(long key, int move, int depth, int bound, int score) {
+        int index = (int) key & indexMask;
+        long old = entries[index];
+        int currentGeneration = generation;
+        if (old != 0 && (checks[index] ^ old) != key && generation(old) == currentGeneration
+                && depth(old) > depth) {
+            return;
+        }
+        long entry = ((long) score << 32)
+                | ((long) currentGeneration << 26)
+                | ((long) bound << 24)
+                | ((long) depth << 16)
+                | (move + 1);
+        checks[index] = key ^ entry;
+        entries[index] = entry;
+    }
+
+    /**
+     * Marks the start of a new search so entries of earlier searches are replaced first.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Adds the table usage of one finished search to the counters.
+     * @param probeCount the number of probes
+     * @param hitCount the number of probes that found their position
+     * @param storeCount the number of stores
+     */
+    public void recordStatistics(long probeCount, long hitCount, long storeCount) {
+        probes.add(probeCount);
+        hits.add(hitCount);
+        stores.add(storeCount);
+    }
+
+    public void clear() {
+        Arrays.fill(checks, 0L);
+        Arrays.fill(entries, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF) - 1;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 26) & GENERATION_MASK;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public long getProbeCount() {
+        return probes.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getStoreCount() {
+        return stores.sum();
+    }
+
+    /**
+     * @return the fraction of probes that found their position, between 0 and 1
+     */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0.0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * Estimates the fraction of slots that hold an entry from the first slots of the table,
+     * which are as well mixed as the rest since slots are chosen by hash.
+     * @return the estimated occupancy, between 0 and 1
+     */
+    public double getOccupancy() {
+        int sample = Math.min(entries.length, OCCUPANCY_SAMPLE);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (entries[i] != 0) {
+                used++;
+            }
+        }
+        return (double) used / sample;
+    }
+}
@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TranspositionTableTest {
+    private static final long KEY = 0x1234_5678_9ABC_DEF0L;
+
+    private TranspositionTable table;
+    private long collidingKey;
+
+    @Before
+    public void setUp() {
+        table = new TranspositionTable(1);
+        collidingKey = KEY + table.getCapacity(); // Same slot, different position
+    }
+
+    @Test
+    public void testCapacityFitsBudget() {
+        assertEquals(1 << 16, table.getCapacity()); // 1 MB of 16-byte slots
+    }
+
+    @Test
+    public void testEntryPackingRoundTrip() {
+        int[] moves = {Move.NONE, 0, Move.encode(2, 3, 4, false), Move.MAX_MOVES - 1};
+        int[] scores = {-1_000_000, -Evaluator.MAX_SCORE, -1, 0, 1, Evaluator.MAX_SCORE, 1_000_000};
+        int[] bounds = {TranspositionTable.EXACT, TranspositionTable.LOWER_BOUND, TranspositionTable.UPPER_BOUND};
+        for (int move : moves) {
+            for (int score : scores) {
+                for (int bound : bounds) {
+                    for (int depth : new int[] {0, 1, 36, 255}) {
+                        table.store(KEY, move, depth, bound, score);
+                        long entry = table.probe(KEY);
+                        assertNotEquals(0L, entry);
+                        assertEquals(move, TranspositionTable.move(entry));
+                        assertEquals(score, TranspositionTable.score(entry));
+                        assertEquals(bound, TranspositionTable.bound(entry));
+                        assertEquals(depth, TranspositionTable.depth(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProbeChecksKey() {
+        assertEquals(0L, table.probe(KEY));
+        table.store(KEY, Move.NONE, 0, TranspositionTable.EXACT, 0);
+        assertNotEquals(0L, table.probe(KEY));
+        assertEquals(0L, table.probe(collidingKey));
+    }
+
+    @Test
+    public void testDeeperEntryIsKept() {
+        table.store(KEY, 5, 6, TranspositionTable.EXACT, 10);
+        table.store(collidingKey, 7, 3, TranspositionTable.EXACT, 20);
+        assertEquals(6, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(0L, table.probe(collidingKey));
+
+        table.store(collidingKey, 7, 6, TranspositionTable.EXACT, 20); // As deep replaces
+        assertEquals(0L, table.probe(KEY));
+        assertEquals(20, TranspositionTable.score(table.probe(collidingKey)));
+    }
+
+    @Test
+    public void testSamePositionIsAlwaysReplaced() {
+        table.store(KEY, 5, 6, TranspositionTable.LOWER_BOUND, 10);
+        table.store(KEY, 9, 1, TranspositionTable.UPPER_BOUND, -10);
+        long entry = table.probe(KEY);
+        assertEquals(9, TranspositionTable.move(entry));
+        assertEquals(1, TranspositionTable.depth(entry));
+        assertEquals(-10, TranspositionTable.score(entry));
+    }
+
+    @Test
+    public void testOlderGenerationIsReplaced() {
+        table.store(KEY, 5, 20, TranspositionTable.EXACT, 10);
+        table.newSearch();
+        table.store(collidingKey, 7, 1, TranspositionTable.EXACT, 20);
+        assertEquals(0L, table.probe(KEY));
+        assertEquals(1, TranspositionTable.depth(table.probe(collidingKey)));
+    }
+
+    @Test
+    public void testStatistics() {
+        assertEquals(0.0, table.getHitRate(), 0.0);
+        table.recordStatistics(10, 4, 6);
+        table.recordStatistics(10, 1, 0);
+        assertEquals(20, table.getProbeCount());
+        assertEquals(5, table.getHitCount());
+        assertEquals(6, table.getStoreCount());
+        assertEquals(0.25, table.getHitRate(), 1e-9);
+
+        assertEquals(0.0, table.getOccupancy(), 0.0);
+        for (int key = 0; key < table.getCapacity(); key += 4) {
+            table.store(key, Move.NONE, 0, TranspositionTable.EXACT, 0);
+        }
+        assertEquals(0.25, table.getOccupancy(), 1e-9);
+    }
+
+    @Test
+    public void testClear() {
+        table.store(KEY, 5, 6, TranspositionTable.EXACT, 10);
+        table.recordStatistics(3, 2, 1);
+        table.clear();
+        assertEquals(0L, table.probe(KEY));
+        assertEquals(0, table.getProbeCount());
+        assertEquals(0, table.getHitCount());
+        assertEquals(0, table.getStoreCount());
+        assertEquals(0.0, table.getOccupancy(), 0.0);
+    }
+}